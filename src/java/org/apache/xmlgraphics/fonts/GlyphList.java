@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.fonts;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Loads glyph lists in the format of the Adobe Glyph List ("name;XXXX XXXX").
+ * <p>
+ * Parsing the text file is comparatively slow, so the build converts the glyph lists into a
+ * compact binary form (see {@link #main(String[])}) which is loaded in a single read. The text
+ * files are only parsed if the binary form is not available (for example when running from
+ * the source tree without the build step).
+ */
+final class GlyphList {
+
+    /** Extension of the binary form of a glyph list */
+    static final String BINARY_EXTENSION = ".bin";
+
+    private static final int MAGIC = 0x474C4931; //"GLI1"
+
+    private GlyphList() {
+    }
+
+    /**
+     * Loads a glyph list.
+     * @param filename the file name of the text glyph list relative to this class
+     * @return an array with alternating Unicode sequences and glyph names
+     * @throws IOException In case of an I/O error
+     */
+    static String[] load(String filename) throws IOException {
+        String binaryName = filename.substring(0, filename.lastIndexOf('.')) + BINARY_EXTENSION;
+        InputStream in = GlyphList.class.getResourceAsStream(binaryName);
+        if (in != null) {
+            try {
+                return readBinary(in);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+        in = GlyphList.class.getResourceAsStream(filename);
+        if (in == null) {
+            return null;
+        }
+        try {
+            return parseText(in);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Parses a glyph list in text form.
+     * @param in the stream to read from
+     * @return an array with alternating Unicode sequences and glyph names
+     * @throws IOException In case of an I/O error
+     */
+    static String[] parseText(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "US-ASCII"));
+        List glyphs = new java.util.ArrayList();
+        StringBuffer buf = new StringBuffer();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("#")) {
+                continue;
+            }
+            int semicolon = line.indexOf(';');
+            if (semicolon <= 0) {
+                continue;
+            }
+            buf.setLength(0);
+            for (int pos = semicolon + 1, len = line.length(); pos + 4 <= len; pos += 5) {
+                buf.append((char)Integer.parseInt(line.substring(pos, pos + 4), 16));
+            }
+            glyphs.add(buf.toString());
+            glyphs.add(line.substring(0, semicolon));
+        }
+        return (String[])glyphs.toArray(new String[glyphs.size()]);
+    }
+
+    /**
+     * Reads a glyph list in binary form.
+     * @param in the stream to read from
+     * @return an array with alternating Unicode sequences and glyph names
+     * @throws IOException In case of an I/O error
+     */
+    static String[] readBinary(InputStream in) throws IOException {
+        DataInputStream din = new DataInputStream(
+                new ByteArrayInputStream(IOUtils.toByteArray(in)));
+        if (din.readInt() != MAGIC) {
+            throw new IOException("Not a binary glyph list");
+        }
+        int count = din.readInt();
+        String[] glyphs = new String[count * 2];
+        char[] chars = new char[256];
+        for (int i = 0; i < glyphs.length; i += 2) {
+            glyphs[i + 1] = din.readUTF();
+            int len = din.readUnsignedByte();
+            for (int j = 0; j < len; j++) {
+                chars[j] = din.readChar();
+            }
+            glyphs[i] = new String(chars, 0, len);
+        }
+        return glyphs;
+    }
+
+    /**
+     * Writes a glyph list in binary form.
+     * @param glyphs an array with alternating Unicode sequences and glyph names
+     * @param out the stream to write to
+     * @throws IOException In case of an I/O error
+     */
+    static void writeBinary(String[] glyphs, OutputStream out) throws IOException {
+        DataOutputStream dout = new DataOutputStream(out);
+        dout.writeInt(MAGIC);
+        dout.writeInt(glyphs.length / 2);
+        for (int i = 0; i < glyphs.length; i += 2) {
+            dout.writeUTF(glyphs[i + 1]);
+            dout.writeByte(glyphs[i].length());
+            dout.writeChars(glyphs[i]);
+        }
+        dout.flush();
+    }
+
+    /**
+     * Converts glyph lists from text to binary form. Used by the build.
+     * @param args the target directory followed by the text glyph lists to convert
+     * @throws IOException In case of an I/O error
+     */
+    public static void main(String[] args) throws IOException {
+        File targetDir = new File(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            File source = new File(args[i]);
+            String name = source.getName();
+            File target = new File(targetDir,
+                    name.substring(0, name.lastIndexOf('.')) + BINARY_EXTENSION);
+            InputStream in = new java.io.FileInputStream(source);
+            String[] glyphs;
+            try {
+                glyphs = parseText(in);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+            OutputStream out = new java.io.BufferedOutputStream(
+                    new java.io.FileOutputStream(target));
+            try {
+                writeBinary(glyphs, out);
+            } finally {
+                IOUtils.closeQuietly(out);
+            }
+        }
+    }
+
+}
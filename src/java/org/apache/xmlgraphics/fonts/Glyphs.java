@@ -19,18 +19,11 @@
 
 package org.apache.xmlgraphics.fonts;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
 import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 
-import org.apache.commons.io.IOUtils;
-
 /**
  * This class provides a number of constants for glyph management.
  */
@@ -415,12 +408,27 @@ public final class Glyphs {
 
     private static final Map CHARNAMES_TO_UNICODE;
 
+    /** Char names to Unicode sequences for the Adobe Glyph List only (without dingbats) */
+    private static final Map AGL_CHARNAMES_TO_UNICODE;
+
+    /** Unicode sequences to char names (the first name listed wins) */
+    private static final Map UNICODE_TO_CHARNAMES;
+
+    /** Single BMP characters to char names, in pages of 256 characters */
+    private static final String[][] CHAR_TO_CHARNAME = new String[256][];
+
     static {
-        Map map = new java.util.TreeMap();
+        Map map = new java.util.HashMap();
         UNICODE_GLYPHS = loadGlyphList("glyphlist.txt", map);
+        AGL_CHARNAMES_TO_UNICODE = Collections.unmodifiableMap(new java.util.HashMap(map));
         DINGBATS_GLYPHS = loadGlyphList("zapfdingbats.txt", map);
         CHARNAMES_TO_UNICODE = Collections.unmodifiableMap(map);
 
+        map = new java.util.HashMap();
+        indexGlyphList(UNICODE_GLYPHS, map);
+        indexGlyphList(DINGBATS_GLYPHS, map);
+        UNICODE_TO_CHARNAMES = Collections.unmodifiableMap(map);
+
         map = new java.util.TreeMap();
         addAlternatives(map, new String[] {"Omega", "Omegagreek"});
         addAlternatives(map, new String[] {"Delta", "Deltagreek"});
@@ -585,58 +593,41 @@ public final class Glyphs {
     }
 
     private static String[] loadGlyphList(String filename, Map charNameToUnicodeMap) {
-        List lines = new java.util.ArrayList();
-        InputStream in = Glyphs.class.getResourceAsStream(filename);
-        if (in == null) {
-            throw new RuntimeException("Cannot load " + filename
-                    + ". The Glyphs class cannot properly be initialized!");
-        }
+        String[] arr;
         try {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(in, "US-ASCII"));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.startsWith("#")) {
-                    lines.add(line);
-                }
-            }
-        } catch (UnsupportedEncodingException uee) {
-            throw new RuntimeException("Incompatible JVM! US-ASCII encoding is not supported."
-                    + " The Glyphs class cannot properly be initialized!");
+            arr = GlyphList.load(filename);
         } catch (IOException ioe) {
             throw new RuntimeException("I/O error while loading " + filename
                     + ". The Glyphs class cannot properly be initialized!");
-        } finally {
-            IOUtils.closeQuietly(in);
         }
-        String[] arr = new String[lines.size() * 2];
-        int pos = 0;
-        StringBuffer buf = new StringBuffer();
-        for (int i = 0, c = lines.size(); i < c; i++) {
-            String line = (String)lines.get(i);
-            int semicolon = line.indexOf(';');
-            if (semicolon <= 0) {
+        if (arr == null) {
+            throw new RuntimeException("Cannot load " + filename
+                    + ". The Glyphs class cannot properly be initialized!");
+        }
+        for (int i = 0; i < arr.length; i += 2) {
+            assert !charNameToUnicodeMap.containsKey(arr[i + 1]);
+            charNameToUnicodeMap.put(arr[i + 1], arr[i]);
+        }
+        return arr;
+    }
+
+    private static void indexGlyphList(String[] glyphs, Map unicodeToCharNameMap) {
+        for (int i = 0; i < glyphs.length; i += 2) {
+            String unicode = glyphs[i];
+            if (unicodeToCharNameMap.containsKey(unicode)) {
                 continue;
             }
-            String charName = line.substring(0, semicolon);
-            String rawUnicode = line.substring(semicolon + 1);
-            buf.setLength(0);
-
-            StringTokenizer tokenizer = new StringTokenizer(rawUnicode, " ", false);
-            while (tokenizer.hasMoreTokens()) {
-                String token = tokenizer.nextToken();
-                assert token.length() == 4;
-                buf.append(hexToChar(token));
+            unicodeToCharNameMap.put(unicode, glyphs[i + 1]);
+            if (unicode.length() == 1) {
+                char ch = unicode.charAt(0);
+                String[] page = CHAR_TO_CHARNAME[ch >> 8];
+                if (page == null) {
+                    page = new String[256];
+                    CHAR_TO_CHARNAME[ch >> 8] = page;
+                }
+                page[ch & 0xFF] = glyphs[i + 1];
             }
-
-            String unicode = buf.toString();
-            arr[pos] = unicode;
-            pos++;
-            arr[pos] = charName;
-            pos++;
-            assert !charNameToUnicodeMap.containsKey(charName);
-            charNameToUnicodeMap.put(charName, unicode);
         }
-        return arr;
     }
 
     private static char hexToChar(String hex) {
@@ -651,7 +642,9 @@ public final class Glyphs {
      * @return the name of the glyph
      */
     public static String charToGlyphName(char ch) {
-        return stringToGlyph(Character.toString(ch));
+        String[] page = CHAR_TO_CHARNAME[ch >> 8];
+        String name = (page != null ? page[ch & 0xFF] : null);
+        return (name != null ? name : "");
     }
 
     /**
@@ -730,12 +723,8 @@ public final class Glyphs {
      *          first Unicode code point it finds.
      */
     public static String glyphToString(String name) {
-        for (int i = 0; i < UNICODE_GLYPHS.length; i += 2) {
-            if (UNICODE_GLYPHS[i + 1].equals(name)) {
-                return UNICODE_GLYPHS[i];
-            }
-        }
-        return "";
+        String unicode = (String)AGL_CHARNAMES_TO_UNICODE.get(name);
+        return (unicode != null ? unicode : "");
     }
 
     /**
@@ -746,17 +735,11 @@ public final class Glyphs {
      * @return the string representation (or an empty String if no match was found)
      */
     public static String stringToGlyph(String name) {
-        for (int i = 0; i < UNICODE_GLYPHS.length; i += 2) {
-            if (UNICODE_GLYPHS[i].equals(name)) {
-                return UNICODE_GLYPHS[i + 1];
-            }
-        }
-        for (int i = 0; i < DINGBATS_GLYPHS.length; i += 2) {
-            if (DINGBATS_GLYPHS[i].equals(name)) {
-                return DINGBATS_GLYPHS[i + 1];
-            }
+        if (name != null && name.length() == 1) {
+            return charToGlyphName(name.charAt(0));
         }
-        return "";
+        String charName = (String)UNICODE_TO_CHARNAMES.get(name);
+        return (charName != null ? charName : "");
     }
 
     /**
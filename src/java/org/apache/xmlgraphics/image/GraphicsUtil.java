@@ -879,54 +879,59 @@ public final class GraphicsUtil {
             // Check transfer type
             if(sm.getDataType() != DataBuffer.TYPE_BYTE) return false;
 
+            // Check all bands are in the first bank
+            int [] banks = ((ComponentSampleModel)sm).getBankIndices();
+            for (int i=0; i<banks.length; i++)
+                if (banks[i] != 0) return false;
+
             return true;
         }
 
-    protected static void divide_INT_PACK_Data(WritableRaster wr) {
-        // System.out.println("Divide Int");
-
-        SinglePixelPackedSampleModel sppsm;
-        sppsm = (SinglePixelPackedSampleModel)wr.getSampleModel();
-
-        final int width = wr.getWidth();
-
-        final int scanStride = sppsm.getScanlineStride();
-        DataBufferInt db = (DataBufferInt)wr.getDataBuffer();
-        final int base
-            = (db.getOffset() +
-               sppsm.getOffset(wr.getMinX()-wr.getSampleModelTranslateX(),
-                               wr.getMinY()-wr.getSampleModelTranslateY()));
-
-        // Access the pixel data array
-        final int[] pixels = db.getBankData()[0];
-        for (int y=0; y<wr.getHeight(); y++) {
-            int sp = base + y*scanStride;
-            final int end = sp + width;
-            while (sp < end) {
-                int pixel = pixels[sp];
-                int a = pixel>>>24;
-                if (a<=0) {
-                    pixels[sp] = 0x00FFFFFF;
-                } else if (a<255) {
-                    int aFP = (0x00FF0000/a);
-                    pixels[sp] =
-                        ((a << 24) |
-                         (((((pixel&0xFF0000)>>16)*aFP)&0xFF0000)    ) |
-                         (((((pixel&0x00FF00)>>8) *aFP)&0xFF0000)>>8 ) |
-                         (((((pixel&0x0000FF))    *aFP)&0xFF0000)>>16));
-                }
-                sp++;
+    /**
+     * Lookup tables to premultiply and unpremultiply 8 bit samples,
+     * indexed by (alpha<<8 | value). They replace a multiply and
+     * shift, or a division, per sample and give exactly the results of
+     * the arithmetic they replace.
+     */
+    private static final byte[] multLut   = new byte[256*256];
+    private static final byte[] divideLut = new byte[256*256];
+    static {
+        for (int a=0; a<256; a++) {
+            int aFP = (a == 0 ? 0 : 0x00FF0000/a);
+            for (int v=0; v<256; v++) {
+                int i = (a<<8)|v;
+                multLut[i] = (byte)((v*a)>>8);
+                if (a == 0)
+                    divideLut[i] = (byte)0xFF;
+                else if (a == 255)
+                    divideLut[i] = (byte)v;
+                else
+                    divideLut[i] = (byte)((v*aFP)>>>16);
             }
         }
+        for (int v=0; v<256; v++)
+            multLut[(255<<8)|v] = (byte)v;
+    }
+
+    protected static void divide_INT_PACK_Data(WritableRaster wr) {
+        applyLut_INT_PACK_Data(wr, divideLut);
     }
 
     protected static void mult_INT_PACK_Data(WritableRaster wr) {
-        // System.out.println("Multiply Int: " + wr);
+        applyLut_INT_PACK_Data(wr, multLut);
+    }
 
+    /**
+     * Applies one of the alpha lookup tables to the color components of
+     * an INT packed ARGB raster. Opaque pixels are left untouched.
+     */
+    private static void applyLut_INT_PACK_Data(WritableRaster wr,
+                                               final byte[] lut) {
         SinglePixelPackedSampleModel sppsm;
         sppsm = (SinglePixelPackedSampleModel)wr.getSampleModel();
 
         final int width = wr.getWidth();
+        final int height = wr.getHeight();
 
         final int scanStride = sppsm.getScanlineStride();
         DataBufferInt db = (DataBufferInt)wr.getDataBuffer();
@@ -934,104 +939,96 @@ public final class GraphicsUtil {
             = (db.getOffset() +
                sppsm.getOffset(wr.getMinX()-wr.getSampleModelTranslateX(),
                                wr.getMinY()-wr.getSampleModelTranslateY()));
+
         // Access the pixel data array
         final int[] pixels = db.getBankData()[0];
-        for (int y=0; y<wr.getHeight(); y++) {
+        for (int y=0; y<height; y++) {
             int sp = base + y*scanStride;
             final int end = sp + width;
             while (sp < end) {
                 int pixel = pixels[sp];
-                int a = pixel>>>24;
-                if ((a>=0) && (a<255)) {   // this does NOT include a == 255 (0xff) !
-                    pixels[sp] = ((a << 24) |
-                                  ((((pixel&0xFF0000)*a)>>8)&0xFF0000) |
-                                  ((((pixel&0x00FF00)*a)>>8)&0x00FF00) |
-                                  ((((pixel&0x0000FF)*a)>>8)&0x0000FF));
+                if ((pixel>>>24) != 0xFF) {
+                    int aRow = (pixel>>>16)&0xFF00;
+                    pixels[sp] =
+                        ((pixel&0xFF000000) |
+                         ((lut[aRow|((pixel>>16)&0xFF)]&0xFF)<<16) |
+                         ((lut[aRow|((pixel>> 8)&0xFF)]&0xFF)<< 8) |
+                         ((lut[aRow|((pixel    )&0xFF)]&0xFF)    ));
                 }
                 sp++;
             }
         }
     }
 
-
     protected static void divide_BYTE_COMP_Data(WritableRaster wr) {
-        // System.out.println("Multiply Int: " + wr);
-
-        ComponentSampleModel csm;
-        csm = (ComponentSampleModel)wr.getSampleModel();
-
-        final int width = wr.getWidth();
-
-        final int scanStride = csm.getScanlineStride();
-        final int pixStride  = csm.getPixelStride();
-        final int [] bandOff = csm.getBandOffsets();
-
-        DataBufferByte db = (DataBufferByte)wr.getDataBuffer();
-        final int base
-            = (db.getOffset() +
-               csm.getOffset(wr.getMinX()-wr.getSampleModelTranslateX(),
-                             wr.getMinY()-wr.getSampleModelTranslateY()));
-
-        int aOff = bandOff[bandOff.length-1];
-        int bands = bandOff.length-1;
-
-        // Access the pixel data array
-        final byte[] pixels = db.getBankData()[0];
-        for (int y=0; y<wr.getHeight(); y++) {
-            int sp = base + y*scanStride;
-            final int end = sp + width*pixStride;
-            while (sp < end) {
-              int a = pixels[sp+aOff]&0xFF;
-              if (a==0) {
-                for (int b = 0; b < bands; b++)
-                  pixels[sp+bandOff[b]] = (byte)0xFF;
-              } else if (a<255) {         // this does NOT include a == 255 (0xff) !
-                int aFP = (0x00FF0000/a);
-                for (int b = 0; b < bands; b++) {
-                  int i = sp+bandOff[b];
-                  pixels[i] = (byte)(((pixels[i]&0xFF)*aFP)>>>16);
-                }
-              }
-              sp+=pixStride;
-            }
-        }
+        applyLut_BYTE_COMP_Data(wr, divideLut);
     }
 
     protected static void mult_BYTE_COMP_Data(WritableRaster wr) {
-        // System.out.println("Multiply Int: " + wr);
+        applyLut_BYTE_COMP_Data(wr, multLut);
+    }
 
+    /**
+     * Applies one of the alpha lookup tables to the color components of
+     * a byte component raster whose last band is alpha. Opaque pixels
+     * are left untouched.
+     */
+    private static void applyLut_BYTE_COMP_Data(WritableRaster wr,
+                                                final byte[] lut) {
         ComponentSampleModel csm;
         csm = (ComponentSampleModel)wr.getSampleModel();
 
         final int width = wr.getWidth();
+        final int height = wr.getHeight();
 
         final int scanStride = csm.getScanlineStride();
         final int pixStride  = csm.getPixelStride();
         final int [] bandOff = csm.getBandOffsets();
 
         DataBufferByte db = (DataBufferByte)wr.getDataBuffer();
+        // getOffset() includes the offset of the first band
         final int base
-            = (db.getOffset() +
+            = (db.getOffset() - bandOff[0] +
                csm.getOffset(wr.getMinX()-wr.getSampleModelTranslateX(),
                              wr.getMinY()-wr.getSampleModelTranslateY()));
 
-
-        int aOff = bandOff[bandOff.length-1];
-        int bands = bandOff.length-1;
+        final int aOff = bandOff[bandOff.length-1];
+        final int bands = bandOff.length-1;
 
         // Access the pixel data array
         final byte[] pixels = db.getBankData()[0];
-        for (int y=0; y<wr.getHeight(); y++) {
-            int sp = base + y*scanStride;
-            final int end = sp + width*pixStride;
-            while (sp < end) {
-              int a = pixels[sp+aOff]&0xFF;
-              if (a!=0xFF)
-                for (int b = 0; b < bands; b++) {
-                  int i = sp+bandOff[b];
-                  pixels[i] = (byte)(((pixels[i]&0xFF)*a)>>8);
+        if (bands == 3) {
+            // Unrolled for RGBA, the common case
+            final int off0 = bandOff[0], off1 = bandOff[1], off2 = bandOff[2];
+            for (int y=0; y<height; y++) {
+                int sp = base + y*scanStride;
+                final int end = sp + width*pixStride;
+                while (sp < end) {
+                    int a = pixels[sp+aOff]&0xFF;
+                    if (a != 0xFF) {
+                        int aRow = a<<8;
+                        pixels[sp+off0] = lut[aRow|(pixels[sp+off0]&0xFF)];
+                        pixels[sp+off1] = lut[aRow|(pixels[sp+off1]&0xFF)];
+                        pixels[sp+off2] = lut[aRow|(pixels[sp+off2]&0xFF)];
+                    }
+                    sp+=pixStride;
+                }
+            }
+        } else {
+            for (int y=0; y<height; y++) {
+                int sp = base + y*scanStride;
+                final int end = sp + width*pixStride;
+                while (sp < end) {
+                    int a = pixels[sp+aOff]&0xFF;
+                    if (a != 0xFF) {
+                        int aRow = a<<8;
+                        for (int b = 0; b < bands; b++) {
+                            int i = sp+bandOff[b];
+                            pixels[i] = lut[aRow|(pixels[i]&0xFF)];
+                        }
+                    }
+                    sp+=pixStride;
                 }
-              sp+=pixStride;
             }
         }
     }
@@ -30,9 +30,11 @@ import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.util.ArrayList;
@@ -42,10 +44,14 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.zip.Deflater;
 
+import org.apache.commons.io.IOUtils;
+
 import org.apache.xmlgraphics.image.codec.util.ImageEncodeParam;
 import org.apache.xmlgraphics.image.codec.util.ImageEncoderImpl;
 import org.apache.xmlgraphics.image.codec.util.PropertyUtil;
 import org.apache.xmlgraphics.image.codec.util.SeekableOutputStream;
+import org.apache.xmlgraphics.util.io.SpillingOutputStream;
+import org.apache.xmlgraphics.util.io.SubInputStream;
 
 // CSOFF: ConstantName
 // CSOFF: MissingSwitchDefault
@@ -66,6 +72,9 @@ public class TIFFImageEncoder extends ImageEncoderImpl {
     private static final int TIFF_YCBCR_POSITIONING = 531;
     private static final int TIFF_REF_BLACK_WHITE   = 532;
 
+    // Size up to which uncompressed pages of multi-page files are held in memory
+    private static final int PAGE_BUFFER_THRESHOLD = 1024 * 1024;
+
 
 
     public TIFFImageEncoder(OutputStream output, ImageEncodeParam param) {
@@ -116,6 +125,12 @@ public class TIFFImageEncoder extends ImageEncoderImpl {
      * Encodes a RenderedImage as part of a multi-page file and writes the output to the
      * OutputStream associated with this ImageEncoder.
      * <p>
+     * The image is encoded immediately and the encoder doesn't keep a reference to it. The
+     * encoded page is held back until the next page is sent or finishMultiple() is called, so
+     * the link to the next page's IFD can be written. Uncompressed pages are held in memory
+     * or, if they are large, in a temporary file. Compressed pages are always written to a
+     * temporary file because their IFD can only be written after the image data. Memory usage therefore doesn't grow with the number of pages.
+     * <p>
      * When you sent all pages, make sure you call finishMultiple() in the end. Otherwise,
      * the generated file will be corrupted.
      * @param context the context object you receive as return value to a previous call to
@@ -137,10 +152,40 @@ public class TIFFImageEncoder extends ImageEncoderImpl {
             // Write the file header (8 bytes).
             writeFileHeader();
         } else {
-            //write image
-            c.ifdOffset = encode(c.nextImage, encodeParam, c.ifdOffset, false);
+            //write the previous page, now that we know it's not the last one
+            writePendingPage(c, true);
+        }
+
+        //Encode the page as if it were the last one and patch the link to the next IFD later
+        OutputStream out = this.output;
+        boolean success = false;
+        try {
+            if (encodeParam.getCompression() == CompressionValue.NONE) {
+                SpillingOutputStream page = new SpillingOutputStream(PAGE_BUFFER_THRESHOLD);
+                c.pendingPage = page;
+                this.output = page;
+                encode(img, encodeParam, c.ifdOffset, true);
+                page.close();
+            } else {
+                //Compressed pages need a seekable buffer as their IFD is written after the data
+                File pageFile = File.createTempFile("xmlgraphics-tiff-", ".tmp");
+                c.pendingFile = pageFile;
+                SeekableOutputStream page = new PageOutputStream(
+                        new RandomAccessFile(pageFile, "rw"), c.ifdOffset);
+                try {
+                    this.output = page;
+                    encode(img, encodeParam, c.ifdOffset, true);
+                } finally {
+                    page.close();
+                }
+            }
+            success = true;
+        } finally {
+            this.output = out;
+            if (!success) {
+                c.disposePendingPage();
+            }
         }
-        c.nextImage = img;
         return c;
     }
 
@@ -155,18 +200,112 @@ public class TIFFImageEncoder extends ImageEncoderImpl {
             throw new NullPointerException();
         }
         Context c = (Context)context;
-        // Get the encoding parameters.
-        TIFFEncodeParam encodeParam = (TIFFEncodeParam)param;
 
-        //write last image
-        c.ifdOffset = encode(c.nextImage, encodeParam, c.ifdOffset, true);
+        //write last page
+        writePendingPage(c, false);
     }
 
-    private class Context {
-        //TODO This approach causes always two images to be present at the same time.
-        //The encoder has to be changed a little to avoid that.
-        private RenderedImage nextImage;
+    /**
+     * Writes the encoded page held in the context to the output.
+     * @param c the context
+     * @param hasNext true if another page follows, in which case the page's IFD is linked to
+     *          the IFD of the next page (which follows the page's data)
+     * @throws IOException In case of an I/O error
+     */
+    private void writePendingPage(Context c, boolean hasNext) throws IOException {
+        long pageLength;
+        InputStream pageIn;
+        if (c.pendingFile != null) {
+            final File pageFile = c.pendingFile;
+            pageLength = pageFile.length();
+            try {
+                pageIn = new FileInputStream(pageFile) {
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            pageFile.delete();
+                        }
+                    }
+                };
+            } catch (IOException ioe) {
+                c.disposePendingPage();
+                throw ioe;
+            }
+        } else {
+            pageLength = c.pendingPage.getByteCount();
+            pageIn = c.pendingPage.toInputStream();
+        }
+        c.pendingPage = null;
+        c.pendingFile = null;
+        DataInputStream in = new DataInputStream(pageIn);
+        try {
+            if (hasNext) {
+                int nextIFDOffset = (int)(c.ifdOffset + pageLength);
+                boolean skipByte = false;
+                // IFD offsets must be on a word boundary.
+                if ((nextIFDOffset & 0x01) != 0) {
+                    nextIFDOffset++;
+                    skipByte = true;
+                }
+
+                // The page starts with its IFD: copy the entries and replace the
+                // (null) offset of the next IFD.
+                int numEntries = in.readUnsignedShort();
+                writeUnsignedShort(numEntries);
+                IOUtils.copyLarge(new SubInputStream(in, 12 * numEntries), output);
+                in.readInt();
+                writeLong(nextIFDOffset);
+                IOUtils.copyLarge(in, output);
+                if (skipByte) {
+                    output.write((byte)0);
+                }
+                c.ifdOffset = nextIFDOffset;
+            } else {
+                IOUtils.copyLarge(in, output);
+            }
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private static class Context {
+        private SpillingOutputStream pendingPage;
+        private File pendingFile;
         private int ifdOffset = 8; //Initial offset
+
+        private void disposePendingPage() {
+            if (pendingPage != null) {
+                pendingPage.dispose();
+                pendingPage = null;
+            }
+            if (pendingFile != null) {
+                pendingFile.delete();
+                pendingFile = null;
+            }
+        }
+    }
+
+    /**
+     * Seekable buffer for an encoded page. Positions are those in the final file, so the first
+     * byte of the buffer is at the offset of the page's IFD.
+     */
+    private static class PageOutputStream extends SeekableOutputStream {
+
+        private final long base;
+
+        public PageOutputStream(RandomAccessFile file, long base) {
+            super(file);
+            this.base = base;
+        }
+
+        public long getFilePointer() throws IOException {
+            return super.getFilePointer() + base;
+        }
+
+        public void seek(long pos) throws IOException {
+            super.seek(pos - base);
+        }
     }
 
     private int encode(RenderedImage im, TIFFEncodeParam encodeParam,
@@ -20,9 +20,15 @@
 package org.apache.xmlgraphics.image.loader;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import javax.imageio.stream.ImageInputStream;
 import javax.xml.transform.Source;
 
 import org.apache.commons.logging.Log;
@@ -56,6 +62,18 @@ public class ImageManager {
 
     private PipelineFactory pipelineFactory = new PipelineFactory(this);
 
+    /** Default maximum number of concurrent preloads per source (host or directory) */
+    public static final int DEFAULT_MAX_PRELOADS_PER_SOURCE = 4;
+
+    /** Default number of threads of the default preload executor */
+    private static final int DEFAULT_PRELOAD_THREADS = 8;
+
+    private static ExecutorService defaultPreloadExecutor;
+
+    private ExecutorService preloadExecutor;
+    private int maxPreloadsPerSource = DEFAULT_MAX_PRELOADS_PER_SOURCE;
+    private PreloadScheduler preloadScheduler = new PreloadScheduler(this);
+
     /**
      * Main constructor.
      * @param context the session-independent context information
@@ -126,6 +144,109 @@ public class ImageManager {
         }
     }
 
+    /**
+     * Returns an ImageInfo object for a given URI like
+     * {@link #getImageInfo(String, ImageSessionContext)} but preloads the image asynchronously
+     * on the preload executor (see {@link #setPreloadExecutor(ExecutorService)}).
+     * <p>
+     * The preload doesn't use the session's source cache, so the session can still be used by
+     * the calling thread: the source is created with
+     * {@link ImageSessionContext#newSource(String)} and closed after preloading instead of
+     * being returned to the session. newSource() is called concurrently, so it has to be
+     * thread-safe (which is the case for the implementations in this package).
+     * @param uri the URI of the image
+     * @param session the session context through which to resolve the URI if the image is not in
+     *                the cache
+     * @return the future for the ImageInfo object
+     */
+    public Future<ImageInfo> getImageInfoAsync(String uri, ImageSessionContext session) {
+        return preloadScheduler.schedule(uri,
+                new PreloadScheduler.DetachedSessionContext(session),
+                getPreloadExecutor(), getMaxPreloadsPerSource());
+    }
+
+    /**
+     * Returns ImageInfo objects for a collection of URIs, preloading the images concurrently
+     * (see {@link #getImageInfoAsync(String, ImageSessionContext)}). This is useful when all
+     * images of a document are known upfront. No more than
+     * {@link #getMaxPreloadsPerSource()} images from the same host or directory are preloaded
+     * at the same time.
+     * @param uris the URIs of the images
+     * @param session the session context through which to resolve the URIs if the images are
+     *                not in the cache
+     * @return a map with the futures for the ImageInfo objects by URI (in the order of the
+     *          collection, duplicates are only preloaded once)
+     */
+    public Map<String, Future<ImageInfo>> getImageInfos(Collection<String> uris,
+            ImageSessionContext session) {
+        ImageSessionContext detachedSession
+                = new PreloadScheduler.DetachedSessionContext(session);
+        ExecutorService executor = getPreloadExecutor();
+        int maxPerSource = getMaxPreloadsPerSource();
+        Map<String, Future<ImageInfo>> futures
+                = new java.util.LinkedHashMap<String, Future<ImageInfo>>();
+        for (String uri : uris) {
+            if (!futures.containsKey(uri)) {
+                futures.put(uri, preloadScheduler.schedule(uri, detachedSession,
+                        executor, maxPerSource));
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * Sets the executor used for asynchronous preloading.
+     * @param executor the executor or null to use the default executor
+     * @see #getDefaultPreloadExecutor()
+     */
+    public void setPreloadExecutor(ExecutorService executor) {
+        this.preloadExecutor = executor;
+    }
+
+    /**
+     * Returns the executor used for asynchronous preloading.
+     * @return the executor
+     */
+    public ExecutorService getPreloadExecutor() {
+        return (this.preloadExecutor != null) ? this.preloadExecutor : getDefaultPreloadExecutor();
+    }
+
+    /**
+     * Sets the maximum number of images from the same source (host or directory) which are
+     * preloaded concurrently. Further preloads wait without occupying an executor thread.
+     * @param max the maximum number of concurrent preloads per source
+     */
+    public void setMaxPreloadsPerSource(int max) {
+        this.maxPreloadsPerSource = max;
+    }
+
+    /** @return the maximum number of concurrent preloads per source (host or directory) */
+    public int getMaxPreloadsPerSource() {
+        return this.maxPreloadsPerSource;
+    }
+
+    /**
+     * Returns a shared executor with daemon threads for asynchronous preloading. Preloading is
+     * mostly I/O-bound, so the executor has more threads than there are processors.
+     * @return the default preload executor
+     */
+    public static synchronized ExecutorService getDefaultPreloadExecutor() {
+        if (defaultPreloadExecutor == null) {
+            defaultPreloadExecutor = Executors.newFixedThreadPool(
+                    Math.max(DEFAULT_PRELOAD_THREADS, Runtime.getRuntime().availableProcessors()),
+                    new ThreadFactory() {
+                        private int count;
+
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "ImageManager-preload-" + (++count));
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+        }
+        return defaultPreloadExecutor;
+    }
+
     /**
      * Preloads an image, i.e. the format of the image is identified and some basic information
      * (MIME type, intrinsic size and possibly other values) are loaded and returned as an
@@ -170,7 +291,26 @@ public class ImageManager {
      */
     public ImageInfo preloadImage(String uri, Source src)
             throws ImageException, IOException {
-        Iterator iter = registry.getPreloaderIterator();
+        Iterator iter;
+        int signatureLength = registry.getSignatureLength();
+        if (signatureLength > 0 && ImageUtil.hasImageInputStream(src)) {
+            //Sniff the header once so preloaders for other formats can be skipped
+            ImageInputStream in = ImageUtil.needImageInputStream(src);
+            byte[] header = new byte[signatureLength];
+            long startPos = in.getStreamPosition();
+            int length = 0;
+            while (length < signatureLength) {
+                int count = in.read(header, length, signatureLength - length);
+                if (count < 0) {
+                    break;
+                }
+                length += count;
+            }
+            in.seek(startPos);
+            iter = registry.getPreloaderIterator(header, length);
+        } else {
+            iter = registry.getPreloaderIterator();
+        }
         while (iter.hasNext()) {
             ImagePreloader preloader = (ImagePreloader) iter.next();
             ImageInfo info = preloader.preloadImage(uri, src, imageContext);
@@ -82,5 +82,26 @@ public interface ImageProcessingHints {
      */
     String TRANSPARENCY_INTENT_IGNORE = "ignore";
 
+    /**
+     * Used to tell a bitmap producer painting vector graphics to rasterize the image in
+     * horizontal bands of the given height (in pixels). The bands are painted one after the
+     * other unless an executor is passed in through {@link #BITMAP_BAND_EXECUTOR}.
+     */
+    Object BITMAP_BAND_HEIGHT = "BITMAP_BAND_HEIGHT"; //Value: Number (pixel rows)
+
+    /**
+     * Used with BITMAP_BAND_HEIGHT to have the bands painted concurrently using the given
+     * executor. Only pass an executor if the image's painter supports concurrent calls
+     * to its paint() method.
+     */
+    Object BITMAP_BAND_EXECUTOR = "BITMAP_BAND_EXECUTOR"; //Value: ExecutorService
+
+    /**
+     * Used to pass in a {@link org.apache.xmlgraphics.image.loader.cache.RasterCache}. A bitmap
+     * producer painting vector graphics can use it to reuse bitmaps which have already been
+     * produced for the same image, resolution and bitmap type.
+     */
+    Object RASTER_CACHE = "RASTER_CACHE"; //Value: RasterCache instance
+
 
 }
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.image.loader;
+
+import java.io.FileNotFoundException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.xml.transform.Source;
+
+import org.apache.xmlgraphics.io.XmlSourceUtil;
+
+/**
+ * Schedules asynchronous preloading for {@link ImageManager}. Preloads are run on an executor,
+ * but only a limited number of preloads per source (host or directory) is handed to the
+ * executor at a time. Further preloads for the same source wait in a queue without occupying
+ * an executor thread. Concurrent requests for the same image are coalesced by the image
+ * cache.
+ */
+class PreloadScheduler {
+
+    private final ImageManager manager;
+    private final Map<String, SourceGroup> groups = new java.util.HashMap<String, SourceGroup>();
+
+    /**
+     * Creates a new scheduler.
+     * @param manager the image manager to preload images with
+     */
+    public PreloadScheduler(ImageManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Schedules the preloading of an image.
+     * @param uri the URI of the image
+     * @param session the (synchronized) session context
+     * @param executor the executor to run the preload on
+     * @param maxPerSource the maximum number of concurrent preloads per source
+     * @return the future for the ImageInfo object
+     */
+    public Future<ImageInfo> schedule(final String uri, final ImageSessionContext session,
+            ExecutorService executor, int maxPerSource) {
+        String key = getSourceKey(uri);
+        PreloadTask task = new PreloadTask(key, executor, new Callable<ImageInfo>() {
+            public ImageInfo call() throws Exception {
+                return manager.getImageInfo(uri, session);
+            }
+        });
+        boolean run;
+        synchronized (this) {
+            SourceGroup group = groups.get(key);
+            if (group == null) {
+                group = new SourceGroup();
+                groups.put(key, group);
+            }
+            run = group.running < Math.max(1, maxPerSource);
+            if (run) {
+                group.running++;
+                task.scheduled = true;
+            } else {
+                group.pending.add(task);
+            }
+        }
+        if (run) {
+            task.execute();
+        }
+        return task;
+    }
+
+    private void finished(PreloadTask task) {
+        PreloadTask next = null;
+        synchronized (this) {
+            SourceGroup group = groups.get(task.key);
+            if (!task.scheduled) {
+                //Cancelled while waiting
+                group.pending.remove(task);
+            } else {
+                next = group.pending.poll();
+                if (next != null) {
+                    next.scheduled = true;
+                } else {
+                    group.running--;
+                }
+            }
+            if (group.running == 0 && group.pending.isEmpty()) {
+                groups.remove(task.key);
+            }
+        }
+        if (next != null) {
+            next.execute();
+        }
+    }
+
+    /**
+     * Returns the key of the source of an image: the host for URIs with an authority and the
+     * directory otherwise.
+     * @param uri the URI of the image
+     * @return the source key
+     */
+    static String getSourceKey(String uri) {
+        try {
+            URI u = new URI(uri);
+            if (u.getAuthority() != null) {
+                return u.getScheme() + "://" + u.getAuthority();
+            }
+        } catch (URISyntaxException e) {
+            //Use the directory
+        }
+        int pos = Math.max(uri.lastIndexOf('/'), uri.lastIndexOf('\\'));
+        return (pos >= 0) ? uri.substring(0, pos) : "";
+    }
+
+    /** The state of the preloads for a single source. */
+    private static class SourceGroup {
+        private int running;
+        private LinkedList<PreloadTask> pending = new LinkedList<PreloadTask>();
+    }
+
+    /** A preload which releases its slot with the source when done. */
+    private class PreloadTask extends FutureTask<ImageInfo> {
+
+        private final String key;
+        private final ExecutorService executor;
+        private boolean scheduled;
+
+        public PreloadTask(String key, ExecutorService executor, Callable<ImageInfo> callable) {
+            super(callable);
+            this.key = key;
+            this.executor = executor;
+        }
+
+        public void execute() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException ree) {
+                setException(ree);
+            }
+        }
+
+        protected void done() {
+            finished(this);
+        }
+    }
+
+    /**
+     * Wraps a session context for use by concurrent preloads without touching the session's
+     * source cache, which the session's own thread keeps using: sources are always created
+     * with {@link ImageSessionContext#newSource(String)} (which is called concurrently) and
+     * closed instead of being returned to the session.
+     */
+    static class DetachedSessionContext implements ImageSessionContext {
+
+        private final ImageSessionContext session;
+
+        public DetachedSessionContext(ImageSessionContext session) {
+            this.session = session;
+        }
+
+        /** {@inheritDoc} */
+        public ImageContext getParentContext() {
+            return session.getParentContext();
+        }
+
+        /** {@inheritDoc} */
+        public float getTargetResolution() {
+            return session.getTargetResolution();
+        }
+
+        /** {@inheritDoc} */
+        public Source newSource(String uri) {
+            return session.newSource(uri);
+        }
+
+        /** {@inheritDoc} */
+        public Source getSource(String uri) {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        public Source needSource(String uri) throws FileNotFoundException {
+            Source src = newSource(uri);
+            if (src == null) {
+                throw new FileNotFoundException("Image not found: " + uri);
+            }
+            return src;
+        }
+
+        /** {@inheritDoc} */
+        public void returnSource(String uri, Source src) {
+            XmlSourceUtil.closeQuietly(src);
+        }
+    }
+
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.image.loader.cache;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache for bitmaps produced by rasterizing vector images (for example by
+ * {@link org.apache.xmlgraphics.image.loader.impl.ImageConverterG2D2Bitmap}). The bitmaps are
+ * keyed by the original URI of the image, the target resolution and the type of bitmap. The
+ * cache is bounded by the number of bytes held by the bitmaps and evicts the least recently
+ * used bitmaps first.
+ * <p>
+ * A cache instance is usually passed to the converter using the
+ * {@link org.apache.xmlgraphics.image.loader.ImageProcessingHints#RASTER_CACHE} hint, so its
+ * lifetime (for example, one rendering run) is controlled by the caller. Bitmaps obtained
+ * from the cache are shared and must not be modified.
+ * <p>
+ * This class is thread-safe.
+ */
+public class RasterCache {
+
+    /** Default maximum size of the cache in bytes (64 MB) */
+    public static final long DEFAULT_MAX_MEMORY = 64L * 1024 * 1024;
+
+    private final Map bitmaps = new LinkedHashMap(16, 0.75f, true);
+    private long maxMemory;
+    private long memoryUsage;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a new raster cache with the default maximum size.
+     */
+    public RasterCache() {
+        this(DEFAULT_MAX_MEMORY);
+    }
+
+    /**
+     * Creates a new raster cache.
+     * @param maxMemory the maximum number of bytes held by the cached bitmaps
+     */
+    public RasterCache(long maxMemory) {
+        this.maxMemory = maxMemory;
+    }
+
+    /**
+     * Returns a cached bitmap.
+     * @param uri the original URI of the image
+     * @param resolution the target resolution (in dpi)
+     * @param bitsPerPixel the number of bits per pixel of the bitmap
+     * @param withAlpha true if the bitmap has an alpha channel
+     * @return the bitmap or null if it is not in the cache
+     */
+    public synchronized BufferedImage getBitmap(String uri, int resolution,
+            int bitsPerPixel, boolean withAlpha) {
+        Entry entry = (Entry)bitmaps.get(new Key(uri, resolution, bitsPerPixel, withAlpha));
+        if (entry != null) {
+            hits++;
+            return entry.bitmap;
+        } else {
+            misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Adds a bitmap to the cache. Bitmaps larger than the cache are not added. Least recently
+     * used bitmaps are evicted as necessary.
+     * @param uri the original URI of the image
+     * @param resolution the target resolution (in dpi)
+     * @param bitsPerPixel the number of bits per pixel of the bitmap
+     * @param withAlpha true if the bitmap has an alpha channel
+     * @param bitmap the bitmap
+     */
+    public synchronized void putBitmap(String uri, int resolution,
+            int bitsPerPixel, boolean withAlpha, BufferedImage bitmap) {
+        long size = getSize(bitmap);
+        if (size > maxMemory) {
+            return;
+        }
+        Entry old = (Entry)bitmaps.put(new Key(uri, resolution, bitsPerPixel, withAlpha),
+                new Entry(bitmap, size));
+        if (old != null) {
+            memoryUsage -= old.size;
+        }
+        memoryUsage += size;
+        evict(maxMemory);
+    }
+
+    /**
+     * Removes all bitmaps from the cache.
+     */
+    public synchronized void clear() {
+        bitmaps.clear();
+        memoryUsage = 0;
+    }
+
+    private void evict(long limit) {
+        Iterator iter = bitmaps.values().iterator();
+        while (memoryUsage > limit && iter.hasNext()) {
+            Entry entry = (Entry)iter.next();
+            memoryUsage -= entry.size;
+            iter.remove();
+        }
+    }
+
+    /**
+     * Sets the maximum number of bytes held by the cached bitmaps, evicting bitmaps if
+     * necessary.
+     * @param maxMemory the maximum size of the cache in bytes
+     */
+    public synchronized void setMaxMemory(long maxMemory) {
+        this.maxMemory = maxMemory;
+        evict(maxMemory);
+    }
+
+    /** @return the maximum number of bytes held by the cached bitmaps */
+    public synchronized long getMaxMemory() {
+        return this.maxMemory;
+    }
+
+    /** @return the number of bytes currently held by the cached bitmaps */
+    public synchronized long getMemoryUsage() {
+        return this.memoryUsage;
+    }
+
+    /** @return the number of bitmaps in the cache */
+    public synchronized int getBitmapCount() {
+        return bitmaps.size();
+    }
+
+    /** @return the number of successful lookups */
+    public synchronized long getHitCount() {
+        return this.hits;
+    }
+
+    /** @return the number of unsuccessful lookups */
+    public synchronized long getMissCount() {
+        return this.misses;
+    }
+
+    /** {@inheritDoc} */
+    public synchronized String toString() {
+        return "RasterCache[bitmaps=" + bitmaps.size() + ", memory=" + memoryUsage
+                + "/" + maxMemory + ", hits=" + hits + ", misses=" + misses + "]";
+    }
+
+    private static long getSize(BufferedImage bitmap) {
+        DataBuffer db = bitmap.getRaster().getDataBuffer();
+        long bits = (long)DataBuffer.getDataTypeSize(db.getDataType())
+                * db.getSize() * db.getNumBanks();
+        return (bits + 7) / 8;
+    }
+
+    private static final class Key {
+
+        private final String uri;
+        private final int resolution;
+        private final int bitsPerPixel;
+        private final boolean withAlpha;
+
+        public Key(String uri, int resolution, int bitsPerPixel, boolean withAlpha) {
+            if (uri == null) {
+                throw new NullPointerException("URI must not be null");
+            }
+            this.uri = uri;
+            this.resolution = resolution;
+            this.bitsPerPixel = bitsPerPixel;
+            this.withAlpha = withAlpha;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)obj;
+            return uri.equals(other.uri) && resolution == other.resolution
+                    && bitsPerPixel == other.bitsPerPixel && withAlpha == other.withAlpha;
+        }
+
+        public int hashCode() {
+            int result = uri.hashCode();
+            result = 31 * result + resolution;
+            result = 31 * result + bitsPerPixel;
+            return 31 * result + (withAlpha ? 1 : 0);
+        }
+    }
+
+    private static final class Entry {
+
+        private final BufferedImage bitmap;
+        private final long size;
+
+        public Entry(BufferedImage bitmap, long size) {
+            this.bitmap = bitmap;
+            this.size = size;
+        }
+    }
+
+}
@@ -19,9 +19,11 @@
 
 package org.apache.xmlgraphics.image.loader.impl;
 
+import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Transparency;
 import java.awt.color.ColorSpace;
@@ -33,12 +35,16 @@ import java.awt.image.DataBuffer;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.xmlgraphics.image.GraphicsConstants;
 import org.apache.xmlgraphics.image.loader.Image;
 import org.apache.xmlgraphics.image.loader.ImageFlavor;
 import org.apache.xmlgraphics.image.loader.ImageProcessingHints;
 import org.apache.xmlgraphics.image.loader.ImageSize;
+import org.apache.xmlgraphics.image.loader.cache.RasterCache;
+import org.apache.xmlgraphics.image.rendered.AbstractRed;
+import org.apache.xmlgraphics.image.rendered.CachableRed;
 import org.apache.xmlgraphics.util.UnitConv;
 
 /**
@@ -71,7 +77,32 @@ public class ImageConverterG2D2Bitmap extends AbstractImageConverter {
             resolution = res.intValue();
         }
 
-        BufferedImage bi = paintToBufferedImage(g2dImage, bitsPerPixel, withAlpha, resolution);
+        if (bitsPerPixel == 1) {
+            withAlpha = false;
+        }
+        String uri = src.getInfo().getOriginalURI();
+        RasterCache cache = (RasterCache)hints.get(ImageProcessingHints.RASTER_CACHE);
+        if (uri == null) {
+            cache = null;
+        }
+        BufferedImage bi = null;
+        if (cache != null) {
+            bi = cache.getBitmap(uri, resolution, bitsPerPixel, withAlpha);
+        }
+        if (bi == null) {
+            Number bandHeight = (Number)hints.get(ImageProcessingHints.BITMAP_BAND_HEIGHT);
+            if (bandHeight != null) {
+                ExecutorService executor
+                        = (ExecutorService)hints.get(ImageProcessingHints.BITMAP_BAND_EXECUTOR);
+                bi = paintToBufferedImage(g2dImage, bitsPerPixel, withAlpha, resolution,
+                        bandHeight.intValue(), executor);
+            } else {
+                bi = paintToBufferedImage(g2dImage, bitsPerPixel, withAlpha, resolution);
+            }
+            if (cache != null) {
+                cache.putBitmap(uri, resolution, bitsPerPixel, withAlpha, bi);
+            }
+        }
 
         ImageBuffered bufImage = new ImageBuffered(src.getInfo(), bi, null);
         return bufImage;
@@ -88,49 +119,146 @@ public class ImageConverterG2D2Bitmap extends AbstractImageConverter {
     protected BufferedImage paintToBufferedImage(ImageGraphics2D g2dImage,
             int bitsPerPixel, boolean withAlpha, int resolution) {
         ImageSize size = g2dImage.getSize();
+        int bmw = (int)Math.ceil(UnitConv.mpt2px(size.getWidthMpt(), resolution));
+        int bmh = (int)Math.ceil(UnitConv.mpt2px(size.getHeightMpt(), resolution));
+        BufferedImage bi = createBufferedImage(bmw, bmh, bitsPerPixel, withAlpha);
+        paint(g2dImage, bi, 0, 0, bmw, bmh, bitsPerPixel == 1 ? false : withAlpha);
+        return bi;
+    }
+
+    /**
+     * Paints a Graphics2D image on a BufferedImage in horizontal bands and returns this
+     * bitmap. Each band is painted with its own Graphics2D instance which is clipped to the
+     * band. The bands are painted one after the other on the calling thread.
+     * @param g2dImage the Graphics2D image
+     * @param bitsPerPixel the desired number of bits per pixel (supported: 1, 8, 24)
+     * @param withAlpha true if the generated image should have an alpha channel
+     * @param resolution the requested bitmap resolution
+     * @param bandHeight the height of the bands in pixels
+     * @return the newly created BufferedImage
+     */
+    protected BufferedImage paintToBufferedImage(ImageGraphics2D g2dImage,
+            int bitsPerPixel, boolean withAlpha, int resolution, int bandHeight) {
+        return paintToBufferedImage(g2dImage, bitsPerPixel, withAlpha, resolution,
+                bandHeight, null);
+    }
+
+    /**
+     * Paints a Graphics2D image on a BufferedImage in horizontal bands and returns this
+     * bitmap. Each band is painted with its own Graphics2D instance which is clipped to the
+     * band. If an executor is given, the bands are painted concurrently using this executor
+     * and the painter of the image must therefore support concurrent calls to its paint()
+     * method. Otherwise, the bands are painted one after the other on the calling thread.
+     * @param g2dImage the Graphics2D image
+     * @param bitsPerPixel the desired number of bits per pixel (supported: 1, 8, 24)
+     * @param withAlpha true if the generated image should have an alpha channel
+     * @param resolution the requested bitmap resolution
+     * @param bandHeight the height of the bands in pixels
+     * @param executor the executor used to paint the bands concurrently (may be null)
+     * @return the newly created BufferedImage
+     */
+    protected BufferedImage paintToBufferedImage(ImageGraphics2D g2dImage,
+            int bitsPerPixel, boolean withAlpha, int resolution, int bandHeight,
+            ExecutorService executor) {
+        BandRed red = createBandRed(g2dImage, bitsPerPixel, withAlpha, resolution, bandHeight);
+        ColorModel cm = red.getColorModel();
+        WritableRaster wr = cm.createCompatibleWritableRaster(red.getWidth(), red.getHeight());
+        if (executor != null) {
+            red.setExecutor(executor);
+            red.copyDataParallel(wr);
+        } else {
+            int tileHeight = red.getTileHeight();
+            for (int y = 0; y < red.getHeight(); y += tileHeight) {
+                int h = Math.min(tileHeight, red.getHeight() - y);
+                red.copyData(wr.createWritableChild(0, y, red.getWidth(), h, 0, y, null));
+            }
+        }
+        return new BufferedImage(cm, wr, cm.isAlphaPremultiplied(), null);
+    }
 
-        RenderingHints additionalHints = null;
+    /**
+     * Creates a tiled RenderedImage for a Graphics2D image. The image consists of horizontal
+     * bands (tiles spanning the full width of the image) which are only painted when they
+     * are requested, each with its own Graphics2D instance clipped to the band. This allows
+     * consumers to process the bitmap band by band (through
+     * {@link java.awt.image.RenderedImage#getTile(int, int)}) without ever allocating the
+     * full bitmap. If bands are requested concurrently, the painter of the image must
+     * support concurrent calls to its paint() method.
+     * @param g2dImage the Graphics2D image
+     * @param bitsPerPixel the desired number of bits per pixel (supported: 1, 8, 24)
+     * @param withAlpha true if the generated image should have an alpha channel
+     * @param resolution the requested bitmap resolution
+     * @param bandHeight the height of the bands in pixels
+     * @return the new RenderedImage (a {@link CachableRed})
+     */
+    public CachableRed paintToRenderedImage(ImageGraphics2D g2dImage,
+            int bitsPerPixel, boolean withAlpha, int resolution, int bandHeight) {
+        return createBandRed(g2dImage, bitsPerPixel, withAlpha, resolution, bandHeight);
+    }
+
+    private BandRed createBandRed(ImageGraphics2D g2dImage,
+            int bitsPerPixel, boolean withAlpha, int resolution, int bandHeight) {
+        ImageSize size = g2dImage.getSize();
         int bmw = (int)Math.ceil(UnitConv.mpt2px(size.getWidthMpt(), resolution));
         int bmh = (int)Math.ceil(UnitConv.mpt2px(size.getHeightMpt(), resolution));
-        BufferedImage bi;
+        if (bandHeight <= 0) {
+            throw new IllegalArgumentException("Band height must be positive: " + bandHeight);
+        }
+        bandHeight = Math.min(bandHeight, bmh);
+        ColorModel cm = createBufferedImage(1, 1, bitsPerPixel, withAlpha).getColorModel();
+        return new BandRed(g2dImage, cm, bmw, bmh, bandHeight,
+                bitsPerPixel == 1 ? false : withAlpha);
+    }
+
+    private static BufferedImage createBufferedImage(int width, int height,
+            int bitsPerPixel, boolean withAlpha) {
         switch (bitsPerPixel) {
         case 1:
-            bi = new BufferedImage(bmw, bmh, BufferedImage.TYPE_BYTE_BINARY);
-            withAlpha = false;
             //withAlpha is ignored in this case
-            additionalHints = new RenderingHints(null);
-            //The following usually has no effect but some class libraries might support it
-            additionalHints.put(RenderingHints.KEY_DITHERING,
-                    RenderingHints.VALUE_DITHER_ENABLE);
-            break;
+            return new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
         case 8:
             if (withAlpha) {
-                bi = createGrayBufferedImageWithAlpha(bmw, bmh);
+                return createGrayBufferedImageWithAlpha(width, height);
             } else {
-                bi = new BufferedImage(bmw, bmh, BufferedImage.TYPE_BYTE_GRAY);
+                return new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
             }
-            break;
         default:
             if (withAlpha) {
-                bi = new BufferedImage(bmw, bmh, BufferedImage.TYPE_INT_ARGB);
+                return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
             } else {
-                bi = new BufferedImage(bmw, bmh, BufferedImage.TYPE_INT_RGB);
+                return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
             }
         }
+    }
 
+    /**
+     * Paints a Graphics2D image (or a part of it) on a BufferedImage.
+     * @param g2dImage the Graphics2D image
+     * @param bi the target bitmap
+     * @param x the x coordinate of the bitmap's origin in the full bitmap
+     * @param y the y coordinate of the bitmap's origin in the full bitmap
+     * @param bmw the width of the full bitmap
+     * @param bmh the height of the full bitmap
+     * @param withAlpha true if the bitmap has an alpha channel
+     */
+    private void paint(ImageGraphics2D g2dImage, BufferedImage bi,
+            int x, int y, int bmw, int bmh, boolean withAlpha) {
+        ImageSize size = g2dImage.getSize();
         Graphics2D g2d = bi.createGraphics();
         try {
             g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS,
                     RenderingHints.VALUE_FRACTIONALMETRICS_ON);
             setRenderingHintsForBufferedImage(g2d);
-            if (additionalHints != null) {
-                g2d.addRenderingHints(additionalHints);
+            if (bi.getType() == BufferedImage.TYPE_BYTE_BINARY) {
+                //The following usually has no effect but some class libraries might support it
+                g2d.setRenderingHint(RenderingHints.KEY_DITHERING,
+                        RenderingHints.VALUE_DITHER_ENABLE);
             }
 
             g2d.setBackground(Color.white);
             g2d.setColor(Color.black);
             if (!withAlpha) {
-                g2d.clearRect(0, 0, bmw, bmh);
+                g2d.clearRect(0, 0, bi.getWidth(), bi.getHeight());
             }
             /* debug code
             int off = 2;
@@ -139,6 +267,11 @@ public class ImageConverterG2D2Bitmap extends AbstractImageConverter {
             g2d.drawLine(0, off, bmw, off);
             g2d.drawLine(0, bmh - off, bmw, bmh - off);
             */
+            if (x != 0 || y != 0 || bi.getWidth() != bmw || bi.getHeight() != bmh) {
+                //Painting a band: let the painter know which part of the image is needed
+                g2d.translate(-x, -y);
+                g2d.clip(new Rectangle(x, y, bi.getWidth(), bi.getHeight()));
+            }
             double sx = (double)bmw / size.getWidthMpt();
             double sy = (double)bmh / size.getHeightMpt();
             g2d.scale(sx, sy);
@@ -150,7 +283,6 @@ public class ImageConverterG2D2Bitmap extends AbstractImageConverter {
         } finally {
             g2d.dispose();
         }
-        return bi;
     }
 
     private static BufferedImage createGrayBufferedImageWithAlpha(int width, int height) {
@@ -197,4 +329,47 @@ public class ImageConverterG2D2Bitmap extends AbstractImageConverter {
         return ImageFlavor.BUFFERED_IMAGE;
     }
 
+    /**
+     * A RenderedImage whose tiles are horizontal bands of a Graphics2D image which are
+     * painted on request.
+     */
+    private class BandRed extends AbstractRed {
+
+        private final ImageGraphics2D g2dImage;
+        private final boolean withAlpha;
+
+        public BandRed(ImageGraphics2D g2dImage, ColorModel cm,
+                int width, int height, int bandHeight, boolean withAlpha) {
+            super();
+            init((CachableRed)null, new Rectangle(0, 0, width, height), cm,
+                    cm.createCompatibleSampleModel(width, bandHeight), 0, 0, null);
+            this.g2dImage = g2dImage;
+            this.withAlpha = withAlpha;
+        }
+
+        /** {@inheritDoc} */
+        public WritableRaster copyData(WritableRaster wr) {
+            Rectangle r = wr.getBounds().intersection(getBounds());
+            if (r.isEmpty()) {
+                return wr;
+            }
+            WritableRaster band = wr.createWritableChild(r.x, r.y, r.width, r.height,
+                    0, 0, null);
+            BufferedImage bi = new BufferedImage(cm, band, cm.isAlphaPremultiplied(), null);
+            if (withAlpha) {
+                //Reset the area as the raster may contain data
+                Graphics2D g2d = bi.createGraphics();
+                try {
+                    g2d.setComposite(AlphaComposite.Clear);
+                    g2d.fillRect(0, 0, r.width, r.height);
+                } finally {
+                    g2d.dispose();
+                }
+            }
+            paint(g2dImage, bi, r.x, r.y, getWidth(), getHeight(), withAlpha);
+            return wr;
+        }
+
+    }
+
 }
@@ -22,8 +22,6 @@ package org.apache.xmlgraphics.image.loader.impl;
 import java.io.IOException;
 import java.util.Map;
 
-import org.apache.commons.io.output.ByteArrayOutputStream;
-
 import org.apache.xmlgraphics.image.loader.Image;
 import org.apache.xmlgraphics.image.loader.ImageException;
 import org.apache.xmlgraphics.image.loader.ImageFlavor;
@@ -31,12 +29,38 @@ import org.apache.xmlgraphics.image.writer.ImageWriter;
 import org.apache.xmlgraphics.image.writer.ImageWriterParams;
 import org.apache.xmlgraphics.image.writer.ImageWriterRegistry;
 import org.apache.xmlgraphics.util.MimeConstants;
+import org.apache.xmlgraphics.util.io.SpillingOutputStream;
 
 /**
  * This ImageConverter converts Rendered to PNG images.
+ * <p>
+ * The encoded PNG is held in memory up to a configurable size and is moved to a temporary
+ * file beyond that, so large images don't need to be held in memory in encoded form.
  */
 public class ImageConverterRendered2PNG extends AbstractImageConverter {
 
+    /** Default size (in bytes) up to which encoded images are held in memory (1 MB) */
+    public static final int DEFAULT_SPILL_THRESHOLD = 1024 * 1024;
+
+    private int spillThreshold = DEFAULT_SPILL_THRESHOLD;
+
+    /**
+     * Sets the size up to which encoded images are held in memory. Larger images are
+     * written to a temporary file.
+     * @param threshold the size in bytes
+     */
+    public void setSpillThreshold(int threshold) {
+        this.spillThreshold = threshold;
+    }
+
+    /**
+     * Returns the size up to which encoded images are held in memory.
+     * @return the size in bytes
+     */
+    public int getSpillThreshold() {
+        return this.spillThreshold;
+    }
+
     /** {@inheritDoc} */
     public Image convert(Image src, Map hints) throws ImageException, IOException {
         checkSourceFlavor(src);
@@ -45,12 +69,21 @@ public class ImageConverterRendered2PNG extends AbstractImageConverter {
         if (writer == null) {
             throw new ImageException("Cannot convert image to PNG. No suitable ImageWriter found.");
         }
-        ByteArrayOutputStream baout = new ByteArrayOutputStream();
-        ImageWriterParams params = new ImageWriterParams();
-        params.setResolution((int)Math.round(src.getSize().getDpiHorizontal()));
-        writer.writeImage(rendered.getRenderedImage(), baout, params);
-        return new ImageRawStream(src.getInfo(), getTargetFlavor(),
-                new java.io.ByteArrayInputStream(baout.toByteArray()));
+        SpillingOutputStream out = new SpillingOutputStream(spillThreshold);
+        boolean success = false;
+        try {
+            ImageWriterParams params = new ImageWriterParams();
+            params.setResolution((int)Math.round(src.getSize().getDpiHorizontal()));
+            writer.writeImage(rendered.getRenderedImage(), out, params);
+            out.close();
+            success = true;
+        } finally {
+            if (!success) {
+                out.dispose();
+            }
+        }
+        //The data is not copied, the stream reads directly from the buffer or the temp file
+        return new ImageRawStream(src.getInfo(), getTargetFlavor(), out.toInputStream());
     }
 
     /** {@inheritDoc} */
@@ -29,13 +29,16 @@ import org.apache.xmlgraphics.image.loader.ImageContext;
 import org.apache.xmlgraphics.image.loader.ImageException;
 import org.apache.xmlgraphics.image.loader.ImageInfo;
 import org.apache.xmlgraphics.image.loader.ImageSize;
+import org.apache.xmlgraphics.image.loader.spi.ImageSignature;
+import org.apache.xmlgraphics.image.loader.spi.SignatureAwarePreloader;
 import org.apache.xmlgraphics.image.loader.util.ImageUtil;
 import org.apache.xmlgraphics.util.UnitConv;
 
 /**
  * Image preloader for BMP images.
  */
-public class PreloaderBMP extends AbstractImagePreloader {
+public class PreloaderBMP extends AbstractImagePreloader
+        implements SignatureAwarePreloader {
 
     /** Length of the BMP header */
     protected static final int BMP_SIG_LENGTH = 2;
@@ -43,6 +46,14 @@ public class PreloaderBMP extends AbstractImagePreloader {
     /** offset to width */
     private static final int WIDTH_OFFSET = 18;
 
+    private static final ImageSignature[] SIGNATURES = new ImageSignature[] {
+        new ImageSignature(new byte[] {0x42, 0x4D})};
+
+    /** {@inheritDoc} */
+    public ImageSignature[] getSignatures() {
+        return SIGNATURES.clone();
+    }
+
     /** {@inheritDoc} */
     public ImageInfo preloadImage(String uri, Source src, ImageContext context)
                 throws IOException, ImageException {
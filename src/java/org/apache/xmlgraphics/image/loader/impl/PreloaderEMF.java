@@ -29,13 +29,16 @@ import org.apache.xmlgraphics.image.loader.ImageContext;
 import org.apache.xmlgraphics.image.loader.ImageException;
 import org.apache.xmlgraphics.image.loader.ImageInfo;
 import org.apache.xmlgraphics.image.loader.ImageSize;
+import org.apache.xmlgraphics.image.loader.spi.ImageSignature;
+import org.apache.xmlgraphics.image.loader.spi.SignatureAwarePreloader;
 import org.apache.xmlgraphics.image.loader.util.ImageUtil;
 import org.apache.xmlgraphics.util.UnitConv;
 
 /**
  * Image preloader for EMF images.
  */
-public class PreloaderEMF extends AbstractImagePreloader {
+public class PreloaderEMF extends AbstractImagePreloader
+        implements SignatureAwarePreloader {
 
     /** Length of the EMF header */
     protected static final int EMF_SIG_LENGTH = 88;
@@ -55,6 +58,14 @@ public class PreloaderEMF extends AbstractImagePreloader {
     /** offset to vertical resolution in mm */
     private static final int VRES_MM_OFFSET = 84;
 
+    private static final ImageSignature[] SIGNATURES = new ImageSignature[] {
+        new ImageSignature(SIGNATURE_OFFSET, new byte[] {0x20, 0x45, 0x4D, 0x46})};
+
+    /** {@inheritDoc} */
+    public ImageSignature[] getSignatures() {
+        return SIGNATURES.clone();
+    }
+
     /** {@inheritDoc} */
     public ImageInfo preloadImage(String uri, Source src, ImageContext context)
                 throws IOException, ImageException {
@@ -29,6 +29,8 @@ import javax.xml.transform.Source;
 import org.apache.xmlgraphics.image.loader.ImageContext;
 import org.apache.xmlgraphics.image.loader.ImageInfo;
 import org.apache.xmlgraphics.image.loader.ImageSize;
+import org.apache.xmlgraphics.image.loader.spi.ImageSignature;
+import org.apache.xmlgraphics.image.loader.spi.SignatureAwarePreloader;
 import org.apache.xmlgraphics.image.loader.util.ImageInputStreamAdapter;
 import org.apache.xmlgraphics.image.loader.util.ImageUtil;
 import org.apache.xmlgraphics.ps.DSCConstants;
@@ -43,13 +45,23 @@ import org.apache.xmlgraphics.util.MimeConstants;
 /**
  * Image preloader for EPS images (Encapsulated PostScript).
  */
-public class PreloaderEPS extends AbstractImagePreloader {
+public class PreloaderEPS extends AbstractImagePreloader
+        implements SignatureAwarePreloader {
 
     /** Key for binary header object used in custom objects of the ImageInfo class. */
     public static final Object EPS_BINARY_HEADER = EPSBinaryFileHeader.class;
     /** Key for bounding box used in custom objects of the ImageInfo class. */
     public static final Object EPS_BOUNDING_BOX = Rectangle2D.class;
 
+    private static final ImageSignature[] SIGNATURES = new ImageSignature[] {
+        new ImageSignature(new byte[] {(byte)0xC5, (byte)0xD0, (byte)0xD3, (byte)0xC6}),
+        new ImageSignature(new byte[] {'%', '!', 'P', 'S'})};
+
+    /** {@inheritDoc} */
+    public ImageSignature[] getSignatures() {
+        return SIGNATURES.clone();
+    }
+
     /** {@inheritDoc} */
     public ImageInfo preloadImage(String uri, Source src, ImageContext context)
             throws IOException {
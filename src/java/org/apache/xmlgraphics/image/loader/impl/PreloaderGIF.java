@@ -27,16 +27,28 @@ import javax.xml.transform.Source;
 import org.apache.xmlgraphics.image.loader.ImageContext;
 import org.apache.xmlgraphics.image.loader.ImageInfo;
 import org.apache.xmlgraphics.image.loader.ImageSize;
+import org.apache.xmlgraphics.image.loader.spi.ImageSignature;
+import org.apache.xmlgraphics.image.loader.spi.SignatureAwarePreloader;
 import org.apache.xmlgraphics.image.loader.util.ImageUtil;
 import org.apache.xmlgraphics.util.MimeConstants;
 
 /**
  * Image preloader for GIF images.
  */
-public class PreloaderGIF extends AbstractImagePreloader {
+public class PreloaderGIF extends AbstractImagePreloader
+        implements SignatureAwarePreloader {
 
     private static final int GIF_SIG_LENGTH = 10;
 
+    private static final ImageSignature[] SIGNATURES = new ImageSignature[] {
+        new ImageSignature(new byte[] {'G', 'I', 'F', '8', '7', 'a'}),
+        new ImageSignature(new byte[] {'G', 'I', 'F', '8', '9', 'a'})};
+
+    /** {@inheritDoc} */
+    public ImageSignature[] getSignatures() {
+        return SIGNATURES.clone();
+    }
+
     /** {@inheritDoc} */
     public ImageInfo preloadImage(String uri, Source src, ImageContext context)
             throws IOException {
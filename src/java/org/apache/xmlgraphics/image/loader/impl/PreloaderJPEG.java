@@ -28,6 +28,8 @@ import org.apache.xmlgraphics.image.loader.ImageContext;
 import org.apache.xmlgraphics.image.loader.ImageException;
 import org.apache.xmlgraphics.image.loader.ImageInfo;
 import org.apache.xmlgraphics.image.loader.ImageSize;
+import org.apache.xmlgraphics.image.loader.spi.ImageSignature;
+import org.apache.xmlgraphics.image.loader.spi.SignatureAwarePreloader;
 import org.apache.xmlgraphics.image.loader.util.ImageUtil;
 import org.apache.xmlgraphics.util.MimeConstants;
 import org.apache.xmlgraphics.util.UnitConv;
@@ -35,10 +37,19 @@ import org.apache.xmlgraphics.util.UnitConv;
 /**
  * Image preloader for JPEG images.
  */
-public class PreloaderJPEG extends AbstractImagePreloader implements JPEGConstants {
+public class PreloaderJPEG extends AbstractImagePreloader
+        implements JPEGConstants, SignatureAwarePreloader {
 
     private static final int JPG_SIG_LENGTH = 3;
 
+    private static final ImageSignature[] SIGNATURES = new ImageSignature[] {
+        new ImageSignature(new byte[] {(byte)MARK, (byte)SOI, (byte)MARK})};
+
+    /** {@inheritDoc} */
+    public ImageSignature[] getSignatures() {
+        return SIGNATURES.clone();
+    }
+
     /** {@inheritDoc}
      * @throws ImageException */
     public ImageInfo preloadImage(String uri, Source src, ImageContext context)
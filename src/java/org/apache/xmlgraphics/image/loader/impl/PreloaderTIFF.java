@@ -37,6 +37,8 @@ import org.apache.xmlgraphics.image.loader.ImageException;
 import org.apache.xmlgraphics.image.loader.ImageInfo;
 import org.apache.xmlgraphics.image.loader.ImageSize;
 import org.apache.xmlgraphics.image.loader.SubImageNotFoundException;
+import org.apache.xmlgraphics.image.loader.spi.ImageSignature;
+import org.apache.xmlgraphics.image.loader.spi.SignatureAwarePreloader;
 import org.apache.xmlgraphics.image.loader.util.ImageUtil;
 import org.apache.xmlgraphics.image.loader.util.SeekableStreamAdapter;
 import org.apache.xmlgraphics.util.MimeConstants;
@@ -48,12 +50,22 @@ import org.apache.xmlgraphics.util.UnitConv;
  * Note: The implementation relies on the TIFF codec code in Apache XML Graphics Commons for
  * access to the TIFF directory.
  */
-public class PreloaderTIFF extends AbstractImagePreloader {
+public class PreloaderTIFF extends AbstractImagePreloader
+        implements SignatureAwarePreloader {
 
     private static Log log = LogFactory.getLog(PreloaderTIFF.class);
 
     private static final int TIFF_SIG_LENGTH = 8;
 
+    private static final ImageSignature[] SIGNATURES = new ImageSignature[] {
+        new ImageSignature(new byte[] {0x49, 0x49, 42, 0}),
+        new ImageSignature(new byte[] {0x4D, 0x4D, 0, 42})};
+
+    /** {@inheritDoc} */
+    public ImageSignature[] getSignatures() {
+        return SIGNATURES.clone();
+    }
+
     /** {@inheritDoc}
      * @throws ImageException */
     public ImageInfo preloadImage(String uri, Source src, ImageContext context)
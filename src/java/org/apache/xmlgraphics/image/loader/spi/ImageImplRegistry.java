@@ -52,11 +52,16 @@ public class ImageImplRegistry {
     //Content: List<ImagePreloader>
     private int lastPreloaderIdentifier;
     private int lastPreloaderSort;
+    private int signatureLength;
 
     /** Holds the list of ImageLoaderFactories */
     private Map loaders = new java.util.HashMap();
     //Content: Map<String,Map<ImageFlavor,ImageLoaderFactory>>
 
+    /** Discovered ImageLoaderFactories which have not been registered, yet */
+    private volatile List pendingLoaderFactories;
+    //Content: List<Service.Provider<ImageLoaderFactory>>
+
     /** Holds the list of ImageConverters */
     private List converters = new java.util.ArrayList();
     //Content: List<ImageConverter>
@@ -109,11 +114,10 @@ public class ImageImplRegistry {
             registerPreloader((ImagePreloader)iter.next());
         }
 
-        //Dynamic registration of ImageLoaderFactories
-        iter = Service.providers(ImageLoaderFactory.class);
-        while (iter.hasNext()) {
-            registerLoaderFactory((ImageLoaderFactory)iter.next());
-        }
+        //Dynamic registration of ImageLoaderFactories (deferred until a loader is requested
+        //since some factories are expensive to initialize, e.g. the one for Image I/O)
+        registerPendingLoaderFactories();
+        this.pendingLoaderFactories = Service.lazyProviders(ImageLoaderFactory.class);
 
         //Dynamic registration of ImageConverters
         iter = Service.providers(ImageConverter.class);
@@ -138,6 +142,12 @@ public class ImageImplRegistry {
         PreloaderHolder holder = new PreloaderHolder();
         holder.preloader = preloader;
         holder.identifier = ++lastPreloaderIdentifier;
+        if (preloader instanceof SignatureAwarePreloader) {
+            holder.signatures = ((SignatureAwarePreloader)preloader).getSignatures();
+            for (int i = 0; i < holder.signatures.length; i++) {
+                signatureLength = Math.max(signatureLength, holder.signatures[i].getLength());
+            }
+        }
         return holder;
     }
 
@@ -145,6 +155,19 @@ public class ImageImplRegistry {
     private static class PreloaderHolder {
         private ImagePreloader preloader;
         private int identifier;
+        private ImageSignature[] signatures;
+
+        public boolean matches(byte[] header, int length) {
+            if (signatures == null) {
+                return true;
+            }
+            for (int i = 0; i < signatures.length; i++) {
+                if (signatures[i].matches(header, length)) {
+                    return true;
+                }
+            }
+            return false;
+        }
 
         public String toString() {
             return preloader + " " + identifier;
@@ -183,6 +206,32 @@ public class ImageImplRegistry {
      * @param loaderFactory An ImageLoaderFactory instance
      */
     public void registerLoaderFactory(ImageLoaderFactory loaderFactory) {
+        //Discovered factories keep their precedence over explicitly registered ones
+        registerPendingLoaderFactories();
+        addLoaderFactory(loaderFactory);
+    }
+
+    private void registerPendingLoaderFactories() {
+        if (this.pendingLoaderFactories == null) {
+            return;
+        }
+        synchronized (this) {
+            List pending = this.pendingLoaderFactories;
+            if (pending != null) {
+                Iterator iter = pending.iterator();
+                while (iter.hasNext()) {
+                    ImageLoaderFactory factory
+                            = (ImageLoaderFactory)((Service.Provider)iter.next()).getInstance();
+                    if (factory != null) {
+                        addLoaderFactory(factory);
+                    }
+                }
+                this.pendingLoaderFactories = null;
+            }
+        }
+    }
+
+    private void addLoaderFactory(ImageLoaderFactory loaderFactory) {
         if (!loaderFactory.isAvailable()) {
             if (log.isDebugEnabled()) {
                 log.debug("ImageLoaderFactory reports not available: "
@@ -280,6 +329,39 @@ public class ImageImplRegistry {
         };
     }
 
+    /**
+     * Returns the number of header bytes needed to check the signatures of all registered
+     * {@link SignatureAwarePreloader} instances.
+     * @return the number of bytes (0 if no preloader declares signatures)
+     * @see #getPreloaderIterator(byte[], int)
+     */
+    public synchronized int getSignatureLength() {
+        return this.signatureLength;
+    }
+
+    /**
+     * Returns an iterator over the registered ImagePreloader instances which may be able to
+     * identify an image with the given header. {@link SignatureAwarePreloader} instances are
+     * skipped if none of their signatures matches the header. The order is the same as for
+     * {@link #getPreloaderIterator()}.
+     * @param header the first bytes of the image (see {@link #getSignatureLength()})
+     * @param length the number of valid bytes in the header (less than the signature length
+     *          if the image is shorter)
+     * @return an iterator over ImagePreloader instances.
+     */
+    public Iterator getPreloaderIterator(byte[] header, int length) {
+        sortPreloaders();
+        List candidates = new java.util.ArrayList(this.preloaders.size());
+        Iterator iter = this.preloaders.iterator();
+        while (iter.hasNext()) {
+            PreloaderHolder holder = (PreloaderHolder)iter.next();
+            if (holder.matches(header, length)) {
+                candidates.add(holder.preloader);
+            }
+        }
+        return candidates.iterator();
+    }
+
     /**
      * Returns the best ImageLoaderFactory supporting the {@link ImageInfo} and image flavor.
      * If there are multiple ImageLoaderFactories the one with the least usage penalty is selected.
@@ -288,6 +370,7 @@ public class ImageImplRegistry {
      * @return an ImageLoaderFactory instance or null, if no suitable implementation was found
      */
     public ImageLoaderFactory getImageLoaderFactory(ImageInfo imageInfo, ImageFlavor flavor) {
+        registerPendingLoaderFactories();
         String mime = imageInfo.getMimeType();
         Map flavorMap = (Map)loaders.get(mime);
         if (flavorMap != null) {
@@ -322,6 +405,7 @@ public class ImageImplRegistry {
      * @return the array of image loader factories
      */
     public ImageLoaderFactory[] getImageLoaderFactories(ImageInfo imageInfo, ImageFlavor flavor) {
+        registerPendingLoaderFactories();
         String mime = imageInfo.getMimeType();
         Collection matches = new java.util.TreeSet(new ImageLoaderFactoryComparator(flavor));
         Map flavorMap = (Map)loaders.get(mime);
@@ -384,6 +468,7 @@ public class ImageImplRegistry {
      * @return the array of ImageLoaderFactory instances
      */
     public ImageLoaderFactory[] getImageLoaderFactories(String mime) {
+        registerPendingLoaderFactories();
         Map flavorMap = (Map)loaders.get(mime);
         if (flavorMap != null) {
             Set factories = new java.util.HashSet();
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.image.loader.spi;
+
+/**
+ * A signature (magic number) identifying an image format: a sequence of bytes at a fixed
+ * offset from the start of the image.
+ */
+public class ImageSignature {
+
+    private final int offset;
+    private final byte[] bytes;
+
+    /**
+     * Creates a new signature.
+     * @param offset the offset of the signature from the start of the image
+     * @param bytes the bytes of the signature
+     */
+    public ImageSignature(int offset, byte[] bytes) {
+        this.offset = offset;
+        this.bytes = bytes.clone();
+    }
+
+    /**
+     * Creates a new signature at the start of the image.
+     * @param bytes the bytes of the signature
+     */
+    public ImageSignature(byte[] bytes) {
+        this(0, bytes);
+    }
+
+    /** @return the offset of the signature from the start of the image */
+    public int getOffset() {
+        return this.offset;
+    }
+
+    /** @return the number of header bytes needed to check for this signature */
+    public int getLength() {
+        return this.offset + this.bytes.length;
+    }
+
+    /**
+     * Indicates whether an image header matches this signature.
+     * @param header the first bytes of the image
+     * @param length the number of valid bytes in the header
+     * @return true if the header matches
+     */
+    public boolean matches(byte[] header, int length) {
+        if (getLength() > length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (header[offset + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    public String toString() {
+        StringBuffer sb = new StringBuffer("ImageSignature[");
+        sb.append(offset).append(':');
+        for (int i = 0; i < bytes.length; i++) {
+            sb.append(' ').append(Integer.toHexString(bytes[i] & 0xFF));
+        }
+        return sb.append(']').toString();
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.image.loader.spi;
+
+/**
+ * Optional interface for {@link ImagePreloader} implementations which only identify images
+ * starting with one of a known set of signatures (magic numbers). The registry uses the
+ * signatures to skip preloaders which cannot identify an image without calling them (see
+ * {@link ImageImplRegistry#getPreloaderIterator(byte[], int)}). Preloaders which don't
+ * implement this interface are always called.
+ */
+public interface SignatureAwarePreloader extends ImagePreloader {
+
+    /**
+     * Returns the signatures of the images identified by this preloader. The preloader
+     * must return null from {@link #preloadImage} for any image matching none of them.
+     * @return the signatures
+     */
+    ImageSignature[] getSignatures();
+
+}
@@ -37,6 +37,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.xmlgraphics.image.GraphicsUtil;
 
@@ -68,6 +74,18 @@ public abstract class AbstractRed implements CachableRed {
     protected int         minTileX,     minTileY;
     protected int         numXTiles,    numYTiles;
 
+    /** Minimum number of scanlines computed by one task in parallel mode */
+    private static final int MIN_BAND_HEIGHT = 16;
+
+    private static ExecutorService defaultExecutor;
+
+    /** Set while a thread computes a band, to avoid nested fan-out into the same pool */
+    private static final ThreadLocal IN_PARALLEL_TASK = new ThreadLocal();
+
+    private ExecutorService executor;
+
+    private TileCache tileCache;
+
     /**
      * void constructor. The subclass must call one of the
      * flavors of init before the object becomes usable.
@@ -502,10 +520,39 @@ public abstract class AbstractRed implements CachableRed {
     // }
 
     public Raster getTile(int tileX, int tileY) {
+        TileCache cache = this.tileCache;
+        if (cache != null) {
+            Raster tile = cache.getTile(this, tileX, tileY);
+            if (tile == null) {
+                tile = copyData(makeTile(tileX, tileY));
+                cache.putTile(this, tileX, tileY, tile);
+            }
+            return tile;
+        }
         WritableRaster wr = makeTile(tileX, tileY);
         return copyData(wr);
     }
 
+    /**
+     * Sets the cache for the tiles computed by {@link #getTile(int, int)}. Tiles taken from
+     * the cache are shared, so callers must not modify them.
+     * @param cache the tile cache (for example {@link TileCache#getDefaultCache()}) or null
+     *              to compute every tile on request
+     */
+    public void setTileCache(TileCache cache) {
+        if (this.tileCache != null && this.tileCache != cache)
+            this.tileCache.removeTiles(this);
+        this.tileCache = cache;
+    }
+
+    /**
+     * Returns the cache for the tiles of this image.
+     * @return the tile cache (or null if tiles are not cached)
+     */
+    public TileCache getTileCache() {
+        return this.tileCache;
+    }
+
     public Raster getData() {
         return getData(bounds);
     }
@@ -518,9 +565,142 @@ public abstract class AbstractRed implements CachableRed {
         WritableRaster wr = Raster.createWritableRaster(smRet, pt);
 
         // System.out.println("GD DB: " + wr.getDataBuffer().getSize());
+        if (executor != null)
+            return copyDataParallel(wr);
         return copyData(wr);
     }
 
+    /**
+     * Sets the executor used to compute image data in parallel. If an executor is set,
+     * {@link #getData()} and {@link #getData(Rectangle)} split the requested region into
+     * horizontal bands (aligned to the tile grid where possible) which are computed
+     * concurrently by calling {@link #copyData(WritableRaster)} for each band. Subclasses
+     * must therefore support concurrent calls to copyData() for disjoint regions, which is
+     * the case for the implementations in this package.
+     * @param executor the executor or null to compute all data on the calling thread
+     * @see #getDefaultExecutor()
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the executor used to compute image data in parallel.
+     * @return the executor (or null if data is computed on the calling thread)
+     */
+    public ExecutorService getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Returns a shared executor with one daemon thread per available processor which can be
+     * passed to {@link #setExecutor(ExecutorService)}.
+     * @return the default executor
+     */
+    public static synchronized ExecutorService getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                        private int count;
+
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "AbstractRed-" + (++count));
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Fills a raster like {@link #copyData(WritableRaster)} but computes horizontal bands of
+     * the raster concurrently using the executor set with
+     * {@link #setExecutor(ExecutorService)}. If no executor is set, if the raster is too small
+     * or if this is called from within a band computation, the data is computed on the
+     * calling thread.
+     * @param wr Raster to fill with image data.
+     * @return the raster
+     */
+    public WritableRaster copyDataParallel(WritableRaster wr) {
+        ExecutorService exec = this.executor;
+        int height = wr.getHeight();
+        if (exec == null || height < 2 * MIN_BAND_HEIGHT
+                || IN_PARALLEL_TASK.get() != null) {
+            return copyData(wr);
+        }
+
+        // Bands are made of whole tile rows if there are enough of them so no tile has to
+        // be computed twice. Otherwise the region is split evenly.
+        int bands = Runtime.getRuntime().availableProcessors() * 2;
+        int bandHeight = Math.max((height + bands - 1) / bands, MIN_BAND_HEIGHT);
+        if (tileHeight < height && tileHeight > 0)
+            bandHeight = ((bandHeight + tileHeight - 1) / tileHeight) * tileHeight;
+
+        List tasks = new java.util.ArrayList();
+        int minX = wr.getMinX();
+        int width = wr.getWidth();
+        int y0 = wr.getMinY();
+        int yEnd = y0 + height;
+        int y = y0;
+        while (y < yEnd) {
+            int next = y + bandHeight;
+            if (tileHeight < height && tileHeight > 0) {
+                // Align band ends with the tile grid
+                next = tileGridYOff + (getYTile(next - 1) + 1) * tileHeight;
+                if (next - y < MIN_BAND_HEIGHT)
+                    next = y + bandHeight;
+            }
+            if (next > yEnd || yEnd - next < MIN_BAND_HEIGHT / 2)
+                next = yEnd;
+            final WritableRaster band = wr.createWritableChild
+                (minX, y, width, next - y, minX, y, null);
+            tasks.add(new Callable() {
+                    public Object call() {
+                        IN_PARALLEL_TASK.set(Boolean.TRUE);
+                        try {
+                            copyData(band);
+                        } finally {
+                            IN_PARALLEL_TASK.set(null);
+                        }
+                        return null;
+                    }
+                });
+            y = next;
+        }
+        if (tasks.size() == 1)
+            return copyData(wr);
+
+        List futures = new java.util.ArrayList(tasks.size());
+        Iterator iter = tasks.iterator();
+        while (iter.hasNext())
+            futures.add(exec.submit((Callable)iter.next()));
+        RuntimeException failure = null;
+        iter = futures.iterator();
+        while (iter.hasNext()) {
+            try {
+                ((Future)iter.next()).get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                if (failure == null)
+                    failure = new RuntimeException("Interrupted while computing image data");
+            } catch (ExecutionException ee) {
+                if (failure == null) {
+                    Throwable cause = ee.getCause();
+                    if (cause instanceof RuntimeException)
+                        failure = (RuntimeException)cause;
+                    else if (cause instanceof Error)
+                        throw (Error)cause;
+                    else
+                        failure = new RuntimeException(cause.getMessage());
+                }
+            }
+        }
+        if (failure != null)
+            throw failure;
+        return wr;
+    }
+
     /**
      * Returns the x index of tile under xloc.
      * @param  xloc the x location (in pixels) to get tile for.
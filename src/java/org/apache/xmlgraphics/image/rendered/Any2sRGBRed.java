@@ -24,7 +24,10 @@ import java.awt.image.BandCombineOp;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorConvertOp;
 import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
 import java.awt.image.DataBufferInt;
 import java.awt.image.Raster;
 import java.awt.image.SampleModel;
@@ -94,6 +97,21 @@ public class Any2sRGBRed extends AbstractRed {
         return true;
    }
 
+    /**
+     * Checks for 8 bit samples with all bands interleaved in one bank
+     * (like TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR and TYPE_BYTE_GRAY).
+     */
+    public static boolean is_BYTE_INTERLEAVED(SampleModel sm) {
+        if(!(sm instanceof ComponentSampleModel)) return false;
+        if(sm.getDataType() != DataBuffer.TYPE_BYTE)     return false;
+
+        int [] banks = ((ComponentSampleModel)sm).getBankIndices();
+        for (int i=0; i<banks.length; i++)
+            if (banks[i] != 0) return false;
+
+        return true;
+    }
+
     /**
      * Exponent for linear to sRGB convertion
      */
@@ -123,6 +141,33 @@ public class Any2sRGBRed extends AbstractRed {
         // System.out.println("");
     }
 
+    /**
+     * Identity lookup table for sources that are already on the sRGB scale.
+     */
+    private static final int[] identityLut = new int[256];
+    static {
+        for(int i=0; i<256; i++)
+            identityLut[i] = i;
+    }
+
+    /**
+     * Lookup table to divide out premultiplied alpha, indexed by
+     * (alpha<<8 | value). Gives the same results as
+     * GraphicsUtil.divideAlpha().
+     */
+    private static final byte[] unpremultiplyLut = new byte[256*256];
+    static {
+        for(int v=0; v<256; v++)
+            unpremultiplyLut[v] = (byte)0xFF;
+        for(int a=1; a<255; a++) {
+            int aFP = (0x00FF0000/a);
+            for(int v=0; v<256; v++)
+                unpremultiplyLut[(a<<8)|v] = (byte)((v*aFP)>>>16);
+        }
+        for(int v=0; v<256; v++)
+            unpremultiplyLut[(255<<8)|v] = (byte)v;
+    }
+
     public static WritableRaster applyLut_INT(WritableRaster wr,
                                               final int []lut) {
         SinglePixelPackedSampleModel sm =
@@ -160,6 +205,111 @@ public class Any2sRGBRed extends AbstractRed {
         return wr;
     }
 
+    /**
+     * Converts 8 bit interleaved gray or RGB samples (optionally with
+     * alpha, possibly premultiplied) to unpremultiplied INT packed
+     * ARGB, applying <code>lut</code> to the color components.
+     *
+     * @param src the source raster (see {@link #is_BYTE_INTERLEAVED})
+     * @param wr  the destination (see {@link #is_INT_PACK_COMP})
+     * @param gray true if <code>src</code> holds gray (+ alpha) samples
+     * @param premultiplied true if the color samples are premultiplied
+     * @param lut the lookup table for the color components
+     */
+    public static WritableRaster convert_BYTE_INTERLEAVED(Raster src,
+                                                          WritableRaster wr,
+                                                          boolean gray,
+                                                          boolean premultiplied,
+                                                          final int []lut) {
+        ComponentSampleModel csm =
+            (ComponentSampleModel)src.getSampleModel();
+        DataBufferByte srcDB = (DataBufferByte)src.getDataBuffer();
+        SinglePixelPackedSampleModel sppsm =
+            (SinglePixelPackedSampleModel)wr.getSampleModel();
+        DataBufferInt dstDB = (DataBufferInt)wr.getDataBuffer();
+
+        final int x0     = Math.max(src.getMinX(), wr.getMinX());
+        final int y0     = Math.max(src.getMinY(), wr.getMinY());
+        final int width  = Math.min(src.getMinX()+src.getWidth(),
+                                    wr.getMinX()+wr.getWidth()) - x0;
+        final int height = Math.min(src.getMinY()+src.getHeight(),
+                                    wr.getMinY()+wr.getHeight()) - y0;
+        if ((width <= 0) || (height <= 0)) return wr;
+
+        final int [] bandOff     = csm.getBandOffsets();
+        // getOffset() includes the offset of the first band
+        final int srcBase
+            = (srcDB.getOffset() - bandOff[0] +
+               csm.getOffset(x0-src.getSampleModelTranslateX(),
+                             y0-src.getSampleModelTranslateY()));
+        final int dstBase
+            = (dstDB.getOffset() +
+               sppsm.getOffset(x0-wr.getSampleModelTranslateX(),
+                               y0-wr.getSampleModelTranslateY()));
+
+        final byte[] srcPixels   = srcDB.getBankData()[0];
+        final int[]  dstPixels   = dstDB.getBankData()[0];
+        final int srcScanStride  = csm.getScanlineStride();
+        final int dstScanStride  = sppsm.getScanlineStride();
+        final int pixStride      = csm.getPixelStride();
+        final byte[] unpre       = unpremultiplyLut;
+
+        final int rOff = bandOff[0];
+        final int gOff = (gray ? rOff : bandOff[1]);
+        final int bOff = (gray ? rOff : bandOff[2]);
+        final int colorBands = (gray ? 1 : 3);
+        final int aOff
+            = (bandOff.length > colorBands ? bandOff[colorBands] : -1);
+
+        int end, sp, dp, a, v;
+
+        for (int y=0; y<height; y++) {
+            sp  = srcBase + y*srcScanStride;
+            dp  = dstBase + y*dstScanStride;
+            end = dp + width;
+
+            if (aOff < 0) {
+                if (gray) {
+                    while (dp<end) {
+                        v = lut[srcPixels[sp]&0xFF];
+                        dstPixels[dp++] = 0xFF000000 | (v<<16) | (v<<8) | v;
+                        sp += pixStride;
+                    }
+                } else {
+                    while (dp<end) {
+                        dstPixels[dp++] =
+                            (0xFF000000 |
+                             (lut[srcPixels[sp+rOff]&0xFF]<<16) |
+                             (lut[srcPixels[sp+gOff]&0xFF]<< 8) |
+                             (lut[srcPixels[sp+bOff]&0xFF]    ));
+                        sp += pixStride;
+                    }
+                }
+            } else if (!premultiplied) {
+                while (dp<end) {
+                    dstPixels[dp++] =
+                        (((srcPixels[sp+aOff]&0xFF)   <<24) |
+                         (lut[srcPixels[sp+rOff]&0xFF]<<16) |
+                         (lut[srcPixels[sp+gOff]&0xFF]<< 8) |
+                         (lut[srcPixels[sp+bOff]&0xFF]    ));
+                    sp += pixStride;
+                }
+            } else {
+                while (dp<end) {
+                    a = (srcPixels[sp+aOff]&0xFF)<<8;
+                    dstPixels[dp++] =
+                        ((a<<16) |
+                         (lut[unpre[a|(srcPixels[sp+rOff]&0xFF)]&0xFF]<<16) |
+                         (lut[unpre[a|(srcPixels[sp+gOff]&0xFF)]&0xFF]<< 8) |
+                         (lut[unpre[a|(srcPixels[sp+bOff]&0xFF)]&0xFF]    ));
+                    sp += pixStride;
+                }
+            }
+        }
+
+        return wr;
+    }
+
     public WritableRaster copyData(WritableRaster wr) {
 
         // Get my source.
@@ -167,6 +317,37 @@ public class Any2sRGBRed extends AbstractRed {
         ColorModel  srcCM = src.getColorModel();
         SampleModel srcSM = src.getSampleModel();
 
+        // Fast case, 8 bit interleaved gray, sRGB or linear sRGB
+        // source, INT Pack writable raster...
+        if ((srcCM instanceof ComponentColorModel) &&
+            is_BYTE_INTERLEAVED(srcSM) &&
+            is_INT_PACK_COMP(wr.getSampleModel())) {
+            ColorSpace srcCS = srcCM.getColorSpace();
+            int colorBands = srcSM.getNumBands();
+            if (srcCM.hasAlpha()) colorBands--;
+
+            int [] lut = null;
+            boolean gray = false;
+            if (srcCS == ColorSpace.getInstance(ColorSpace.CS_GRAY)) {
+                // Treated as having sRGB gamma (see below).
+                if (colorBands == 1) {
+                    lut  = identityLut;
+                    gray = true;
+                }
+            } else if (colorBands == 3) {
+                if (srcIsLsRGB)
+                    lut = linearToSRGBLut;
+                else if (srcCS == getColorModel().getColorSpace())
+                    lut = identityLut;
+            }
+            if (lut != null) {
+                convert_BYTE_INTERLEAVED(src.getData(wr.getBounds()), wr,
+                                         gray,
+                                         srcCM.isAlphaPremultiplied(),
+                                         lut);
+                return wr;
+            }
+        }
 
         // Fast case, Linear SRGB source, INT Pack writable raster...
         if (srcIsLsRGB &&
@@ -194,7 +375,7 @@ public class Any2sRGBRed extends AbstractRed {
                 matrix = new float[4][2];
                 matrix[0][0] = 1; // Red
                 matrix[1][0] = 1; // Grn
-                matrix[3][0] = 1; // Blu
+                matrix[2][0] = 1; // Blu
                 matrix[3][1] = 1; // Alpha
                 break;
             case 3:
@@ -238,8 +419,8 @@ public class Any2sRGBRed extends AbstractRed {
                 matrix = new float[4][2];
                 matrix[0][0] = 1; // Red
                 matrix[1][0] = 1; // Grn
-                matrix[3][0] = 1; // Blu
-                matrix[4][1] = 1; // Alpha
+                matrix[2][0] = 1; // Blu
+                matrix[3][1] = 1; // Alpha
                 break;
             }
             Raster srcRas = src.getData(wr.getBounds());
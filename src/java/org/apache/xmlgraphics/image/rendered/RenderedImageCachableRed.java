@@ -54,6 +54,7 @@ public class RenderedImageCachableRed implements CachableRed {
 
     private RenderedImage src;
     private Vector srcs = new Vector(0);
+    private TileCache tileCache;
 
     public RenderedImageCachableRed(RenderedImage src) {
         if(src == null){
@@ -133,9 +134,38 @@ public class RenderedImageCachableRed implements CachableRed {
     }
 
     public Raster getTile(int tileX, int tileY) {
+        TileCache cache = this.tileCache;
+        if (cache != null) {
+            Raster tile = cache.getTile(this, tileX, tileY);
+            if (tile == null) {
+                tile = src.getTile(tileX, tileY);
+                cache.putTile(this, tileX, tileY, tile);
+            }
+            return tile;
+        }
         return src.getTile(tileX, tileY);
     }
 
+    /**
+     * Sets the cache for the tiles returned by {@link #getTile(int, int)}. This is useful if
+     * the wrapped image computes its tiles on request.
+     * @param cache the tile cache (for example {@link TileCache#getDefaultCache()}) or null
+     *              to always request the tiles from the wrapped image
+     */
+    public void setTileCache(TileCache cache) {
+        if (this.tileCache != null && this.tileCache != cache)
+            this.tileCache.removeTiles(this);
+        this.tileCache = cache;
+    }
+
+    /**
+     * Returns the cache for the tiles of this image.
+     * @return the tile cache (or null if tiles are not cached)
+     */
+    public TileCache getTileCache() {
+        return this.tileCache;
+    }
+
     public WritableRaster copyData(WritableRaster raster) {
         return src.copyData(raster);
     }
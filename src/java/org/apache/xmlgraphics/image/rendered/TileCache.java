@@ -0,0 +1,336 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.image.rendered;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A cache for computed tiles of {@link CachableRed} instances. The cache is bounded by the
+ * number of bytes held by the cached tiles and evicts the least recently used tiles first.
+ * A single cache can be shared by any number of images. Tiles are keyed by the image
+ * instance and the tile index, so the images must not change their data (which is part of
+ * the CachableRed contract). The cache only holds weak references to the images: the tiles
+ * of an image which is no longer referenced elsewhere are removed from the cache.
+ * <p>
+ * Tiles obtained from the cache are shared and must not be modified.
+ * <p>
+ * This class is thread-safe.
+ */
+public class TileCache {
+
+    /** Default maximum size of the default cache in bytes (32 MB) */
+    public static final long DEFAULT_MAX_MEMORY = 32L * 1024 * 1024;
+
+    private static TileCache defaultCache;
+
+    private final Map tiles = new LinkedHashMap(64, 0.75f, true); //Map<Key, Entry>
+    /** The owners of the cached tiles by identity hash code */
+    private final Map owners = new java.util.HashMap(); //Map<Integer, List<OwnerRef>>
+    private final ReferenceQueue queue = new ReferenceQueue();
+    private long maxMemory;
+    private long memoryUsage;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a new tile cache.
+     * @param maxMemory the maximum number of bytes held by the cached tiles
+     */
+    public TileCache(long maxMemory) {
+        this.maxMemory = maxMemory;
+    }
+
+    /**
+     * Returns the shared default tile cache.
+     * @return the default tile cache
+     */
+    public static synchronized TileCache getDefaultCache() {
+        if (defaultCache == null) {
+            defaultCache = new TileCache(DEFAULT_MAX_MEMORY);
+        }
+        return defaultCache;
+    }
+
+    /**
+     * Returns a cached tile.
+     * @param owner the image the tile belongs to
+     * @param tileX the x index of the tile
+     * @param tileY the y index of the tile
+     * @return the tile or null if it is not in the cache
+     */
+    public synchronized Raster getTile(CachableRed owner, int tileX, int tileY) {
+        purge();
+        OwnerRef ref = findOwner(owner, false);
+        Entry entry = (ref != null) ? (Entry)tiles.get(new Key(ref, tileX, tileY)) : null;
+        if (entry != null) {
+            hits++;
+            return entry.tile;
+        } else {
+            misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Adds a tile to the cache. Tiles larger than the cache are not added. Least recently
+     * used tiles are evicted as necessary.
+     * @param owner the image the tile belongs to
+     * @param tileX the x index of the tile
+     * @param tileY the y index of the tile
+     * @param tile the tile
+     */
+    public synchronized void putTile(CachableRed owner, int tileX, int tileY, Raster tile) {
+        purge();
+        long size = getSize(tile);
+        if (size > maxMemory) {
+            return;
+        }
+        OwnerRef ref = findOwner(owner, true);
+        Key key = new Key(ref, tileX, tileY);
+        Entry old = (Entry)tiles.put(key, new Entry(tile, size));
+        if (old != null) {
+            memoryUsage -= old.size;
+        }
+        ref.keys.add(key);
+        memoryUsage += size;
+        evict(maxMemory);
+    }
+
+    /**
+     * Removes all tiles of an image from the cache.
+     * @param owner the image
+     */
+    public synchronized void removeTiles(CachableRed owner) {
+        purge();
+        OwnerRef ref = findOwner(owner, false);
+        if (ref != null) {
+            removeOwner(ref);
+        }
+    }
+
+    /**
+     * Removes all tiles from the cache.
+     */
+    public synchronized void clear() {
+        tiles.clear();
+        owners.clear();
+        memoryUsage = 0;
+    }
+
+    private void evict(long limit) {
+        Iterator iter = tiles.entrySet().iterator();
+        while (memoryUsage > limit && iter.hasNext()) {
+            Map.Entry mapEntry = (Map.Entry)iter.next();
+            Key key = (Key)mapEntry.getKey();
+            memoryUsage -= ((Entry)mapEntry.getValue()).size;
+            iter.remove();
+            key.ref.keys.remove(key);
+            if (key.ref.keys.isEmpty()) {
+                unregisterOwner(key.ref);
+            }
+            evictions++;
+        }
+    }
+
+    /**
+     * Returns the reference for an owner.
+     * @param owner the owner
+     * @param create true if the reference shall be created if the owner has no tiles, yet
+     * @return the reference (or null if there is none and create is false)
+     */
+    private OwnerRef findOwner(CachableRed owner, boolean create) {
+        Integer hash = new Integer(System.identityHashCode(owner));
+        List refs = (List)owners.get(hash);
+        if (refs != null) {
+            for (int i = 0, c = refs.size(); i < c; i++) {
+                OwnerRef ref = (OwnerRef)refs.get(i);
+                if (ref.get() == owner) {
+                    return ref;
+                }
+            }
+        }
+        if (!create) {
+            return null;
+        }
+        if (refs == null) {
+            refs = new java.util.ArrayList(1);
+            owners.put(hash, refs);
+        }
+        OwnerRef ref = new OwnerRef(owner, hash, queue);
+        refs.add(ref);
+        return ref;
+    }
+
+    private void unregisterOwner(OwnerRef ref) {
+        List refs = (List)owners.get(ref.hash);
+        if (refs != null) {
+            refs.remove(ref);
+            if (refs.isEmpty()) {
+                owners.remove(ref.hash);
+            }
+        }
+    }
+
+    private void removeOwner(OwnerRef ref) {
+        Iterator iter = ref.keys.iterator();
+        while (iter.hasNext()) {
+            Entry entry = (Entry)tiles.remove(iter.next());
+            if (entry != null) {
+                memoryUsage -= entry.size;
+            }
+        }
+        ref.keys.clear();
+        unregisterOwner(ref);
+    }
+
+    /** Removes the tiles of images which have been garbage-collected. */
+    private void purge() {
+        OwnerRef ref;
+        while ((ref = (OwnerRef)queue.poll()) != null) {
+            removeOwner(ref);
+        }
+    }
+
+    /**
+     * Sets the maximum number of bytes held by the cached tiles, evicting tiles if necessary.
+     * @param maxMemory the maximum size of the cache in bytes
+     */
+    public synchronized void setMaxMemory(long maxMemory) {
+        purge();
+        this.maxMemory = maxMemory;
+        evict(maxMemory);
+    }
+
+    /** @return the maximum number of bytes held by the cached tiles */
+    public synchronized long getMaxMemory() {
+        return this.maxMemory;
+    }
+
+    /** @return the number of bytes currently held by the cached tiles */
+    public synchronized long getMemoryUsage() {
+        purge();
+        return this.memoryUsage;
+    }
+
+    /** @return the number of tiles in the cache */
+    public synchronized int getTileCount() {
+        purge();
+        return tiles.size();
+    }
+
+    /** @return the number of successful lookups */
+    public synchronized long getHitCount() {
+        return this.hits;
+    }
+
+    /** @return the number of unsuccessful lookups */
+    public synchronized long getMissCount() {
+        return this.misses;
+    }
+
+    /** @return the number of tiles evicted to stay within the memory limit */
+    public synchronized long getEvictionCount() {
+        return this.evictions;
+    }
+
+    /** Resets the hit, miss and eviction counters. */
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /** {@inheritDoc} */
+    public synchronized String toString() {
+        return "TileCache[tiles=" + tiles.size() + ", memory=" + memoryUsage + "/" + maxMemory
+                + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+
+    /**
+     * Returns the number of bytes held by the data buffer of a raster.
+     * @param raster the raster
+     * @return the size in bytes
+     */
+    static long getSize(Raster raster) {
+        DataBuffer db = raster.getDataBuffer();
+        long bits = (long)DataBuffer.getDataTypeSize(db.getDataType())
+                * db.getSize() * db.getNumBanks();
+        return (bits + 7) / 8;
+    }
+
+    /** Weak reference to the owner of tiles, compared by identity. */
+    private static final class OwnerRef extends WeakReference {
+
+        private final Integer hash;
+        private final Set keys = new java.util.HashSet(); //Set<Key>
+
+        public OwnerRef(CachableRed owner, Integer hash, ReferenceQueue queue) {
+            super(owner, queue);
+            this.hash = hash;
+        }
+    }
+
+    private static final class Key {
+
+        private final OwnerRef ref;
+        private final int tileX;
+        private final int tileY;
+
+        public Key(OwnerRef ref, int tileX, int tileY) {
+            this.ref = ref;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)obj;
+            return ref == other.ref && tileX == other.tileX && tileY == other.tileY;
+        }
+
+        public int hashCode() {
+            return (ref.hash.intValue() * 31 + tileX) * 31 + tileY;
+        }
+    }
+
+    private static final class Entry {
+
+        private final Raster tile;
+        private final long size;
+
+        public Entry(Raster tile, long size) {
+            this.tile = tile;
+            this.size = size;
+        }
+    }
+
+}
@@ -21,7 +21,6 @@ package org.apache.xmlgraphics.image.writer;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -31,13 +30,20 @@ import org.apache.xmlgraphics.util.Service;
 
 /**
  * Registry for {@link ImageWriter} implementations.
+ * <p>
+ * Lookups through {@link #getWriterFor(String)} don't lock: registrations replace the
+ * internal map with an updated copy.
+ * <p>
+ * Writers discovered on the classpath which are listed in the provider index generated by
+ * the build (see {@link Service#getProviderIndex(Class)}) are only instantiated when they are
+ * first requested. Other writers are instantiated during setup to find out their MIME type.
  */
 public class ImageWriterRegistry {
 
     private static volatile ImageWriterRegistry instance;
 
-    private Map<String, List<ImageWriter>> imageWriterMap
-            = new java.util.HashMap<String, List<ImageWriter>>();
+    private volatile Map<String, List<WriterEntry>> imageWriterMap
+            = new java.util.HashMap<String, List<WriterEntry>>();
     private Map<String, Integer> preferredOrder;
 
     /**
@@ -94,15 +100,24 @@ public class ImageWriterRegistry {
     }
 
     private void setup() {
-        Iterator iter = Service.providers(ImageWriter.class);
-        while (iter.hasNext()) {
-            ImageWriter writer = (ImageWriter)iter.next();
-            register(writer);
+        Map<String, String[]> index = Service.getProviderIndex(ImageWriter.class);
+        for (Service.Provider<ImageWriter> provider : Service.lazyProviders(ImageWriter.class)) {
+            String[] mimes = index.get(provider.getClassName());
+            if (mimes != null) {
+                for (String mime : mimes) {
+                    register(mime, new WriterEntry(provider));
+                }
+            } else {
+                ImageWriter writer = provider.getInstance();
+                if (writer != null) {
+                    register(writer);
+                }
+            }
         }
     }
 
-    private int getPriority(ImageWriter writer) {
-        String key = writer.getClass().getName();
+    private int getPriority(String className) {
+        String key = className;
         Integer value = preferredOrder.get(key);
         while (value == null) {
             int pos = key.lastIndexOf(".");
@@ -122,7 +137,7 @@ public class ImageWriterRegistry {
      * @param priority the priority of the writer in the registry.
      * @see #register(ImageWriter)
      */
-    public void register(ImageWriter writer, int priority) {
+    public synchronized void register(ImageWriter writer, int priority) {
 
         String key = writer.getClass().getName();
         // Register the priority to preferredOrder; overwrite original priority if exists
@@ -137,22 +152,31 @@ public class ImageWriterRegistry {
      * @param writer the ImageWriter instance to register.
      */
     public synchronized void register(ImageWriter writer) {
-        List<ImageWriter> entries = imageWriterMap.get(writer.getMIMEType());
+        register(writer.getMIMEType(), new WriterEntry(writer));
+    }
+
+    private synchronized void register(String mime, WriterEntry entry) {
+        Map<String, List<WriterEntry>> map
+                = new java.util.HashMap<String, List<WriterEntry>>(imageWriterMap);
+        List<WriterEntry> entries = map.get(mime);
         if (entries == null) {
-            entries = new java.util.ArrayList<ImageWriter>();
-            imageWriterMap.put(writer.getMIMEType(), entries);
+            entries = new java.util.ArrayList<WriterEntry>();
+        } else {
+            entries = new java.util.ArrayList<WriterEntry>(entries);
         }
+        map.put(mime, entries);
 
-        int priority = getPriority(writer);
-        ListIterator<ImageWriter> li = entries.listIterator();
+        int priority = getPriority(entry.className);
+        ListIterator<WriterEntry> li = entries.listIterator();
         while (li.hasNext()) {
-            ImageWriter w = li.next();
-            if (getPriority(w) < priority) {
+            WriterEntry e = li.next();
+            if (getPriority(e.className) < priority) {
                 li.previous();
                 break;
             }
         }
-        li.add(writer);
+        li.add(entry);
+        this.imageWriterMap = map;
     }
 
     /**
@@ -161,19 +185,45 @@ public class ImageWriterRegistry {
      * @return a functional ImageWriter instance handling the desired output format or
      *         null if none can be found.
      */
-    public synchronized ImageWriter getWriterFor(String mime) {
-        List<ImageWriter> entries = imageWriterMap.get(mime);
+    public ImageWriter getWriterFor(String mime) {
+        List<WriterEntry> entries = imageWriterMap.get(mime);
         if (entries == null) {
             return null;
         }
-        Iterator<ImageWriter> iter = entries.iterator();
-        while (iter.hasNext()) {
-            ImageWriter writer = iter.next();
-            if (writer.isFunctional()) {
+        for (WriterEntry entry : entries) {
+            ImageWriter writer = entry.getWriter();
+            if (writer != null && writer.isFunctional()) {
                 return writer;
             }
         }
         return null;
     }
 
+    /**
+     * An image writer in the registry, either already instantiated or a handle for a writer
+     * which is instantiated on first use.
+     */
+    private static final class WriterEntry {
+
+        private final String className;
+        private final ImageWriter writer;
+        private final Service.Provider<ImageWriter> provider;
+
+        public WriterEntry(ImageWriter writer) {
+            this.className = writer.getClass().getName();
+            this.writer = writer;
+            this.provider = null;
+        }
+
+        public WriterEntry(Service.Provider<ImageWriter> provider) {
+            this.className = provider.getClassName();
+            this.writer = null;
+            this.provider = provider;
+        }
+
+        public ImageWriter getWriter() {
+            return (writer != null) ? writer : provider.getInstance();
+        }
+    }
+
 }
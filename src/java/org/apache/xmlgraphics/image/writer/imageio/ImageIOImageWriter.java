@@ -23,6 +23,7 @@ import java.awt.image.RenderedImage;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Iterator;
+import java.util.LinkedList;
 
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
@@ -32,6 +33,7 @@ import javax.imageio.event.IIOWriteWarningListener;
 import javax.imageio.metadata.IIOInvalidTreeException;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.spi.ImageWriterSpi;
 import javax.imageio.stream.ImageOutputStream;
 
 import org.w3c.dom.Node;
@@ -45,6 +47,10 @@ import org.apache.xmlgraphics.util.UnitConv;
 
 /**
  * ImageWriter implementation that uses Image I/O to write images.
+ * <p>
+ * The Image I/O writer provider is only looked up once. Image I/O writers are reset after use
+ * and kept in a small pool so they can be reused by subsequent calls to
+ * {@link #writeImage(RenderedImage, OutputStream, ImageWriterParams)}.
  *
  * @version $Id$
  */
@@ -56,8 +62,22 @@ public class ImageIOImageWriter implements ImageWriter, IIOWriteWarningListener
 
     private static final String STANDARD_METADATA_FORMAT = "javax_imageio_1.0";
 
+    /** Maximum number of idle Image I/O writers kept for reuse */
+    private static final int MAX_POOLED_WRITERS = Runtime.getRuntime().availableProcessors();
+
     private String targetMIME;
 
+    private volatile ImageWriterSpi writerSpi;
+    private final LinkedList<javax.imageio.ImageWriter> writerPool
+            = new LinkedList<javax.imageio.ImageWriter>();
+
+    /**
+     * Indicates whether the pixel size in the standard metadata has to be specified in dots
+     * per millimeter instead of millimeters per dot to work around a bug in the codec.
+     * Null until determined for the first image.
+     */
+    private volatile Boolean compensatePixelSize;
+
     /**
      * Main constructor.
      * @param mime the MIME type of the image format
@@ -75,9 +95,19 @@ public class ImageIOImageWriter implements ImageWriter, IIOWriteWarningListener
     public void writeImage(RenderedImage image, OutputStream out,
             ImageWriterParams params)
                 throws IOException {
-        javax.imageio.ImageWriter iiowriter = getIIOImageWriter();
-        iiowriter.addIIOWriteWarningListener(this);
+        javax.imageio.ImageWriter iiowriter = borrowIIOImageWriter();
+        boolean reusable = false;
+        try {
+            iiowriter.addIIOWriteWarningListener(this);
+            writeImage(iiowriter, image, out, params);
+            reusable = true;
+        } finally {
+            returnIIOImageWriter(iiowriter, reusable);
+        }
+    }
 
+    private void writeImage(javax.imageio.ImageWriter iiowriter, RenderedImage image,
+            OutputStream out, ImageWriterParams params) throws IOException {
         ImageOutputStream imgout = ImageIO.createImageOutputStream(out);
         try {
 
@@ -105,11 +135,18 @@ public class ImageIOImageWriter implements ImageWriter, IIOWriteWarningListener
 
         } finally {
             imgout.close();
-            iiowriter.dispose();
         }
     }
 
     private javax.imageio.ImageWriter getIIOImageWriter() {
+        ImageWriterSpi spi = this.writerSpi;
+        if (spi != null) {
+            try {
+                return spi.createWriterInstance();
+            } catch (IOException ioe) {
+                //ignore and look up the writer again
+            }
+        }
         Iterator<javax.imageio.ImageWriter> iter = ImageIO.getImageWritersByMIMEType(getMIMEType());
         javax.imageio.ImageWriter iiowriter = null;
         if (iter.hasNext()) {
@@ -119,9 +156,33 @@ public class ImageIOImageWriter implements ImageWriter, IIOWriteWarningListener
             throw new UnsupportedOperationException("No ImageIO codec for writing "
                     + getMIMEType() + " is available!");
         }
+        this.writerSpi = iiowriter.getOriginatingProvider();
         return iiowriter;
     }
 
+    private javax.imageio.ImageWriter borrowIIOImageWriter() {
+        synchronized (writerPool) {
+            if (!writerPool.isEmpty()) {
+                return writerPool.removeFirst();
+            }
+        }
+        return getIIOImageWriter();
+    }
+
+    private void returnIIOImageWriter(javax.imageio.ImageWriter iiowriter, boolean reusable) {
+        if (reusable) {
+            //Removes the output, the listeners and any other state
+            iiowriter.reset();
+            synchronized (writerPool) {
+                if (writerPool.size() < MAX_POOLED_WRITERS) {
+                    writerPool.addFirst(iiowriter);
+                    return;
+                }
+            }
+        }
+        iiowriter.dispose();
+    }
+
     /**
      * Returns the default write parameters for encoding the image.
      * @param iiowriter The IIO ImageWriter that will be used
@@ -159,12 +220,21 @@ public class ImageIOImageWriter implements ImageWriter, IIOWriteWarningListener
             double pixelWidthInMillimeters = multiplier / params.getXResolution().doubleValue();
             double pixelHeightInMillimeters = multiplier / params.getYResolution().doubleValue();
 
-            //Try with the right value as per the ImageIO spec
-            updatePixelSize(meta, pixelWidthInMillimeters, pixelHeightInMillimeters);
-
-            //Check the merge result
-            double checkMerged = getHorizontalPixelSize(meta);
-            if (!equals(checkMerged, pixelWidthInMillimeters, 0.00001)) {
+            Boolean compensate = this.compensatePixelSize;
+            if (compensate == null) {
+                //Try with the right value as per the ImageIO spec
+                updatePixelSize(meta, pixelWidthInMillimeters, pixelHeightInMillimeters);
+
+                //Check the merge result
+                double checkMerged = getHorizontalPixelSize(meta);
+                compensate = Boolean.valueOf(
+                        !equals(checkMerged, pixelWidthInMillimeters, 0.00001));
+                //The behaviour depends on the codec only, so only check once
+                this.compensatePixelSize = compensate;
+            } else if (!compensate.booleanValue()) {
+                updatePixelSize(meta, pixelWidthInMillimeters, pixelHeightInMillimeters);
+            }
+            if (compensate.booleanValue()) {
                 //Merging bug in Sun/Oracle JRE encountered
                 //Try compensation strategy for PNG bug:
                 //http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=5106305
@@ -243,9 +313,18 @@ public class ImageIOImageWriter implements ImageWriter, IIOWriteWarningListener
 
     /** {@inheritDoc} */
     public boolean isFunctional() {
+        if (this.writerSpi != null) {
+            return true;
+        }
         Iterator<javax.imageio.ImageWriter> iter = ImageIO.getImageWritersByMIMEType(getMIMEType());
         //Only return true if an IIO ImageWriter is available in the current environment
-        return (iter.hasNext());
+        if (iter.hasNext()) {
+            javax.imageio.ImageWriter iiowriter = iter.next();
+            this.writerSpi = iiowriter.getOriginatingProvider();
+            returnIIOImageWriter(iiowriter, true);
+            return true;
+        }
+        return false;
     }
 
     /** {@inheritDoc} */
@@ -262,11 +341,11 @@ public class ImageIOImageWriter implements ImageWriter, IIOWriteWarningListener
 
     /** {@inheritDoc} */
     public boolean supportsMultiImageWriter() {
-        javax.imageio.ImageWriter iiowriter = getIIOImageWriter();
+        javax.imageio.ImageWriter iiowriter = borrowIIOImageWriter();
         try {
             return iiowriter.canWriteSequence();
         } finally {
-            iiowriter.dispose();
+            returnIIOImageWriter(iiowriter, true);
         }
     }
 
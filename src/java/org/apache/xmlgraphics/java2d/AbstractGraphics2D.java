@@ -987,7 +987,7 @@ public abstract class AbstractGraphics2D extends Graphics2D implements Cloneable
      * @see #setClip(Shape)
      */
     public void drawGlyphVector(GlyphVector g, float x, float y){
-        Shape glyphOutline = g.getOutline(x, y);
+        Shape glyphOutline = GlyphOutlineCache.getDefaultCache().getOutline(g, x, y);
         fill(glyphOutline);
     }
 
@@ -0,0 +1,396 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.java2d;
+
+import java.awt.Font;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.FlatteningPathIterator;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache for glyph outlines used when text is painted as shapes. Outlines are keyed by the
+ * font (which includes its size and transform), the font render context (which includes the
+ * device transform) and the glyph code. Since equal fonts can be backed by different physical
+ * fonts (for example, two fonts with the same name created with
+ * {@link Font#createFont(int, java.io.InputStream)}), the font's face name and number of
+ * glyphs are part of the key as well. The cache doesn't hold references to the fonts. {@link #getOutline(GlyphVector, float, float)} returns
+ * a shape whose path iterator streams the cached path segments of all glyphs, translated to
+ * the glyph positions, without building a combined path first.
+ * <p>
+ * When the cache holds more than the maximum number of glyphs, it is cleared.
+ * <p>
+ * This class is thread-safe.
+ */
+public class GlyphOutlineCache {
+
+    /** Default maximum number of glyphs in the default cache */
+    public static final int DEFAULT_MAX_GLYPHS = 10000;
+
+    private static final GlyphOutlineCache DEFAULT_CACHE
+            = new GlyphOutlineCache(DEFAULT_MAX_GLYPHS);
+
+    private final Map<GlyphKey, GlyphOutline> outlines
+            = new ConcurrentHashMap<GlyphKey, GlyphOutline>();
+    private final int maxGlyphs;
+
+    /**
+     * Creates a new glyph outline cache.
+     * @param maxGlyphs the maximum number of glyphs held by the cache
+     */
+    public GlyphOutlineCache(int maxGlyphs) {
+        this.maxGlyphs = maxGlyphs;
+    }
+
+    /**
+     * Returns the shared default glyph outline cache.
+     * @return the default cache
+     */
+    public static GlyphOutlineCache getDefaultCache() {
+        return DEFAULT_CACHE;
+    }
+
+    /**
+     * Returns the outline of a glyph vector like {@link GlyphVector#getOutline(float, float)}
+     * using the cached glyph outlines. Glyph vectors with per-glyph transforms are not cached.
+     * @param gv the glyph vector
+     * @param x the x coordinate of the glyph vector's origin
+     * @param y the y coordinate of the glyph vector's origin
+     * @return the outline
+     */
+    public Shape getOutline(GlyphVector gv, float x, float y) {
+        if ((gv.getLayoutFlags() & GlyphVector.FLAG_HAS_TRANSFORMS) != 0) {
+            return gv.getOutline(x, y);
+        }
+        Font font = gv.getFont();
+        FontKey fontKey = new FontKey(font);
+        FontRenderContext frc = gv.getFontRenderContext();
+        int count = gv.getNumGlyphs();
+        GlyphOutline[] glyphs = new GlyphOutline[count];
+        float[] offsets = new float[count * 2];
+        for (int i = 0; i < count; i++) {
+            glyphs[i] = getGlyphOutline(font, fontKey, frc, gv.getGlyphCode(i));
+            Point2D pos = gv.getGlyphPosition(i);
+            offsets[i * 2] = x + (float)pos.getX();
+            offsets[i * 2 + 1] = y + (float)pos.getY();
+        }
+        return new GlyphsShape(glyphs, offsets);
+    }
+
+    private GlyphOutline getGlyphOutline(Font font, FontKey fontKey, FontRenderContext frc,
+            int glyphCode) {
+        GlyphKey key = new GlyphKey(fontKey, frc, glyphCode);
+        GlyphOutline outline = outlines.get(key);
+        if (outline == null) {
+            GlyphVector gv = font.createGlyphVector(frc, new int[] {glyphCode});
+            outline = new GlyphOutline(gv.getGlyphOutline(0));
+            if (outlines.size() >= maxGlyphs) {
+                outlines.clear();
+            }
+            outlines.put(key, outline);
+        }
+        return outline;
+    }
+
+    /** @return the number of glyphs in the cache */
+    public int getGlyphCount() {
+        return outlines.size();
+    }
+
+    /** Removes all glyphs from the cache. */
+    public void clear() {
+        outlines.clear();
+    }
+
+    /**
+     * Identifies a font by its attributes (which {@link Font#equals(Object)} compares) and its
+     * physical font, without holding a reference to the Font itself.
+     */
+    private static final class FontKey {
+
+        private final Map<?, ?> attributes;
+        private final String fontName;
+        private final int numGlyphs;
+        private final int hash;
+
+        public FontKey(Font font) {
+            this.attributes = font.getAttributes();
+            this.fontName = font.getFontName();
+            this.numGlyphs = font.getNumGlyphs();
+            this.hash = (attributes.hashCode() * 31 + fontName.hashCode()) * 31 + numGlyphs;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FontKey)) {
+                return false;
+            }
+            FontKey other = (FontKey)obj;
+            return hash == other.hash && numGlyphs == other.numGlyphs
+                    && fontName.equals(other.fontName) && attributes.equals(other.attributes);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class GlyphKey {
+
+        private final FontKey font;
+        private final FontRenderContext frc;
+        private final int glyphCode;
+
+        public GlyphKey(FontKey font, FontRenderContext frc, int glyphCode) {
+            this.font = font;
+            this.frc = frc;
+            this.glyphCode = glyphCode;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof GlyphKey)) {
+                return false;
+            }
+            GlyphKey other = (GlyphKey)obj;
+            return glyphCode == other.glyphCode && font.equals(other.font)
+                    && frc.equals(other.frc);
+        }
+
+        public int hashCode() {
+            return (font.hashCode() * 31 + frc.hashCode()) * 31 + glyphCode;
+        }
+    }
+
+    /** The path segments of a glyph outline at the origin. */
+    private static final class GlyphOutline {
+
+        private final byte[] types;
+        private final float[] coords;
+        private final Rectangle2D bounds;
+
+        public GlyphOutline(Shape outline) {
+            PathIterator iter = outline.getPathIterator(null);
+            byte[] t = new byte[16];
+            float[] c = new float[64];
+            int segments = 0;
+            int coordCount = 0;
+            float[] seg = new float[6];
+            while (!iter.isDone()) {
+                int type = iter.currentSegment(seg);
+                int n = getCoordCount(type);
+                if (segments == t.length) {
+                    t = copyOf(t, segments * 2);
+                }
+                if (coordCount + n > c.length) {
+                    c = copyOf(c, Math.max(c.length * 2, coordCount + n));
+                }
+                t[segments++] = (byte)type;
+                System.arraycopy(seg, 0, c, coordCount, n);
+                coordCount += n;
+                iter.next();
+            }
+            this.types = copyOf(t, segments);
+            this.coords = copyOf(c, coordCount);
+            this.bounds = outline.getBounds2D();
+        }
+
+        private static byte[] copyOf(byte[] src, int length) {
+            byte[] dest = new byte[length];
+            System.arraycopy(src, 0, dest, 0, Math.min(src.length, length));
+            return dest;
+        }
+
+        private static float[] copyOf(float[] src, int length) {
+            float[] dest = new float[length];
+            System.arraycopy(src, 0, dest, 0, Math.min(src.length, length));
+            return dest;
+        }
+    }
+
+    private static int getCoordCount(int type) {
+        switch (type) {
+        case PathIterator.SEG_MOVETO:
+        case PathIterator.SEG_LINETO:
+            return 2;
+        case PathIterator.SEG_QUADTO:
+            return 4;
+        case PathIterator.SEG_CUBICTO:
+            return 6;
+        default:
+            return 0;
+        }
+    }
+
+    /** A shape made of cached glyph outlines at given offsets. */
+    private static final class GlyphsShape implements Shape {
+
+        private final GlyphOutline[] glyphs;
+        private final float[] offsets;
+        private GeneralPath path;
+
+        public GlyphsShape(GlyphOutline[] glyphs, float[] offsets) {
+            this.glyphs = glyphs;
+            this.offsets = offsets;
+        }
+
+        private synchronized GeneralPath getPath() {
+            if (path == null) {
+                path = new GeneralPath(PathIterator.WIND_NON_ZERO);
+                path.append(getPathIterator(null), false);
+            }
+            return path;
+        }
+
+        public Rectangle getBounds() {
+            return getBounds2D().getBounds();
+        }
+
+        public Rectangle2D getBounds2D() {
+            Rectangle2D bounds = null;
+            for (int i = 0; i < glyphs.length; i++) {
+                Rectangle2D b = glyphs[i].bounds;
+                if (b.isEmpty()) {
+                    continue;
+                }
+                Rectangle2D.Float r = new Rectangle2D.Float(
+                        (float)b.getX() + offsets[i * 2], (float)b.getY() + offsets[i * 2 + 1],
+                        (float)b.getWidth(), (float)b.getHeight());
+                if (bounds == null) {
+                    bounds = r;
+                } else {
+                    bounds.add(r);
+                }
+            }
+            return (bounds != null) ? bounds : new Rectangle2D.Float();
+        }
+
+        public boolean contains(double x, double y) {
+            return getPath().contains(x, y);
+        }
+
+        public boolean contains(Point2D p) {
+            return getPath().contains(p);
+        }
+
+        public boolean intersects(double x, double y, double w, double h) {
+            return getPath().intersects(x, y, w, h);
+        }
+
+        public boolean intersects(Rectangle2D r) {
+            return getPath().intersects(r);
+        }
+
+        public boolean contains(double x, double y, double w, double h) {
+            return getPath().contains(x, y, w, h);
+        }
+
+        public boolean contains(Rectangle2D r) {
+            return getPath().contains(r);
+        }
+
+        public PathIterator getPathIterator(AffineTransform at) {
+            return new GlyphsPathIterator(glyphs, offsets, at);
+        }
+
+        public PathIterator getPathIterator(AffineTransform at, double flatness) {
+            return new FlatteningPathIterator(getPathIterator(at), flatness);
+        }
+    }
+
+    /** Iterates over the segments of all glyphs of a {@link GlyphsShape}. */
+    private static final class GlyphsPathIterator implements PathIterator {
+
+        private final GlyphOutline[] glyphs;
+        private final float[] offsets;
+        private final AffineTransform transform;
+        private int glyph;
+        private int segment;
+        private int coord;
+
+        public GlyphsPathIterator(GlyphOutline[] glyphs, float[] offsets, AffineTransform at) {
+            this.glyphs = glyphs;
+            this.offsets = offsets;
+            this.transform = (at != null && !at.isIdentity()) ? at : null;
+            skipEmptyGlyphs();
+        }
+
+        private void skipEmptyGlyphs() {
+            while (glyph < glyphs.length && segment >= glyphs[glyph].types.length) {
+                glyph++;
+                segment = 0;
+                coord = 0;
+            }
+        }
+
+        public int getWindingRule() {
+            return WIND_NON_ZERO;
+        }
+
+        public boolean isDone() {
+            return glyph >= glyphs.length;
+        }
+
+        public void next() {
+            coord += getCoordCount(glyphs[glyph].types[segment]);
+            segment++;
+            skipEmptyGlyphs();
+        }
+
+        public int currentSegment(float[] coords) {
+            GlyphOutline outline = glyphs[glyph];
+            int type = outline.types[segment];
+            int n = getCoordCount(type);
+            float dx = offsets[glyph * 2];
+            float dy = offsets[glyph * 2 + 1];
+            for (int i = 0; i < n; i += 2) {
+                coords[i] = outline.coords[coord + i] + dx;
+                coords[i + 1] = outline.coords[coord + i + 1] + dy;
+            }
+            if (transform != null) {
+                transform.transform(coords, 0, coords, 0, n / 2);
+            }
+            return type;
+        }
+
+        public int currentSegment(double[] coords) {
+            GlyphOutline outline = glyphs[glyph];
+            int type = outline.types[segment];
+            int n = getCoordCount(type);
+            float dx = offsets[glyph * 2];
+            float dy = offsets[glyph * 2 + 1];
+            for (int i = 0; i < n; i += 2) {
+                coords[i] = outline.coords[coord + i] + dx;
+                coords[i + 1] = outline.coords[coord + i + 1] + dy;
+            }
+            if (transform != null) {
+                transform.transform(coords, 0, coords, 0, n / 2);
+            }
+            return type;
+        }
+    }
+
+}
@@ -51,6 +51,12 @@ import java.util.Map;
  * + Clip <br>
  * + RenderingHints <br>
  * + AffineTransform <br>
+ * <p>
+ * Copies made with {@link #clone()} share the mutable parts of the state (transform,
+ * transform stack and rendering hints) with the original until either instance modifies them
+ * (copy-on-write), so creating a copy is cheap. The clip shape is always replaced, never
+ * modified, and is simply shared. Subclasses which access the protected fields directly must
+ * not modify these objects in place.
  *
  * @version $Id$
  *
@@ -60,7 +66,7 @@ public class GraphicContext implements Cloneable{
     /**
      * Default Transform to be used for creating FontRenderContext.
      */
-    protected AffineTransform defaultTransform = new AffineTransform();
+    protected AffineTransform defaultTransform;
 
     /**
      * Current AffineTransform. This is the concatenation
@@ -68,12 +74,12 @@ public class GraphicContext implements Cloneable{
      * invocation) and the following transform invocations,
      * as captured by originalTransform and the transformStack.
      */
-    protected AffineTransform transform = new AffineTransform();
+    protected AffineTransform transform;
 
     /**
      * Transform stack
      */
-    protected List transformStack = new ArrayList();
+    protected List transformStack;
 
     /**
      * Defines whether the transform stack is valid or not.
@@ -89,47 +95,62 @@ public class GraphicContext implements Cloneable{
     /**
      * Current Paint
      */
-    protected Paint paint = Color.black;
+    protected Paint paint;
 
     /**
      * Current Stroke
      */
-    protected Stroke stroke = new BasicStroke();
+    protected Stroke stroke;
 
     /**
      * Current Composite
      */
-    protected Composite composite = AlphaComposite.SrcOver;
+    protected Composite composite;
 
     /**
      * Current clip
      */
-    protected Shape clip = null;
+    protected Shape clip;
 
     /**
      * Current set of RenderingHints
      */
-    protected RenderingHints hints = new RenderingHints(null);
+    protected RenderingHints hints;
 
     /**
      * Current Font
      */
-    protected Font font = new Font("sanserif", Font.PLAIN, 12);
+    protected Font font;
 
     /**
      * Current background color.
      */
-    protected Color background = new Color(0, 0, 0, 0);
+    protected Color background;
 
     /**
      * Current foreground color
      */
-    protected Color foreground = Color.black;
+    protected Color foreground;
+
+    /* Copy-on-write state: true if the object is shared with another instance */
+    private boolean transformShared;
+    private boolean transformStackShared;
+    private boolean hintsShared;
 
     /**
      * Default constructor
      */
     public GraphicContext() {
+        defaultTransform = new AffineTransform();
+        transform = new AffineTransform();
+        transformStack = new ArrayList();
+        paint = Color.black;
+        stroke = new BasicStroke();
+        composite = AlphaComposite.SrcOver;
+        hints = new RenderingHints(null);
+        font = new Font("sanserif", Font.PLAIN, 12);
+        background = new Color(0, 0, 0, 0);
+        foreground = Color.black;
         // to workaround a JDK bug
         hints.put(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_DEFAULT);
     }
@@ -152,24 +173,22 @@ public class GraphicContext implements Cloneable{
      * @param template the instance to make a copy of
      */
     protected GraphicContext(GraphicContext template) {
-        this(template.defaultTransform);
         //
         // Now, copy each GC element in turn
         //
 
-        // Default transform
-        /* Set in constructor */
+        // Default transform (never modified)
+        this.defaultTransform = template.defaultTransform;
 
-        // Transform
-        this.transform = new AffineTransform(template.transform);
+        // Transform (copy-on-write)
+        this.transform = template.transform;
+        this.transformShared = true;
+        template.transformShared = true;
 
-        // Transform stack
-        this.transformStack = new ArrayList(template.transformStack.size());
-        for (int i = 0; i < template.transformStack.size(); i++) {
-            TransformStackElement stackElement
-                = (TransformStackElement)template.transformStack.get(i);
-            this.transformStack.add(stackElement.clone());
-        }
+        // Transform stack (copy-on-write)
+        this.transformStack = template.transformStack;
+        this.transformStackShared = true;
+        template.transformStackShared = true;
 
         // Transform stack validity
         this.transformStackValid = template.transformStackValid;
@@ -183,15 +202,13 @@ public class GraphicContext implements Cloneable{
         // Composite (immutable by requirement)
         this.composite = template.composite;
 
-        // Clip
-        if (template.clip != null) {
-            this.clip = new GeneralPath(template.clip);
-        } else {
-            this.clip = null;
-        }
+        // Clip (replaced, never modified)
+        this.clip = template.clip;
 
-        // RenderingHints
-        this.hints = (RenderingHints)template.hints.clone();
+        // RenderingHints (copy-on-write)
+        this.hints = template.hints;
+        this.hintsShared = true;
+        template.hintsShared = true;
 
         // Font (immutable)
         this.font = template.font;
@@ -201,6 +218,44 @@ public class GraphicContext implements Cloneable{
         this.foreground = template.foreground;
     }
 
+    /**
+     * Makes sure the transform is not shared with another instance before it is modified.
+     */
+    private void ownTransform() {
+        if (transformShared) {
+            transform = new AffineTransform(transform);
+            transformShared = false;
+        }
+    }
+
+    /**
+     * Makes sure the transform stack and its elements are not shared with another instance
+     * before they are modified or handed out.
+     */
+    private void ownTransformStack() {
+        if (transformStackShared) {
+            List stack = new ArrayList(transformStack.size());
+            for (int i = 0; i < transformStack.size(); i++) {
+                TransformStackElement stackElement
+                    = (TransformStackElement)transformStack.get(i);
+                stack.add(stackElement.clone());
+            }
+            transformStack = stack;
+            transformStackShared = false;
+        }
+    }
+
+    /**
+     * Makes sure the rendering hints are not shared with another instance before they are
+     * modified or handed out.
+     */
+    private void ownHints() {
+        if (hintsShared) {
+            hints = (RenderingHints)hints.clone();
+            hintsShared = false;
+        }
+    }
+
     /**
      * @return a deep copy of this context
      */
@@ -454,6 +509,7 @@ public class GraphicContext implements Cloneable{
      * @see RenderingHints
      */
     public void setRenderingHint(RenderingHints.Key hintKey, Object hintValue){
+        ownHints();
         hints.put(hintKey, hintValue);
     }
 
@@ -490,6 +546,7 @@ public class GraphicContext implements Cloneable{
      */
     public void setRenderingHints(Map hints){
         this.hints = new RenderingHints(hints);
+        this.hintsShared = false;
     }
 
 
@@ -508,6 +565,7 @@ public class GraphicContext implements Cloneable{
      * @see RenderingHints
      */
     public void addRenderingHints(Map hints){
+        ownHints();
         this.hints.putAll(hints);
     }
 
@@ -525,6 +583,7 @@ public class GraphicContext implements Cloneable{
      * @see RenderingHints
      */
     public RenderingHints getRenderingHints(){
+        ownHints();
         return hints;
     }
 
@@ -541,6 +600,8 @@ public class GraphicContext implements Cloneable{
      */
     public void translate(int x, int y){
         if(x!=0 || y!=0){
+            ownTransform();
+            ownTransformStack();
             transform.translate(x, y);
             transformStack.add(TransformStackElement.createTranslateElement(x, y));
         }
@@ -564,6 +625,8 @@ public class GraphicContext implements Cloneable{
      * @param ty the distance to translate along the y-axis
      */
     public void translate(double tx, double ty){
+        ownTransform();
+        ownTransformStack();
         transform.translate(tx, ty);
         transformStack.add(TransformStackElement.createTranslateElement(tx, ty));
     }
@@ -585,6 +648,8 @@ public class GraphicContext implements Cloneable{
      * @param theta the angle of rotation in radians
      */
     public void rotate(double theta){
+        ownTransform();
+        ownTransformStack();
         transform.rotate(theta);
         transformStack.add(TransformStackElement.createRotateElement(theta));
     }
@@ -609,6 +674,8 @@ public class GraphicContext implements Cloneable{
      * @param y y coordinate of the origin of the rotation
      */
     public void rotate(double theta, double x, double y){
+        ownTransform();
+        ownTransformStack();
         transform.rotate(theta, x, y);
         transformStack.add(TransformStackElement.createTranslateElement(x, y));
         transformStack.add(TransformStackElement.createRotateElement(theta));
@@ -635,6 +702,8 @@ public class GraphicContext implements Cloneable{
      * rendering operations.
      */
     public void scale(double sx, double sy){
+        ownTransform();
+        ownTransformStack();
         transform.scale(sx, sy);
         transformStack.add(TransformStackElement.createScaleElement(sx, sy));
     }
@@ -658,6 +727,8 @@ public class GraphicContext implements Cloneable{
      * the positive Y axis direction as a function of their X coordinate
      */
     public void shear(double shx, double shy){
+        ownTransform();
+        ownTransformStack();
         transform.shear(shx, shy);
         transformStack.add(TransformStackElement.createShearElement(shx, shy));
     }
@@ -680,6 +751,8 @@ public class GraphicContext implements Cloneable{
      * @see AffineTransform
      */
     public void transform(AffineTransform Tx){
+        ownTransform();
+        ownTransformStack();
         transform.concatenate(Tx);
         transformStack.add(TransformStackElement.createGeneralTransformElement(Tx));
     }
@@ -694,6 +767,7 @@ public class GraphicContext implements Cloneable{
      */
     public void setTransform(AffineTransform Tx){
         transform = new AffineTransform(Tx);
+        transformShared = false;
         invalidateTransformStack();
         if(!Tx.isIdentity()) {
             transformStack.add(TransformStackElement.createGeneralTransformElement(Tx));
@@ -723,6 +797,7 @@ public class GraphicContext implements Cloneable{
      *         were concatenated with the original one.
      */
     public TransformStackElement[] getTransformStack(){
+        ownTransformStack();
         TransformStackElement[] stack = new TransformStackElement[transformStack.size()];
         transformStack.toArray(stack);
         return stack;
@@ -735,7 +810,12 @@ public class GraphicContext implements Cloneable{
      * can override this memento
      */
     protected void invalidateTransformStack(){
-        transformStack.clear();
+        if (transformStackShared) {
+            transformStack = new ArrayList();
+            transformStackShared = false;
+        } else {
+            transformStack.clear();
+        }
         transformStackValid = false;
     }
 
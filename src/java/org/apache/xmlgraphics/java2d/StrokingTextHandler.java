@@ -27,6 +27,7 @@ import java.io.IOException;
 
 /**
  * Default TextHandler implementation which paints text using graphics primitives (shapes).
+ * The glyph outlines are taken from the {@link GlyphOutlineCache}.
  */
 public class StrokingTextHandler implements TextHandler {
 
@@ -42,7 +43,7 @@ public class StrokingTextHandler implements TextHandler {
         java.awt.Font awtFont = g2d.getFont();
         FontRenderContext frc = g2d.getFontRenderContext();
         GlyphVector gv = awtFont.createGlyphVector(frc, text);
-        Shape glyphOutline = gv.getOutline(x, y);
+        Shape glyphOutline = GlyphOutlineCache.getDefaultCache().getOutline(gv, x, y);
         g2d.fill(glyphOutline);
     }
 
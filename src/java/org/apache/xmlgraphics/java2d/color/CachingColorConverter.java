@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.java2d.color;
+
+import java.awt.Color;
+
+/**
+ * A {@link ColorConverter} that remembers the results of another converter. Useful when the
+ * same few colors are converted over and over again.
+ * <p>
+ * This class is thread-safe if the wrapped converter is.
+ */
+public class CachingColorConverter implements ColorConverter {
+
+    private final ColorConverter delegate;
+    private final ColorCache<Color> cache;
+
+    /**
+     * Creates a new converter with a cache of the default size.
+     * @param delegate the converter whose results shall be cached
+     */
+    public CachingColorConverter(ColorConverter delegate) {
+        this(delegate, ColorCache.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a new converter.
+     * @param delegate the converter whose results shall be cached
+     * @param maxSize the maximum number of cached colors
+     */
+    public CachingColorConverter(ColorConverter delegate, int maxSize) {
+        this.delegate = delegate;
+        this.cache = new ColorCache<Color>(maxSize);
+    }
+
+    /** @return the converter whose results are cached */
+    public ColorConverter getDelegate() {
+        return this.delegate;
+    }
+
+    /** {@inheritDoc} */
+    public Color convert(Color color) {
+        Color converted = cache.get(color);
+        if (converted == null) {
+            converted = delegate.convert(color);
+            cache.put(color, converted);
+        }
+        return converted;
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.java2d.color;
+
+import java.awt.Color;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A bounded, thread-safe cache for values derived from colors (for example converted colors
+ * or formatted color operators). Colors are compared with
+ * {@link ColorUtil#isSameColor(Color, Color)}, so colors with the same sRGB value but different
+ * color spaces or alternative colors are distinguished.
+ * <p>
+ * The cache is meant for the small palettes typical of documents: when it is full, it is
+ * cleared rather than evicting individual entries.
+ * @param <V> the type of the cached values
+ */
+public class ColorCache<V> {
+
+    /** The default maximum number of entries */
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private final ConcurrentMap<ColorKey, V> values = new ConcurrentHashMap<ColorKey, V>();
+    private final int maxSize;
+
+    /**
+     * Creates a new cache with the default maximum size.
+     */
+    public ColorCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a new cache.
+     * @param maxSize the maximum number of entries
+     */
+    public ColorCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the value cached for a color.
+     * @param color the color
+     * @return the value or null if there is none
+     */
+    public V get(Color color) {
+        return values.get(new ColorKey(color));
+    }
+
+    /**
+     * Caches a value for a color.
+     * @param color the color
+     * @param value the value
+     */
+    public void put(Color color, V value) {
+        if (values.size() >= maxSize) {
+            values.clear();
+        }
+        values.put(new ColorKey(color), value);
+    }
+
+    /** Removes all entries. */
+    public void clear() {
+        values.clear();
+    }
+
+    /** @return the number of entries */
+    public int size() {
+        return values.size();
+    }
+
+    private static final class ColorKey {
+
+        private final Color color;
+
+        ColorKey(Color color) {
+            this.color = color;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ColorKey)) {
+                return false;
+            }
+            Color other = ((ColorKey)obj).color;
+            return color == other || ColorUtil.isSameColor(color, other);
+        }
+
+        public int hashCode() {
+            //Same colors have the same sRGB value
+            return color.getRGB();
+        }
+    }
+
+}
@@ -0,0 +1,534 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.java2d.color;
+
+import java.awt.Point;
+import java.awt.color.CMMException;
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_ColorSpace;
+import java.awt.color.ICC_Profile;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Converts the pixels of rasters from one color space to another. Setting up a color
+ * transform (especially between ICC profiles) is expensive, so converters are cached and
+ * shared: {@link #getInstance(ColorSpace, ColorSpace, RenderingIntent)} returns the same
+ * converter for the same source profile, destination profile and rendering intent.
+ * <p>
+ * Conversions can optionally be approximated through a precomputed color lookup table
+ * (a 3D or 4D grid with multilinear interpolation) which is much faster than the exact
+ * transform for 8 bit data, and can be split into horizontal bands converted in parallel.
+ * <p>
+ * The rasters passed to a converter must only contain the color components (no alpha).
+ * This class is thread-safe.
+ */
+public final class RasterColorConverter {
+
+    private static final int MAX_CACHED_CONVERTERS = 16;
+
+    /** Minimum number of rows per band for parallel conversions */
+    private static final int MIN_BAND_HEIGHT = 32;
+
+    private static final Map CONVERTERS = new LinkedHashMap(16, 0.75f, true) {
+        private static final long serialVersionUID = -6364125563962543452L;
+
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > MAX_CACHED_CONVERTERS;
+        }
+    };
+
+    /**
+     * Profile identities of the ICC color spaces seen so far so the profile data doesn't have
+     * to be fetched and hashed on every lookup. ICC_ColorSpace doesn't override equals(), so
+     * the color spaces are compared by identity and are only weakly referenced.
+     */
+    private static final Map IDENTITIES = Collections.synchronizedMap(
+            new java.util.WeakHashMap());
+
+    private final ColorSpace sourceColorSpace;
+    private final ColorSpace targetColorSpace;
+
+    /** Idle ColorConvertOp instances (which are not thread-safe but cache their transform) */
+    private final List idleOps = new java.util.ArrayList();
+
+    private volatile LookupTable lookupTable;
+
+    private RasterColorConverter(ColorSpace sourceColorSpace, ColorSpace targetColorSpace) {
+        this.sourceColorSpace = sourceColorSpace;
+        this.targetColorSpace = targetColorSpace;
+    }
+
+    /**
+     * Returns a converter using the rendering intents of the color profiles.
+     * @param source the source color space
+     * @param target the target color space
+     * @return the converter
+     */
+    public static RasterColorConverter getInstance(ColorSpace source, ColorSpace target) {
+        return getInstance(source, target, RenderingIntent.AUTO);
+    }
+
+    /**
+     * Returns a (possibly cached) converter.
+     * @param source the source color space
+     * @param target the target color space
+     * @param intent the rendering intent ({@link RenderingIntent#AUTO} to use the intents
+     *          of the color profiles)
+     * @return the converter
+     */
+    public static RasterColorConverter getInstance(ColorSpace source, ColorSpace target,
+            RenderingIntent intent) {
+        Key key = new Key(getIdentity(source), getIdentity(target), intent);
+        synchronized (CONVERTERS) {
+            RasterColorConverter converter = (RasterColorConverter)CONVERTERS.get(key);
+            if (converter == null) {
+                converter = new RasterColorConverter(
+                        applyIntent(source, intent), applyIntent(target, intent));
+                CONVERTERS.put(key, converter);
+            }
+            return converter;
+        }
+    }
+
+    /**
+     * Removes all cached converters.
+     */
+    public static void clearCache() {
+        synchronized (CONVERTERS) {
+            CONVERTERS.clear();
+        }
+        IDENTITIES.clear();
+    }
+
+    private static Object getIdentity(ColorSpace cs) {
+        if (cs instanceof ICC_ColorSpace) {
+            //Subclasses might override equals(), so only cache plain ICC color spaces
+            boolean cacheable = (cs.getClass() == ICC_ColorSpace.class);
+            Object identity = cacheable ? IDENTITIES.get(cs) : null;
+            if (identity == null) {
+                try {
+                    identity = new ProfileIdentity(((ICC_ColorSpace)cs).getProfile().getData());
+                } catch (CMMException cmme) {
+                    //Some built-in profiles don't provide their data
+                    return cs;
+                }
+                if (cacheable) {
+                    IDENTITIES.put(cs, identity);
+                }
+            }
+            return identity;
+        } else {
+            //Other color spaces have no description we could compare
+            return cs;
+        }
+    }
+
+    private static ColorSpace applyIntent(ColorSpace cs, RenderingIntent intent) {
+        if (intent == RenderingIntent.AUTO || !(cs instanceof ICC_ColorSpace)) {
+            return cs;
+        }
+        byte[] data = ((ICC_ColorSpace)cs).getProfile().getData();
+        int pos = ICC_Profile.icHdrRenderingIntent;
+        data[pos] = 0;
+        data[pos + 1] = 0;
+        data[pos + 2] = 0;
+        data[pos + 3] = (byte)intent.getIntegerValue();
+        return new ICC_ColorSpace(ICC_Profile.getInstance(data));
+    }
+
+    /** @return the source color space */
+    public ColorSpace getSourceColorSpace() {
+        return this.sourceColorSpace;
+    }
+
+    /** @return the target color space */
+    public ColorSpace getTargetColorSpace() {
+        return this.targetColorSpace;
+    }
+
+    /**
+     * Converts a raster exactly.
+     * @param src the source raster (color components in the source color space)
+     * @param dst the target raster (of the same size)
+     */
+    public void convert(Raster src, WritableRaster dst) {
+        convert(src, dst, false, null);
+    }
+
+    /**
+     * Converts a raster.
+     * @param src the source raster (color components in the source color space)
+     * @param dst the target raster (of the same size)
+     * @param interpolate true to use the color lookup table if possible (faster, but not
+     *          exact; see {@link #isInterpolationSupported(Raster, WritableRaster)})
+     * @param executor the executor used to convert horizontal bands in parallel, or null to
+     *          convert in the calling thread
+     */
+    public void convert(Raster src, WritableRaster dst, boolean interpolate,
+            ExecutorService executor) {
+        if (src.getWidth() != dst.getWidth() || src.getHeight() != dst.getHeight()) {
+            throw new IllegalArgumentException("Source and target rasters differ in size");
+        }
+        final boolean useTable = interpolate && isInterpolationSupported(src, dst);
+        int height = dst.getHeight();
+        int bandCount = Math.min(Runtime.getRuntime().availableProcessors(),
+                height / MIN_BAND_HEIGHT);
+        if (executor == null || bandCount < 2) {
+            convertBand(src, dst, useTable);
+            return;
+        }
+
+        int bandHeight = (height + bandCount - 1) / bandCount;
+        List futures = new java.util.ArrayList(bandCount);
+        for (int y = 0; y < height; y += bandHeight) {
+            int h = Math.min(bandHeight, height - y);
+            final Raster srcBand = src.createChild(src.getMinX(), src.getMinY() + y,
+                    src.getWidth(), h, src.getMinX(), src.getMinY() + y, null);
+            final WritableRaster dstBand = dst.createWritableChild(dst.getMinX(),
+                    dst.getMinY() + y, dst.getWidth(), h, dst.getMinX(), dst.getMinY() + y, null);
+            futures.add(executor.submit(new Callable() {
+                public Object call() {
+                    convertBand(srcBand, dstBand, useTable);
+                    return null;
+                }
+            }));
+        }
+        Iterator iter = futures.iterator();
+        while (iter.hasNext()) {
+            try {
+                ((Future)iter.next()).get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while converting colors");
+            } catch (ExecutionException ee) {
+                Throwable cause = ee.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException)cause;
+                } else if (cause instanceof Error) {
+                    throw (Error)cause;
+                } else {
+                    throw new RuntimeException(cause.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Indicates whether a conversion can use the color lookup table. This is the case if
+     * the source color space has 3 or 4 components and both rasters have 8 bit samples.
+     * @param src the source raster
+     * @param dst the target raster
+     * @return true if the conversion can be interpolated
+     */
+    public boolean isInterpolationSupported(Raster src, WritableRaster dst) {
+        int inputs = sourceColorSpace.getNumComponents();
+        return (inputs == 3 || inputs == 4)
+                && src.getNumBands() == inputs
+                && dst.getNumBands() == targetColorSpace.getNumComponents()
+                && is8Bit(src.getSampleModel()) && is8Bit(dst.getSampleModel());
+    }
+
+    private static boolean is8Bit(SampleModel sm) {
+        if (sm.getDataType() != DataBuffer.TYPE_BYTE) {
+            return false;
+        }
+        int[] sizes = sm.getSampleSize();
+        for (int i = 0; i < sizes.length; i++) {
+            if (sizes[i] != 8) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void convertBand(Raster src, WritableRaster dst, boolean useTable) {
+        if (useTable) {
+            getLookupTable().convert(src, dst);
+        } else {
+            ColorConvertOp op = borrowOp();
+            try {
+                op.filter(compact(src), dst);
+            } finally {
+                returnOp(op);
+            }
+        }
+    }
+
+    /**
+     * ColorConvertOp ignores samples that are not part of a raster's bands (for example the
+     * alpha samples of a child raster without the alpha band) and reads the wrong samples.
+     * Such rasters are copied to a raster without gaps.
+     */
+    private static Raster compact(Raster src) {
+        SampleModel sm = src.getSampleModel();
+        if (!(sm instanceof ComponentSampleModel)
+                || ((ComponentSampleModel)sm).getPixelStride() <= sm.getNumBands()) {
+            return src;
+        }
+        WritableRaster copy = Raster.createInterleavedRaster(sm.getDataType(),
+                src.getWidth(), src.getHeight(), sm.getNumBands(),
+                new Point(src.getMinX(), src.getMinY()));
+        copy.setRect(src);
+        return copy;
+    }
+
+    private ColorConvertOp borrowOp() {
+        synchronized (idleOps) {
+            if (!idleOps.isEmpty()) {
+                return (ColorConvertOp)idleOps.remove(idleOps.size() - 1);
+            }
+        }
+        return new ColorConvertOp(sourceColorSpace, targetColorSpace, null);
+    }
+
+    private void returnOp(ColorConvertOp op) {
+        synchronized (idleOps) {
+            idleOps.add(op);
+        }
+    }
+
+    private LookupTable getLookupTable() {
+        LookupTable table = this.lookupTable;
+        if (table == null) {
+            synchronized (this) {
+                table = this.lookupTable;
+                if (table == null) {
+                    table = new LookupTable();
+                    this.lookupTable = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * A grid of exactly converted colors over the source color space, interpolated
+     * multilinearly for 8 bit samples. The grid spacing divides 255 so that the grid
+     * includes both ends of each axis.
+     */
+    private final class LookupTable {
+
+        private final int inputs;
+        private final int outputs;
+        /** Distance between grid points in 8 bit sample values */
+        private final int step;
+        /** Number of grid points per axis */
+        private final int gridSize;
+        /** The converted colors (16 bit samples), outputs values per grid point */
+        private final int[] table;
+
+        LookupTable() {
+            this.inputs = sourceColorSpace.getNumComponents();
+            this.outputs = targetColorSpace.getNumComponents();
+            //About 140K grid points for 3 inputs, 105K for 4 inputs
+            this.step = (inputs == 3 ? 5 : 15);
+            this.gridSize = 255 / step + 1;
+
+            int points = 1;
+            for (int i = 0; i < inputs; i++) {
+                points *= gridSize;
+            }
+            WritableRaster grid = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT,
+                    points, 1, inputs, null);
+            int[] samples = new int[points * inputs];
+            for (int p = 0; p < points; p++) {
+                int index = p;
+                for (int i = inputs - 1; i >= 0; i--) {
+                    samples[p * inputs + i] = (index % gridSize) * step * 257;
+                    index /= gridSize;
+                }
+            }
+            grid.setPixels(0, 0, points, 1, samples);
+            WritableRaster converted = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT,
+                    points, 1, outputs, null);
+            convertBand(grid, converted, false);
+            this.table = converted.getPixels(0, 0, points, 1, (int[])null);
+        }
+
+        void convert(Raster src, WritableRaster dst) {
+            //Per axis and 8 bit sample value: the offset of the grid cell in the table,
+            //the offset to the next grid point and the weight of the next grid point (/256)
+            int[][] offsets = new int[inputs][256];
+            int[][] deltas = new int[inputs][256];
+            int[] weights = new int[256];
+            int stride = outputs;
+            for (int i = inputs - 1; i >= 0; i--) {
+                for (int v = 0; v < 256; v++) {
+                    int frac = v % step;
+                    offsets[i][v] = (v / step) * stride;
+                    deltas[i][v] = (frac == 0 ? 0 : stride);
+                }
+                stride *= gridSize;
+            }
+            for (int v = 0; v < 256; v++) {
+                weights[v] = ((v % step) * 256 + step / 2) / step;
+            }
+
+            //For 8 bit component rasters, the data elements are the samples (in bulk)
+            final int width = src.getWidth();
+            byte[] srcRow = new byte[width * inputs];
+            byte[] dstRow = new byte[width * outputs];
+            for (int y = 0; y < src.getHeight(); y++) {
+                src.getDataElements(src.getMinX(), src.getMinY() + y, width, 1, srcRow);
+                if (inputs == 3) {
+                    interpolate3(srcRow, dstRow, width, offsets, deltas, weights);
+                } else {
+                    interpolate4(srcRow, dstRow, width, offsets, deltas, weights);
+                }
+                dst.setDataElements(dst.getMinX(), dst.getMinY() + y, width, 1, dstRow);
+            }
+        }
+
+        private void interpolate3(byte[] srcRow, byte[] dstRow, int width,
+                int[][] offsets, int[][] deltas, int[] weights) {
+            final int[] t = table;
+            final int[] off0 = offsets[0];
+            final int[] off1 = offsets[1];
+            final int[] off2 = offsets[2];
+            final int[] d0 = deltas[0];
+            final int[] d1 = deltas[1];
+            final int[] d2 = deltas[2];
+            for (int x = 0, sp = 0, dp = 0; x < width; x++, sp += 3, dp += outputs) {
+                int v0 = srcRow[sp] & 0xFF;
+                int v1 = srcRow[sp + 1] & 0xFF;
+                int v2 = srcRow[sp + 2] & 0xFF;
+                int p000 = off0[v0] + off1[v1] + off2[v2];
+                int p001 = p000 + d2[v2];
+                int p010 = p000 + d1[v1];
+                int p011 = p010 + d2[v2];
+                int p100 = p000 + d0[v0];
+                int p101 = p100 + d2[v2];
+                int p110 = p100 + d1[v1];
+                int p111 = p110 + d2[v2];
+                int w0 = weights[v0];
+                int w1 = weights[v1];
+                int w2 = weights[v2];
+                for (int o = 0; o < outputs; o++) {
+                    int c00 = lerp(t[p000 + o], t[p001 + o], w2);
+                    int c01 = lerp(t[p010 + o], t[p011 + o], w2);
+                    int c10 = lerp(t[p100 + o], t[p101 + o], w2);
+                    int c11 = lerp(t[p110 + o], t[p111 + o], w2);
+                    int c = lerp(lerp(c00, c01, w1), lerp(c10, c11, w1), w0);
+                    dstRow[dp + o] = (byte)((c + 128) / 257);
+                }
+            }
+        }
+
+        private void interpolate4(byte[] srcRow, byte[] dstRow, int width,
+                int[][] offsets, int[][] deltas, int[] weights) {
+            final int[] t = table;
+            for (int x = 0, sp = 0, dp = 0; x < width; x++, sp += 4, dp += outputs) {
+                int v0 = srcRow[sp] & 0xFF;
+                int v1 = srcRow[sp + 1] & 0xFF;
+                int v2 = srcRow[sp + 2] & 0xFF;
+                int v3 = srcRow[sp + 3] & 0xFF;
+                int d1 = deltas[1][v1];
+                int d2 = deltas[2][v2];
+                int d3 = deltas[3][v3];
+                int p0 = offsets[0][v0] + offsets[1][v1] + offsets[2][v2] + offsets[3][v3];
+                int p1 = p0 + deltas[0][v0];
+                int w1 = weights[v1];
+                int w2 = weights[v2];
+                int w3 = weights[v3];
+                for (int o = 0; o < outputs; o++) {
+                    int a = interpolate3(t, p0 + o, d1, d2, d3, w1, w2, w3);
+                    int b = interpolate3(t, p1 + o, d1, d2, d3, w1, w2, w3);
+                    dstRow[dp + o] = (byte)((lerp(a, b, weights[v0]) + 128) / 257);
+                }
+            }
+        }
+
+        private int interpolate3(int[] t, int p, int d0, int d1, int d2,
+                int w0, int w1, int w2) {
+            int c00 = lerp(t[p], t[p + d2], w2);
+            int c01 = lerp(t[p + d1], t[p + d1 + d2], w2);
+            int c10 = lerp(t[p + d0], t[p + d0 + d2], w2);
+            int c11 = lerp(t[p + d0 + d1], t[p + d0 + d1 + d2], w2);
+            return lerp(lerp(c00, c01, w1), lerp(c10, c11, w1), w0);
+        }
+
+        private int lerp(int a, int b, int weight) {
+            return a + (((b - a) * weight) >> 8);
+        }
+    }
+
+    /** Identifies an ICC profile by its content. */
+    private static final class ProfileIdentity {
+
+        private final byte[] data;
+        private final int hash;
+
+        ProfileIdentity(byte[] data) {
+            this.data = data;
+            this.hash = Arrays.hashCode(data);
+        }
+
+        public boolean equals(Object obj) {
+            return (obj instanceof ProfileIdentity)
+                    && Arrays.equals(data, ((ProfileIdentity)obj).data);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Key {
+
+        private final Object source;
+        private final Object target;
+        private final RenderingIntent intent;
+
+        Key(Object source, Object target, RenderingIntent intent) {
+            this.source = source;
+            this.target = target;
+            this.intent = intent;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)obj;
+            return source.equals(other.source) && target.equals(other.target)
+                    && intent == other.intent;
+        }
+
+        public int hashCode() {
+            return (source.hashCode() * 31 + target.hashCode()) * 31 + intent.hashCode();
+        }
+    }
+
+}
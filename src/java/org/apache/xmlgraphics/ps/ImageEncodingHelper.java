@@ -20,6 +20,7 @@
 package org.apache.xmlgraphics.ps;
 
 import java.awt.color.ColorSpace;
+import java.awt.color.ICC_ColorSpace;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.ComponentColorModel;
@@ -31,11 +32,13 @@ import java.awt.image.PixelInterleavedSampleModel;
 import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Arrays;
 
 import org.apache.xmlgraphics.image.GraphicsUtil;
+import org.apache.xmlgraphics.java2d.color.RasterColorConverter;
 
 /**
  * Helper class for encoding bitmap images.
@@ -46,6 +49,9 @@ public class ImageEncodingHelper {
             ColorSpace.getInstance(ColorSpace.CS_sRGB),
             false, false, ColorModel.OPAQUE, DataBuffer.TYPE_BYTE);
 
+    /** Number of rows converted at once when color management is necessary */
+    private static final int CONVERSION_STRIPE_HEIGHT = 64;
+
     private final RenderedImage image;
     private ColorModel encodedColorModel;
     private boolean firstTileDump;
@@ -130,6 +136,9 @@ public class ImageEncodingHelper {
     public static void encodeRenderedImageAsRGB(RenderedImage image, OutputStream out)
                 throws IOException {
         Raster raster = getRaster(image);
+        if (encodeICCRasterAsRGB(image.getColorModel(), raster, out)) {
+            return;
+        }
         Object data;
         int nbands = raster.getNumBands();
         int dataType = raster.getDataBuffer().getDataType();
@@ -170,6 +179,53 @@ public class ImageEncodingHelper {
         }
     }
 
+    /**
+     * Writes a raster with ICC-based color components to an OutputStream by converting it to
+     * sRGB in stripes. Unlike {@link ColorModel#getRGB(Object)}, this sets up the color
+     * transform only once (see {@link RasterColorConverter}) and not for every pixel.
+     * @param cm the color model of the raster
+     * @param raster the raster
+     * @param out the OutputStream to write the pixels to
+     * @return true if the raster was encoded, false if it is not supported
+     * @throws IOException if an I/O error occurs
+     */
+    private static boolean encodeICCRasterAsRGB(ColorModel cm, Raster raster, OutputStream out)
+                throws IOException {
+        ColorSpace cs = cm.getColorSpace();
+        if (!(cm instanceof ComponentColorModel) || !(cs instanceof ICC_ColorSpace)
+                || cs.isCS_sRGB() || cs == ColorSpace.getInstance(ColorSpace.CS_LINEAR_RGB)
+                || cs.getType() == ColorSpace.TYPE_GRAY || cm.isAlphaPremultiplied()) {
+            return false; //The ColorModel handles these with lookup tables
+        }
+        int dataType = raster.getTransferType();
+        if (dataType != DataBuffer.TYPE_BYTE && dataType != DataBuffer.TYPE_USHORT) {
+            return false;
+        }
+        //Skip the alpha channel if there is one
+        int[] colorBands = new int[cs.getNumComponents()];
+        for (int i = 0; i < colorBands.length; i++) {
+            colorBands[i] = i;
+        }
+        RasterColorConverter converter = RasterColorConverter.getInstance(
+                cs, ColorSpace.getInstance(ColorSpace.CS_sRGB));
+
+        int w = raster.getWidth();
+        int h = raster.getHeight();
+        WritableRaster rgb = null;
+        for (int y = 0; y < h; y += CONVERSION_STRIPE_HEIGHT) {
+            int stripeHeight = Math.min(CONVERSION_STRIPE_HEIGHT, h - y);
+            if (rgb == null || rgb.getHeight() != stripeHeight) {
+                rgb = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE,
+                        w, stripeHeight, 3, null);
+            }
+            Raster stripe = raster.createChild(raster.getMinX(), raster.getMinY() + y,
+                    w, stripeHeight, 0, 0, colorBands);
+            converter.convert(stripe, rgb);
+            out.write(((DataBufferByte)rgb.getDataBuffer()).getData());
+        }
+        return true;
+    }
+
     /**
      * Writes a RenderedImage to an OutputStream. This method optimizes the encoding
      * of the {@link DirectColorModel} as it is returned by {@link ColorModel#getRGBdefault}.
@@ -19,15 +19,14 @@
 
 package org.apache.xmlgraphics.ps;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 import org.apache.commons.io.EndianUtils;
 import org.apache.commons.io.IOUtils;
 
 import org.apache.xmlgraphics.fonts.Glyphs;
-import org.apache.xmlgraphics.util.io.ASCIIHexOutputStream;
 import org.apache.xmlgraphics.util.io.SubInputStream;
 
 // CSOFF: HideUtilityClassConstructor
@@ -40,6 +39,14 @@ public class PSFontUtils {
     public PSFontUtils() {
     }
 
+    private static final byte[] HEX = {
+        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+
+    /** Number of bytes per line in hex-encoded binary segments (same as ASCIIHexOutputStream) */
+    private static final int HEX_BYTES_PER_LINE = 40;
+
+    private static final int BUFFER_SIZE = 32 * 1024;
+
     /**
      * This method reads a Type 1 font from a stream and embeds it into a PostScript stream.
      * Note: Only the IBM PC Format as described in section 3.3 of the Adobe Technical Note #5040
@@ -49,6 +56,46 @@ public class PSFontUtils {
      * @throws IOException in case an I/O problem occurs
      */
     public static void embedType1Font(PSGenerator gen, InputStream in) throws IOException {
+        embedType1Font(gen, in, false);
+    }
+
+    /**
+     * This method reads a Type 1 font from a stream and embeds it into a PostScript stream.
+     * Note: Only the IBM PC Format as described in section 3.3 of the Adobe Technical Note #5040
+     * is supported.
+     * @param gen The PostScript generator
+     * @param in the InputStream from which to read the Type 1 font
+     * @param binaryClean true if the output channel can transport binary data. In this case,
+     *          the encrypted portion of the font is embedded as binary (instead of hex-encoded)
+     *          data if the PostScript language level is 2 or higher.
+     * @throws IOException in case an I/O problem occurs
+     */
+    public static void embedType1Font(PSGenerator gen, InputStream in, boolean binaryClean)
+                throws IOException {
+        writeType1Font(in, gen.getOutputStream(), binaryClean && gen.getPSLevel() >= 2);
+    }
+
+    /**
+     * Converts a Type 1 font into the form in which
+     * {@link #embedType1Font(PSGenerator, InputStream, boolean)} embeds it. The result can be
+     * cached and written to any number of PostScript files (to
+     * {@link PSGenerator#getOutputStream()}), so a font file used by many documents only
+     * has to be converted once.
+     * @param in the InputStream from which to read the Type 1 font
+     * @param binary true if the encrypted portion of the font shall be left binary,
+     *          false to hex-encode it
+     * @return the PostScript representation of the font
+     * @throws IOException in case an I/O problem occurs
+     */
+    public static byte[] encodeType1Font(InputStream in, boolean binary) throws IOException {
+        java.io.ByteArrayOutputStream baout = new java.io.ByteArrayOutputStream();
+        writeType1Font(in, baout, binary);
+        return baout.toByteArray();
+    }
+
+    private static void writeType1Font(InputStream in, OutputStream out, boolean binary)
+                throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
         boolean finished = false;
         while (!finished) {
             int segIndicator = in.read();
@@ -65,22 +112,17 @@ public class PSFontUtils {
             switch (segType) {
                 case 1: //ASCII
                     dataSegLen = EndianUtils.readSwappedInteger(in);
-
-                    BufferedReader reader = new BufferedReader(
-                            new java.io.InputStreamReader(
-                                    new SubInputStream(in, dataSegLen), "US-ASCII"));
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        gen.writeln(line);
-                        }
+                    copyASCIISegment(new SubInputStream(in, dataSegLen), out, buf);
                     break;
                 case 2: //binary
                     dataSegLen = EndianUtils.readSwappedInteger(in);
-
                     SubInputStream sin = new SubInputStream(in, dataSegLen);
-                    ASCIIHexOutputStream hexOut = new ASCIIHexOutputStream(gen.getOutputStream());
-                    IOUtils.copy(sin, hexOut);
-                    gen.newLine();
+                    if (binary) {
+                        IOUtils.copy(sin, out);
+                    } else {
+                        hexEncodeSegment(sin, out, buf);
+                    }
+                    out.write(PSGenerator.LF);
                     break;
                 case 3: //EOF
                     finished = true;
@@ -90,38 +132,79 @@ public class PSFontUtils {
         }
     }
 
+    /**
+     * Copies an ASCII segment, converting all line ends to LF and terminating the last line.
+     */
+    private static void copyASCIISegment(InputStream in, OutputStream out, byte[] buf)
+                throws IOException {
+        boolean afterCR = false;
+        boolean lineOpen = false;
+        int len;
+        while ((len = in.read(buf)) >= 0) {
+            //Line ends never get longer, so the conversion can be done in place
+            int outLen = 0;
+            for (int i = 0; i < len; i++) {
+                byte b = buf[i];
+                if (b == '\n' && afterCR) {
+                    afterCR = false;
+                    continue;
+                }
+                afterCR = (b == '\r');
+                if (afterCR) {
+                    b = '\n';
+                }
+                lineOpen = (b != '\n');
+                buf[outLen++] = b;
+            }
+            out.write(buf, 0, outLen);
+        }
+        if (lineOpen) {
+            out.write(PSGenerator.LF);
+        }
+    }
+
+    /**
+     * Hex-encodes a binary segment with 80 characters per line.
+     */
+    private static void hexEncodeSegment(InputStream in, OutputStream out, byte[] buf)
+                throws IOException {
+        byte[] encoded = new byte[buf.length * 2 + buf.length / HEX_BYTES_PER_LINE + 1];
+        int posInLine = 0;
+        int len;
+        while ((len = in.read(buf)) >= 0) {
+            int pos = 0;
+            for (int i = 0; i < len; i++) {
+                int b = buf[i];
+                encoded[pos++] = HEX[(b >> 4) & 0x0F];
+                encoded[pos++] = HEX[b & 0x0F];
+                if (++posInLine == HEX_BYTES_PER_LINE) {
+                    encoded[pos++] = PSGenerator.LF;
+                    posInLine = 0;
+                }
+            }
+            out.write(encoded, 0, pos);
+        }
+    }
+
     /** the PSResource representing the WinAnsiEncoding. */
     public static final PSResource WINANSI_ENCODING_RESOURCE
             = new PSResource(PSResource.TYPE_ENCODING, "WinAnsiEncoding");
 
+    private static volatile byte[] winAnsiEncodingDefinition;
+
     /**
      * Defines the WinAnsi encoding for use in PostScript files.
      * @param gen the PostScript generator
      * @throws IOException In case of an I/O problem
      */
     public static void defineWinAnsiEncoding(PSGenerator gen) throws IOException {
-        gen.writeDSCComment(DSCConstants.BEGIN_RESOURCE, WINANSI_ENCODING_RESOURCE);
-        gen.writeln("/WinAnsiEncoding [");
-        for (int i = 0; i < Glyphs.WINANSI_ENCODING.length; i++) {
-            if (i > 0) {
-                if ((i % 5) == 0) {
-                    gen.newLine();
-                } else {
-                    gen.write(" ");
-                }
-            }
-            final char ch = Glyphs.WINANSI_ENCODING[i];
-            final String glyphname = Glyphs.charToGlyphName(ch);
-            if ("".equals(glyphname)) {
-                gen.write("/" + Glyphs.NOTDEF);
-            } else {
-                gen.write("/");
-                gen.write(glyphname);
-            }
+        byte[] definition = winAnsiEncodingDefinition;
+        if (definition == null) {
+            definition = createEncodingDefinition(WINANSI_ENCODING_RESOURCE,
+                    Glyphs.WINANSI_ENCODING);
+            winAnsiEncodingDefinition = definition;
         }
-        gen.newLine();
-        gen.writeln("] def");
-        gen.writeDSCComment(DSCConstants.END_RESOURCE);
+        gen.getOutputStream().write(definition);
         gen.getResourceTracker().registerSuppliedResource(WINANSI_ENCODING_RESOURCE);
     }
 
@@ -129,15 +212,35 @@ public class PSFontUtils {
     public static final PSResource ADOBECYRILLIC_ENCODING_RESOURCE
             = new PSResource(PSResource.TYPE_ENCODING, "AdobeStandardCyrillicEncoding");
 
+    private static volatile byte[] adobeCyrillicEncodingDefinition;
+
     /**
      * Defines the AdobeStandardCyrillic encoding for use in PostScript files.
      * @param gen the PostScript generator
      * @throws IOException In case of an I/O problem
      */
     public static void defineAdobeCyrillicEncoding(PSGenerator gen) throws IOException {
-        gen.writeDSCComment(DSCConstants.BEGIN_RESOURCE, ADOBECYRILLIC_ENCODING_RESOURCE);
-        gen.writeln("/AdobeStandardCyrillicEncoding [");
-        for (int i = 0; i < Glyphs.ADOBECYRILLIC_ENCODING.length; i++) {
+        byte[] definition = adobeCyrillicEncodingDefinition;
+        if (definition == null) {
+            definition = createEncodingDefinition(ADOBECYRILLIC_ENCODING_RESOURCE,
+                    Glyphs.ADOBECYRILLIC_ENCODING);
+            adobeCyrillicEncodingDefinition = definition;
+        }
+        gen.getOutputStream().write(definition);
+        gen.getResourceTracker().registerSuppliedResource(ADOBECYRILLIC_ENCODING_RESOURCE);
+    }
+
+    /**
+     * Creates the resource defining an encoding. The result is constant, so it is only
+     * generated once per encoding and then written as a block of bytes.
+     */
+    private static byte[] createEncodingDefinition(PSResource resource, char[] encoding)
+                throws IOException {
+        java.io.ByteArrayOutputStream baout = new java.io.ByteArrayOutputStream();
+        PSGenerator gen = new PSGenerator(baout);
+        gen.writeDSCComment(DSCConstants.BEGIN_RESOURCE, resource);
+        gen.writeln("/" + resource.getName() + " [");
+        for (int i = 0; i < encoding.length; i++) {
             if (i > 0) {
                 if ((i % 5) == 0) {
                     gen.newLine();
@@ -145,7 +248,7 @@ public class PSFontUtils {
                     gen.write(" ");
                 }
             }
-            final char ch = Glyphs.ADOBECYRILLIC_ENCODING[i];
+            final char ch = encoding[i];
             final String glyphname = Glyphs.charToGlyphName(ch);
             if ("".equals(glyphname)) {
                 gen.write("/" + Glyphs.NOTDEF);
@@ -157,10 +260,9 @@ public class PSFontUtils {
         gen.newLine();
         gen.writeln("] def");
         gen.writeDSCComment(DSCConstants.END_RESOURCE);
-        gen.getResourceTracker().registerSuppliedResource(ADOBECYRILLIC_ENCODING_RESOURCE);
+        return baout.toByteArray();
     }
 
-
     /**
      * Redefines the encoding of a font.
      * @param gen the PostScript generator
@@ -37,6 +37,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.apache.xmlgraphics.java2d.color.ColorCache;
 import org.apache.xmlgraphics.java2d.color.ColorUtil;
 import org.apache.xmlgraphics.java2d.color.ColorWithAlternatives;
 import org.apache.xmlgraphics.ps.dsc.ResourceTracker;
@@ -82,6 +83,9 @@ public class PSGenerator implements PSCommandMap {
 
     private StringBuffer tempBuffer = new StringBuffer(256);
 
+    /** The PostScript code to establish colors, by color */
+    private ColorCache<String> colorCodes = new ColorCache<String>();
+
     private boolean identityHEmbedded;
 
     private PSResource procsetCIDInitResource;
@@ -114,6 +118,10 @@ public class PSGenerator implements PSCommandMap {
      * @param value true to enable compact mode, false for verbose mode
      */
     public void setCompactMode(boolean value) {
+        if (value != this.compactMode) {
+            //The cached color code uses the mapped commands
+            this.colorCodes.clear();
+        }
         this.compactMode = value;
     }
 
@@ -663,7 +671,12 @@ public class PSGenerator implements PSCommandMap {
      */
     public void useColor(Color col) throws IOException {
         if (getCurrentState().useColor(col)) {
-            writeln(convertColorToPS(col));
+            String code = colorCodes.get(col);
+            if (code == null) {
+                code = convertColorToPS(col);
+                colorCodes.put(col, code);
+            }
+            writeln(code);
         }
     }
 
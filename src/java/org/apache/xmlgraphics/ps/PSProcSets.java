@@ -48,10 +48,43 @@ public final class PSProcSets {
         STD_COMMAND_MAP = stdProcSet;
     }
 
+    /**
+     * Base class for the procsets defined here. Their content doesn't depend on the settings of
+     * the PSGenerator, so it is generated only once and then written as a block of bytes.
+     */
+    private abstract static class CachedProcSet extends PSProcSet {
+
+        private volatile byte[] content;
+
+        public CachedProcSet(String name, float version, int revision) {
+            super(name, version, revision);
+        }
+
+        /**
+         * Generates the procset.
+         * @param gen the PSGenerator to write to
+         * @throws IOException In case of an I/O problem
+         */
+        protected abstract void generate(PSGenerator gen) throws IOException;
+
+        public void writeTo(PSGenerator gen) throws IOException {
+            byte[] data = this.content;
+            if (data == null) {
+                java.io.ByteArrayOutputStream baout = new java.io.ByteArrayOutputStream();
+                generate(new PSGenerator(baout));
+                data = baout.toByteArray();
+                this.content = data;
+            }
+            gen.getOutputStream().write(data);
+            gen.getResourceTracker().registerSuppliedResource(this);
+        }
+
+    }
+
     /**
      * The standard procset used by XML Graphics Commons.
      */
-    private static class StdProcSet extends PSProcSet implements PSCommandMap {
+    private static class StdProcSet extends CachedProcSet implements PSCommandMap {
 
         /** A Map<String, String> of standard shorthand macros defined in the {@link StdProcSet}. */
         private static final Map STANDARD_MACROS;
@@ -85,7 +118,7 @@ public final class PSProcSets {
             super("Apache XML Graphics Std ProcSet", 1.2f, 0);
         }
 
-        public void writeTo(PSGenerator gen) throws IOException {
+        protected void generate(PSGenerator gen) throws IOException {
             gen.writeDSCComment(DSCConstants.BEGIN_RESOURCE,
                     new Object[] {TYPE_PROCSET, getName(),
                         Float.toString(getVersion()), Integer.toString(getRevision())});
@@ -248,7 +281,6 @@ public final class PSProcSets {
             gen.writeln("} bd");
 
             gen.writeDSCComment(DSCConstants.END_RESOURCE);
-            gen.getResourceTracker().registerSuppliedResource(this);
         }
 
         /** {@inheritDoc} */
@@ -259,13 +291,13 @@ public final class PSProcSets {
 
     }
 
-    private static class EPSProcSet extends PSProcSet {
+    private static class EPSProcSet extends CachedProcSet {
 
         public EPSProcSet() {
             super("Apache XML Graphics EPS ProcSet", 1.0f, 0);
         }
 
-        public void writeTo(PSGenerator gen) throws IOException {
+        protected void generate(PSGenerator gen) throws IOException {
             gen.writeDSCComment(DSCConstants.BEGIN_RESOURCE,
                     new Object[] {TYPE_PROCSET, getName(),
                         Float.toString(getVersion()), Integer.toString(getRevision())});
@@ -301,7 +333,6 @@ public final class PSProcSets {
             gen.writeln("} bd");
 
             gen.writeDSCComment(DSCConstants.END_RESOURCE);
-            gen.getResourceTracker().registerSuppliedResource(this);
         }
 
     }
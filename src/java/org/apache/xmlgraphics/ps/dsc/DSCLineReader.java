@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.ps.dsc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Splits a PostScript file into lines working directly on bytes. Unlike a
+ * {@link java.io.BufferedReader}, no characters are decoded while scanning for line ends,
+ * so callers only pay for a String if they actually need one (i.e. for comments). Lines are
+ * terminated by LF, CR or CR LF.
+ * <p>
+ * The current line is only valid until the next call to {@link #nextLine()}.
+ */
+final class DSCLineReader {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final String ENCODING = "US-ASCII";
+
+    private final InputStream in;
+    private final ReadableByteChannel channel;
+
+    private byte[] buf = new byte[DEFAULT_BUFFER_SIZE];
+    private ByteBuffer byteBuffer;
+    /** Read position in the buffer */
+    private int pos;
+    /** Number of valid bytes in the buffer */
+    private int limit;
+    /** Stream position of the first byte in the buffer */
+    private long bufferOffset;
+    private boolean endOfStream;
+
+    private int lineStart;
+    private int lineLength = -1;
+    private boolean unread;
+
+    /**
+     * Creates a new line reader for an InputStream.
+     * @param in the InputStream
+     */
+    public DSCLineReader(InputStream in) {
+        this.in = in;
+        this.channel = null;
+    }
+
+    /**
+     * Creates a new line reader for a channel (for example a
+     * {@link java.nio.channels.FileChannel}).
+     * @param channel the channel
+     */
+    public DSCLineReader(ReadableByteChannel channel) {
+        this.in = null;
+        this.channel = channel;
+        this.byteBuffer = ByteBuffer.wrap(buf);
+    }
+
+    /**
+     * Advances to the next line.
+     * @return true if there was another line, false if the end of the stream was reached
+     * @throws IOException In case of an I/O error
+     */
+    public boolean nextLine() throws IOException {
+        if (unread) {
+            unread = false;
+            return lineLength >= 0;
+        }
+        int scan = pos;
+        while (true) {
+            for (int i = scan; i < limit; i++) {
+                byte b = buf[i];
+                if (b == '\n' || b == '\r') {
+                    if (b == '\r' && i + 1 == limit && !endOfStream) {
+                        //Need one more byte to know whether this is CR LF
+                        int offset = i - pos;
+                        fill();
+                        i = pos + offset;
+                    }
+                    lineStart = pos;
+                    lineLength = i - pos;
+                    pos = i + 1;
+                    if (b == '\r' && pos < limit && buf[pos] == '\n') {
+                        pos++;
+                    }
+                    return true;
+                }
+            }
+            scan = limit;
+            if (endOfStream) {
+                break;
+            }
+            int offset = scan - pos;
+            fill();
+            scan = pos + offset;
+        }
+        if (pos < limit) {
+            //Last line without line terminator
+            lineStart = pos;
+            lineLength = limit - pos;
+            pos = limit;
+            return true;
+        }
+        lineLength = -1;
+        return false;
+    }
+
+    /**
+     * Makes the next call to {@link #nextLine()} return the current line again. Used for
+     * one line of look-ahead.
+     */
+    public void unreadLine() {
+        this.unread = true;
+    }
+
+    /**
+     * Reads more data into the buffer, compacting or growing it as necessary. Data from
+     * the current read position on is preserved (but may be moved).
+     */
+    private void fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            bufferOffset += pos;
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length) {
+            //Very long line (binary data without line breaks)
+            byte[] larger = new byte[buf.length * 2];
+            System.arraycopy(buf, 0, larger, 0, limit);
+            buf = larger;
+            if (channel != null) {
+                byteBuffer = ByteBuffer.wrap(buf);
+            }
+        }
+        int count;
+        if (channel != null) {
+            byteBuffer.limit(buf.length);
+            byteBuffer.position(limit);
+            count = channel.read(byteBuffer);
+            while (count == 0) {
+                count = channel.read(byteBuffer);
+            }
+        } else {
+            count = in.read(buf, limit, buf.length - limit);
+        }
+        if (count < 0) {
+            endOfStream = true;
+        } else {
+            limit += count;
+        }
+    }
+
+    /** @return the length of the current line (excluding the line terminator) */
+    public int getLineLength() {
+        return this.lineLength;
+    }
+
+    /** @return the position of the current line in the stream (in bytes) */
+    public long getLinePosition() {
+        return this.bufferOffset + this.lineStart;
+    }
+
+    /** @return the position in the stream (in bytes) right after the current line */
+    public long getPosition() {
+        return this.bufferOffset + this.pos;
+    }
+
+    /**
+     * Indicates whether the current line starts with the given (ASCII) prefix.
+     * @param prefix the prefix
+     * @return true if the line starts with the prefix
+     */
+    public boolean startsWith(String prefix) {
+        int len = prefix.length();
+        if (lineLength < len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (buf[lineStart + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the current line as a String.
+     * @return the line
+     */
+    public String getLineAsString() {
+        try {
+            return new String(buf, lineStart, lineLength, ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException("Incompatible VM! " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns a copy of the current line's bytes.
+     * @return the bytes of the line
+     */
+    public byte[] copyLine() {
+        byte[] data = new byte[lineLength];
+        System.arraycopy(buf, lineStart, data, 0, lineLength);
+        return data;
+    }
+
+}
@@ -19,10 +19,10 @@
 
 package org.apache.xmlgraphics.ps.dsc;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -50,11 +50,13 @@ public class DSCParser implements DSCParserConstants {
     private static final Log LOG = LogFactory.getLog(DSCParser.class);
 
     private InputStream in;
-    private BufferedReader reader;
+    private DSCLineReader reader;
     private boolean eofFound = false;
     private boolean checkEOF = true;
     private DSCEvent currentEvent;
     private DSCEvent nextEvent;
+    private long currentEventPosition = -1;
+    private long nextEventPosition = -1;
     private DSCListener nestedDocumentHandler;
     private DSCListener filterListener;
     private List listeners;
@@ -68,19 +70,24 @@ public class DSCParser implements DSCParserConstants {
      * @throws DSCException In case of a violation of the DSC spec
      */
     public DSCParser(InputStream in) throws IOException, DSCException {
-        if (in.markSupported()) {
-            this.in = in;
-        } else {
-            //Decorate for better performance
-            this.in = new java.io.BufferedInputStream(this.in);
-        }
-        String encoding = "US-ASCII";
-        try {
-            this.reader = new java.io.BufferedReader(
-                    new java.io.InputStreamReader(this.in, encoding));
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException("Incompatible VM! " + e.getMessage());
-        }
+        this.in = in;
+        //No additional buffering necessary: DSCLineReader reads in large blocks
+        this.reader = new DSCLineReader(in);
+        parseNext();
+    }
+
+    /**
+     * Creates a new DSC parser reading from a channel. This is the preferred way for parsing
+     * large files as a {@link java.nio.channels.FileChannel} can be read in large blocks
+     * without an intermediate stream.
+     * @param channel the channel to read the PostScript file from
+     *              (the channel is not closed by this class, the caller is responsible for that)
+     * @throws IOException In case of an I/O error
+     * @throws DSCException In case of a violation of the DSC spec
+     */
+    public DSCParser(ReadableByteChannel channel) throws IOException, DSCException {
+        this.in = Channels.newInputStream(channel);
+        this.reader = new DSCLineReader(channel);
         parseNext();
     }
 
@@ -108,20 +115,29 @@ public class DSCParser implements DSCParserConstants {
      * @throws DSCException In case of a violation of the DSC spec
      */
     protected String readLine() throws IOException, DSCException {
-        String line;
-        line = this.reader.readLine();
-        checkLine(line);
-
-        return line;
+        if (nextLine()) {
+            return this.reader.getLineAsString();
+        } else {
+            return null;
+        }
     }
 
-    private void checkLine(String line) throws DSCException {
-        if (line == null) {
+    /**
+     * Advances the line reader to the next line without decoding it.
+     * @return true if there is another line, false if the end of the file has been reached
+     */
+    private boolean nextLine() throws IOException, DSCException {
+        if (this.reader.nextLine()) {
+            if (this.reader.getLineLength() > 255) {
+                warn("Line longer than 255 characters."
+                        + " This file is not fully PostScript conforming.");
+            }
+            return true;
+        } else {
             if (!eofFound) {
                 throw new DSCException("%%EOF not found. File is not well-formed.");
             }
-        } else if (line.length() > 255) {
-            warn("Line longer than 255 characters. This file is not fully PostScript conforming.");
+            return false;
         }
     }
 
@@ -145,18 +161,13 @@ public class DSCParser implements DSCParserConstants {
                     return new DSCAtend(name);
                 }
             }
-            String nextLine;
-            while (true) {
-                this.reader.mark(512);
-                nextLine = readLine();
-                if (nextLine == null) {
-                    break;
-                } else if (!nextLine.startsWith("%%+")) {
+            while (nextLine()) {
+                if (!this.reader.startsWith("%%+")) {
+                    this.reader.unreadLine();
                     break;
                 }
-                value = value + nextLine.substring(3);
+                value = value + this.reader.getLineAsString().substring(3);
             }
-            this.reader.reset();
         } else {
             name = line.substring(2);
             value = null;
@@ -234,6 +245,7 @@ public class DSCParser implements DSCParserConstants {
     public int next() throws IOException, DSCException {
         if (hasNext()) {
             this.currentEvent = nextEvent;
+            this.currentEventPosition = nextEventPosition;
             parseNext();
 
             processListeners();
@@ -287,17 +299,42 @@ public class DSCParser implements DSCParserConstants {
         return this.nextEvent;
     }
 
+    /**
+     * Returns the position of the current event in the file, i.e. the byte offset of the
+     * first line the event was parsed from.
+     * @return the byte offset of the current event (or -1 if there's no current event)
+     */
+    public long getCurrentEventPosition() {
+        return this.currentEventPosition;
+    }
+
+    /**
+     * Returns the position of the next event in the file. This is also the position right
+     * after the last line of the current event. If there are no more events, the position
+     * of the end of the file is returned.
+     * @return the byte offset of the next event
+     */
+    public long getNextEventPosition() {
+        return this.nextEventPosition;
+    }
+
     /**
      * Parses the next event.
      * @throws IOException In case of an I/O error
      * @throws DSCException In case of a violation of the DSC spec
      */
     protected void parseNext() throws IOException, DSCException {
-        String line = readLine();
-        if (line != null) {
-            if (eofFound && (line.length() > 0)) {
+        if (nextLine()) {
+            this.nextEventPosition = this.reader.getLinePosition();
+            if (eofFound && (this.reader.getLineLength() > 0)) {
                 throw new DSCException("Content found after EOF");
             }
+            if (!this.reader.startsWith("%")) {
+                //Plain PostScript code (the bulk of the file) is passed on as bytes
+                this.nextEvent = new PostScriptLine(this.reader.copyLine());
+                return;
+            }
+            String line = this.reader.getLineAsString();
             if (line.startsWith("%%")) {
                 DSCComment comment = parseDSCLine(line);
                 if (comment.getEventType() == EOF && isCheckEOF()) {
@@ -306,13 +343,12 @@ public class DSCParser implements DSCParserConstants {
                 this.nextEvent = comment;
             } else if (line.startsWith("%!")) {
                 this.nextEvent = new DSCHeaderComment(line.substring(2));
-            } else if (line.startsWith("%")) {
-                this.nextEvent = new PostScriptComment(line.substring(1));
             } else {
-                this.nextEvent = new PostScriptLine(line);
+                this.nextEvent = new PostScriptComment(line.substring(1));
             }
         } else {
             this.nextEvent = null;
+            this.nextEventPosition = this.reader.getPosition();
         }
     }
 
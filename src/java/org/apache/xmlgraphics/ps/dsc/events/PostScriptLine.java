@@ -20,6 +20,7 @@
 package org.apache.xmlgraphics.ps.dsc.events;
 
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 
 import org.apache.xmlgraphics.ps.PSGenerator;
 
@@ -29,6 +30,7 @@ import org.apache.xmlgraphics.ps.PSGenerator;
 public class PostScriptLine extends AbstractEvent {
 
     private String line;
+    private byte[] data;
 
     /**
      * Creates a new instance.
@@ -38,11 +40,28 @@ public class PostScriptLine extends AbstractEvent {
         this.line = line;
     }
 
+    /**
+     * Creates a new instance from the raw bytes of the line. The bytes are only decoded if
+     * {@link #getLine()} is called and they are written unchanged by
+     * {@link #generate(PSGenerator)}, so binary data passes through without being altered.
+     * @param data the code line as bytes (excluding the line terminator)
+     */
+    public PostScriptLine(byte[] data) {
+        this.data = data;
+    }
+
     /**
      * Returns the code line.
      * @return the code line
      */
     public String getLine() {
+        if (this.line == null) {
+            try {
+                this.line = new String(this.data, "US-ASCII");
+            } catch (UnsupportedEncodingException e) {
+                throw new RuntimeException("Incompatible VM! " + e.getMessage());
+            }
+        }
         return this.line;
     }
 
@@ -50,7 +69,11 @@ public class PostScriptLine extends AbstractEvent {
      * @see org.apache.xmlgraphics.ps.dsc.events.DSCEvent#generate(org.apache.xmlgraphics.ps.PSGenerator)
      */
     public void generate(PSGenerator gen) throws IOException {
-        gen.writeln(getLine());
+        if (this.data != null) {
+            gen.writeByteArr(this.data);
+        } else {
+            gen.writeln(getLine());
+        }
     }
 
     /**
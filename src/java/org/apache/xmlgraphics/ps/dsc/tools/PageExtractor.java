@@ -22,6 +22,9 @@ package org.apache.xmlgraphics.ps.dsc.tools;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 import org.apache.xmlgraphics.ps.DSCConstants;
 import org.apache.xmlgraphics.ps.PSGenerator;
@@ -31,6 +34,7 @@ import org.apache.xmlgraphics.ps.dsc.DSCParser;
 import org.apache.xmlgraphics.ps.dsc.DSCParserConstants;
 import org.apache.xmlgraphics.ps.dsc.DefaultNestedDocumentHandler;
 import org.apache.xmlgraphics.ps.dsc.events.DSCComment;
+import org.apache.xmlgraphics.ps.dsc.events.DSCCommentDocumentNeededResources;
 import org.apache.xmlgraphics.ps.dsc.events.DSCCommentPage;
 import org.apache.xmlgraphics.ps.dsc.events.DSCCommentPages;
 import org.apache.xmlgraphics.ps.dsc.events.DSCEvent;
@@ -119,4 +123,99 @@ public final class PageExtractor implements DSCParserConstants {
         }
     }
 
+    /**
+     * Extracts a range of pages using a previously built {@link PageIndex}. Instead of parsing
+     * the whole file, only the %%Pages, %%Page and %%DocumentNeededResources comments are
+     * regenerated and all other parts (header, prolog, setup, page content and trailer) are
+     * copied directly from the file channel. Line ends are therefore preserved as they are in
+     * the original file.
+     * <p>
+     * Since the file is only accessed with absolute positions, several ranges can be extracted
+     * concurrently from the same channel (see {@link PageSplitter}).
+     * @param in the channel to read the PostScript file from
+     * @param index the page index for the file
+     * @param out the OutputStream to write the modified file to
+     * @param from the starting page (1-based)
+     * @param to the last page (inclusive, 1-based)
+     * @throws IOException In case of an I/O error
+     * @throws DSCException In case of a violation of the DSC spec
+     */
+    public static void extractPages(FileChannel in, PageIndex index, OutputStream out,
+                int from, int to) throws IOException, DSCException {
+        if (from <= 0) {
+            throw new IllegalArgumentException("'from' page number must be 1 or higher");
+        }
+        if (to < from) {
+            throw new IllegalArgumentException(
+                    "'to' page number must be equal or larger than the 'from' page number");
+        }
+        if (in.size() != index.getLength()) {
+            throw new DSCException("The page index doesn't match the file");
+        }
+
+        PSGenerator gen = new PSGenerator(out);
+        WritableByteChannel target = Channels.newChannel(out);
+
+        //Header line, then the new number of pages
+        transfer(in, 0, index.getHeaderEnd(), target);
+        DSCCommentPages pages = new DSCCommentPages(to - from + 1);
+        pages.generate(gen);
+
+        DSCComment neededResources = null;
+        if (index.hasPageResources()) {
+            neededResources = new DSCCommentDocumentNeededResources(
+                    index.getNeededResources(from, to));
+        }
+
+        //The rest of the header, the prolog and the setup without the original %%Pages
+        copyRewritten(in, index, index.getHeaderEnd(), index.getPageOffset(1),
+                neededResources, target, gen);
+
+        int last = Math.min(to, index.getPageCount());
+        for (int page = from; page <= last; page++) {
+            DSCCommentPage comment = new DSCCommentPage(index.getPageName(page), page - from + 1);
+            comment.generate(gen);
+            transfer(in, index.getPageContentOffset(page), index.getPageEnd(page), target);
+        }
+
+        //Trailer and EOF
+        copyRewritten(in, index, index.getTrailerOffset(), index.getLength(),
+                neededResources, target, gen);
+    }
+
+    /**
+     * Copies a section of the file, leaving out the %%Pages comments and replacing
+     * %%DocumentNeededResources if the resources have been recalculated.
+     */
+    private static void copyRewritten(FileChannel in, PageIndex index, long start, long end,
+                DSCComment neededResources, WritableByteChannel target, PSGenerator gen)
+                throws IOException {
+        long pos = start;
+        long[] comments = index.getComments();
+        for (int i = 0; i < comments.length; i += 3) {
+            int type = (int)comments[i];
+            long commentStart = comments[i + 1];
+            if (commentStart < start || commentStart >= end) {
+                continue;
+            }
+            if (type == PageIndex.COMMENT_PAGES) {
+                transfer(in, pos, commentStart, target);
+                pos = comments[i + 2];
+            } else if (type == PageIndex.COMMENT_NEEDED_RESOURCES && neededResources != null) {
+                transfer(in, pos, commentStart, target);
+                neededResources.generate(gen);
+                pos = comments[i + 2];
+            }
+        }
+        transfer(in, pos, end, target);
+    }
+
+    private static void transfer(FileChannel in, long start, long end, WritableByteChannel target)
+                throws IOException {
+        long pos = start;
+        while (pos < end) {
+            pos += in.transferTo(pos, end - pos, target);
+        }
+    }
+
 }
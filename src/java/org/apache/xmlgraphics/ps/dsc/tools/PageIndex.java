@@ -0,0 +1,472 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.ps.dsc.tools;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+
+import org.apache.xmlgraphics.ps.DSCConstants;
+import org.apache.xmlgraphics.ps.PSProcSet;
+import org.apache.xmlgraphics.ps.PSResource;
+import org.apache.xmlgraphics.ps.dsc.DSCException;
+import org.apache.xmlgraphics.ps.dsc.DSCParser;
+import org.apache.xmlgraphics.ps.dsc.DSCParserConstants;
+import org.apache.xmlgraphics.ps.dsc.DefaultNestedDocumentHandler;
+import org.apache.xmlgraphics.ps.dsc.events.DSCComment;
+import org.apache.xmlgraphics.ps.dsc.events.DSCCommentDocumentNeededResources;
+import org.apache.xmlgraphics.ps.dsc.events.DSCCommentIncludeResource;
+import org.apache.xmlgraphics.ps.dsc.events.DSCCommentPage;
+import org.apache.xmlgraphics.ps.dsc.events.DSCCommentPageResources;
+import org.apache.xmlgraphics.ps.dsc.events.DSCEvent;
+
+/**
+ * Index of the byte offsets of the main sections of a DSC-compliant PostScript file: the
+ * header, the prolog, the document setup, each page and the trailer. With such an index,
+ * individual pages can be extracted without parsing the whole file
+ * (see {@link PageExtractor#extractPages(FileChannel, PageIndex, OutputStream, int, int)}).
+ * <p>
+ * The index also keeps the resources listed in the %%DocumentNeededResources comment and the
+ * resources used by each page (from %%PageResources and %%IncludeResource), so the resource
+ * comments can be adjusted for a subset of the pages.
+ * <p>
+ * The index can be saved to a "sidecar" file next to the PostScript file, so it only has to be
+ * built once per file.
+ */
+public final class PageIndex implements DSCParserConstants {
+
+    /** Default extension of the sidecar file holding the index */
+    public static final String SIDECAR_EXTENSION = ".pgidx";
+
+    private static final int MAGIC = 0x50534958; //"PSIX"
+    private static final int VERSION = 2;
+
+    /** Comment type for %%Pages */
+    static final int COMMENT_PAGES = 0;
+    /** Comment type for %%DocumentNeededResources (with a resource list) */
+    static final int COMMENT_NEEDED_RESOURCES = 1;
+
+    private long length;
+    private long lastModified;
+    private long headerEnd;
+    /** Type, start and end offset of the comments to be rewritten when extracting pages */
+    private long[] comments;
+    private long prologOffset = -1;
+    private long setupOffset = -1;
+    private long[] pageOffsets;
+    private long[] pageContentOffsets;
+    private String[] pageNames;
+    private long trailerOffset;
+    private Set neededResources;
+    private Set setupResources;
+    private Set[] pageResources;
+    private boolean hasPageResources;
+
+    private PageIndex() {
+    }
+
+    /**
+     * Builds the page index for a PostScript file by parsing it once.
+     * @param channel the channel to read the file from (it is read from the beginning)
+     * @return the page index
+     * @throws IOException In case of an I/O error
+     * @throws DSCException In case of a violation of the DSC spec
+     */
+    public static PageIndex build(FileChannel channel) throws IOException, DSCException {
+        PageIndex index = new PageIndex();
+        List comments = new java.util.ArrayList();
+        List pageOffsets = new java.util.ArrayList();
+        List pageContentOffsets = new java.util.ArrayList();
+        List pageNames = new java.util.ArrayList();
+        List pageResources = new java.util.ArrayList();
+        Set neededResources = new java.util.HashSet();
+        Set currentResources = new java.util.HashSet();
+        Set setupResources = currentResources;
+
+        channel.position(0);
+        DSCParser parser = new DSCParser(channel);
+        //Skip nested documents so their %%Page comments don't end up in the index
+        parser.addListener(new DefaultNestedDocumentHandler(null));
+        DSCTools.checkAndSkipDSC30Header(parser);
+        index.headerEnd = parser.getNextEventPosition();
+        index.trailerOffset = -1;
+        boolean inTrailer = false;
+        while (parser.hasNext()) {
+            DSCEvent event = parser.nextEvent();
+            if (event.getEventType() == EOF) {
+                if (!inTrailer) {
+                    index.trailerOffset = parser.getCurrentEventPosition();
+                }
+                break;
+            } else if (event.isDSCComment()) {
+                DSCComment comment = event.asDSCComment();
+                String name = comment.getName();
+                if (DSCConstants.PAGE.equals(name) && !inTrailer) {
+                    pageOffsets.add(new Long(parser.getCurrentEventPosition()));
+                    pageContentOffsets.add(new Long(parser.getNextEventPosition()));
+                    pageNames.add(((DSCCommentPage)comment).getPageName());
+                    currentResources = new java.util.HashSet();
+                    pageResources.add(currentResources);
+                } else if (DSCConstants.TRAILER.equals(name) && !inTrailer) {
+                    index.trailerOffset = parser.getCurrentEventPosition();
+                    inTrailer = true;
+                } else if (DSCConstants.PAGES.equals(name)
+                        && (pageOffsets.isEmpty() || inTrailer)) {
+                    addComment(comments, COMMENT_PAGES, parser);
+                } else if (comment instanceof DSCCommentDocumentNeededResources
+                        && (pageOffsets.isEmpty() || inTrailer)) {
+                    addComment(comments, COMMENT_NEEDED_RESOURCES, parser);
+                    neededResources.addAll(
+                            ((DSCCommentDocumentNeededResources)comment).getResources());
+                } else if (comment instanceof DSCCommentPageResources && !inTrailer) {
+                    currentResources.addAll(((DSCCommentPageResources)comment).getResources());
+                    index.hasPageResources = true;
+                } else if (comment instanceof DSCCommentIncludeResource && !inTrailer) {
+                    currentResources.add(((DSCCommentIncludeResource)comment).getResource());
+                    index.hasPageResources = true;
+                } else if (pageOffsets.isEmpty()) {
+                    if (DSCConstants.BEGIN_PROLOG.equals(name) && index.prologOffset < 0) {
+                        index.prologOffset = parser.getCurrentEventPosition();
+                    } else if (DSCConstants.BEGIN_SETUP.equals(name) && index.setupOffset < 0) {
+                        index.setupOffset = parser.getCurrentEventPosition();
+                    }
+                }
+            }
+        }
+        if (pageOffsets.isEmpty()) {
+            throw new DSCException("Page expected, but none found");
+        }
+        if (index.trailerOffset < 0) {
+            throw new DSCException("File is not DSC-compliant: Unexpected end of file");
+        }
+        index.length = channel.size();
+        index.comments = toLongArray(comments);
+        index.pageOffsets = toLongArray(pageOffsets);
+        index.pageContentOffsets = toLongArray(pageContentOffsets);
+        index.pageNames = (String[])pageNames.toArray(new String[pageNames.size()]);
+        index.neededResources = neededResources;
+        index.setupResources = setupResources;
+        index.pageResources = (Set[])pageResources.toArray(new Set[pageResources.size()]);
+        return index;
+    }
+
+    private static void addComment(List comments, int type, DSCParser parser) {
+        comments.add(new Long(type));
+        comments.add(new Long(parser.getCurrentEventPosition()));
+        comments.add(new Long(parser.getNextEventPosition()));
+    }
+
+    private static long[] toLongArray(List list) {
+        long[] result = new long[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ((Long)list.get(i)).longValue();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the page index for a PostScript file. If there's an up-to-date sidecar file
+     * (the file name plus {@link #SIDECAR_EXTENSION}) the index is loaded from there. Otherwise,
+     * the index is built and written to the sidecar file.
+     * @param file the PostScript file
+     * @return the page index
+     * @throws IOException In case of an I/O error
+     * @throws DSCException In case of a violation of the DSC spec
+     */
+    public static PageIndex loadOrBuild(File file) throws IOException, DSCException {
+        File sidecar = new File(file.getPath() + SIDECAR_EXTENSION);
+        if (sidecar.exists()) {
+            InputStream in = new java.io.BufferedInputStream(new java.io.FileInputStream(sidecar));
+            try {
+                PageIndex index = readFrom(in);
+                if (index.isValidFor(file)) {
+                    return index;
+                }
+            } catch (IOException ioe) {
+                //corrupt or incompatible index: rebuild
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+        PageIndex index;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            index = build(raf.getChannel());
+        } finally {
+            raf.close();
+        }
+        index.lastModified = file.lastModified();
+        OutputStream out = new java.io.BufferedOutputStream(new java.io.FileOutputStream(sidecar));
+        try {
+            index.writeTo(out);
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+        return index;
+    }
+
+    /**
+     * Indicates whether this index (still) matches the given file. The length and, if known,
+     * the modification time of the file are checked.
+     * @param file the PostScript file
+     * @return true if the index can be used for the file
+     */
+    public boolean isValidFor(File file) {
+        return file.length() == this.length
+                && (this.lastModified == 0 || file.lastModified() == this.lastModified);
+    }
+
+    /**
+     * Writes the index to a stream.
+     * @param out the stream to write to (it is not closed)
+     * @throws IOException In case of an I/O error
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream dout = new DataOutputStream(out);
+        dout.writeInt(MAGIC);
+        dout.writeInt(VERSION);
+        dout.writeLong(length);
+        dout.writeLong(lastModified);
+        dout.writeLong(headerEnd);
+        dout.writeLong(prologOffset);
+        dout.writeLong(setupOffset);
+        dout.writeLong(trailerOffset);
+        dout.writeInt(comments.length);
+        for (int i = 0; i < comments.length; i++) {
+            dout.writeLong(comments[i]);
+        }
+        dout.writeBoolean(hasPageResources);
+        writeResources(dout, neededResources);
+        writeResources(dout, setupResources);
+        dout.writeInt(pageOffsets.length);
+        for (int i = 0; i < pageOffsets.length; i++) {
+            dout.writeLong(pageOffsets[i]);
+            dout.writeLong(pageContentOffsets[i]);
+            dout.writeUTF(pageNames[i]);
+            writeResources(dout, pageResources[i]);
+        }
+        dout.flush();
+    }
+
+    private static void writeResources(DataOutputStream dout, Set resources) throws IOException {
+        dout.writeInt(resources.size());
+        Iterator iter = resources.iterator();
+        while (iter.hasNext()) {
+            PSResource res = (PSResource)iter.next();
+            dout.writeUTF(res.getType());
+            dout.writeUTF(res.getName());
+            if (res instanceof PSProcSet) {
+                dout.writeFloat(((PSProcSet)res).getVersion());
+                dout.writeInt(((PSProcSet)res).getRevision());
+            }
+        }
+    }
+
+    private static Set readResources(DataInputStream din) throws IOException {
+        int count = din.readInt();
+        Set resources = new java.util.HashSet();
+        for (int i = 0; i < count; i++) {
+            String type = din.readUTF();
+            String name = din.readUTF();
+            if (PSResource.TYPE_PROCSET.equals(type)) {
+                resources.add(new PSProcSet(name, din.readFloat(), din.readInt()));
+            } else {
+                resources.add(new PSResource(type, name));
+            }
+        }
+        return resources;
+    }
+
+    /**
+     * Reads an index previously written by {@link #writeTo(OutputStream)}.
+     * @param in the stream to read from (it is not closed)
+     * @return the page index
+     * @throws IOException In case of an I/O error or if the data is not a valid page index
+     */
+    public static PageIndex readFrom(InputStream in) throws IOException {
+        DataInputStream din = new DataInputStream(in);
+        if (din.readInt() != MAGIC) {
+            throw new IOException("Not a PostScript page index");
+        }
+        int version = din.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported page index version: " + version);
+        }
+        PageIndex index = new PageIndex();
+        index.length = din.readLong();
+        index.lastModified = din.readLong();
+        index.headerEnd = din.readLong();
+        index.prologOffset = din.readLong();
+        index.setupOffset = din.readLong();
+        index.trailerOffset = din.readLong();
+        index.comments = new long[din.readInt()];
+        for (int i = 0; i < index.comments.length; i++) {
+            index.comments[i] = din.readLong();
+        }
+        index.hasPageResources = din.readBoolean();
+        index.neededResources = readResources(din);
+        index.setupResources = readResources(din);
+        int pageCount = din.readInt();
+        index.pageOffsets = new long[pageCount];
+        index.pageContentOffsets = new long[pageCount];
+        index.pageNames = new String[pageCount];
+        index.pageResources = new Set[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            index.pageOffsets[i] = din.readLong();
+            index.pageContentOffsets[i] = din.readLong();
+            index.pageNames[i] = din.readUTF();
+            index.pageResources[i] = readResources(din);
+        }
+        return index;
+    }
+
+    /** @return the length of the indexed file */
+    public long getLength() {
+        return this.length;
+    }
+
+    /** @return the offset right after the "%!PS-Adobe-3.0" header line */
+    public long getHeaderEnd() {
+        return this.headerEnd;
+    }
+
+    /**
+     * Returns the comments in the header and the trailer which have to be rewritten when
+     * extracting pages (%%Pages and %%DocumentNeededResources) as triples of comment type
+     * ({@link #COMMENT_PAGES} or {@link #COMMENT_NEEDED_RESOURCES}), start and end offset.
+     * @return the comments to be rewritten
+     */
+    long[] getComments() {
+        return this.comments;
+    }
+
+    /**
+     * Returns the resources needed by a range of pages. Resources which are only used on pages
+     * outside the range are removed from the document's needed resources. If the file doesn't
+     * declare any page resources, the document's needed resources are returned unchanged.
+     * @param from the starting page (1-based)
+     * @param to the last page (inclusive, 1-based)
+     * @return the set of needed resources (PSResource instances)
+     */
+    public Set getNeededResources(int from, int to) {
+        if (!hasPageResources) {
+            return Collections.unmodifiableSet(this.neededResources);
+        }
+        Set unused = new java.util.HashSet();
+        for (int i = 0; i < pageResources.length; i++) {
+            if (i + 1 < from || i + 1 > to) {
+                unused.addAll(pageResources[i]);
+            }
+        }
+        if (unused.isEmpty()) {
+            return Collections.unmodifiableSet(this.neededResources);
+        }
+        unused.removeAll(setupResources);
+        for (int i = Math.max(from, 1), c = Math.min(to, pageResources.length); i <= c; i++) {
+            unused.removeAll(pageResources[i - 1]);
+        }
+        Set needed = new java.util.HashSet(this.neededResources);
+        needed.removeAll(unused);
+        return needed;
+    }
+
+    /** @return true if the file declares the resources used by its pages */
+    public boolean hasPageResources() {
+        return this.hasPageResources;
+    }
+
+    /** @return the offset of the %%BeginProlog comment (or -1 if there is none) */
+    public long getPrologOffset() {
+        return this.prologOffset;
+    }
+
+    /** @return the offset of the %%BeginSetup comment (or -1 if there is none) */
+    public long getSetupOffset() {
+        return this.setupOffset;
+    }
+
+    /** @return the offset of the %%Trailer comment (or the %%EOF comment if there's no trailer) */
+    public long getTrailerOffset() {
+        return this.trailerOffset;
+    }
+
+    /** @return the number of pages in the file */
+    public int getPageCount() {
+        return this.pageOffsets.length;
+    }
+
+    /**
+     * Returns the offset of the %%Page comment of a page.
+     * @param page the page (1-based)
+     * @return the offset of the page
+     */
+    public long getPageOffset(int page) {
+        return this.pageOffsets[page - 1];
+    }
+
+    /**
+     * Returns the offset of the content of a page, i.e. right after its %%Page comment.
+     * @param page the page (1-based)
+     * @return the offset of the page content
+     */
+    public long getPageContentOffset(int page) {
+        return this.pageContentOffsets[page - 1];
+    }
+
+    /**
+     * Returns the offset of the end of a page (i.e. the start of the next page or the trailer).
+     * @param page the page (1-based)
+     * @return the offset of the end of the page
+     */
+    public long getPageEnd(int page) {
+        return (page < this.pageOffsets.length ? this.pageOffsets[page] : this.trailerOffset);
+    }
+
+    /**
+     * Returns the resources used by a page as declared by its %%PageResources and
+     * %%IncludeResource comments.
+     * @param page the page (1-based)
+     * @return the set of resources (PSResource instances)
+     */
+    public Set getPageResources(int page) {
+        return Collections.unmodifiableSet(this.pageResources[page - 1]);
+    }
+
+    /**
+     * Returns the name (label) of a page as given in its %%Page comment.
+     * @param page the page (1-based)
+     * @return the page name
+     */
+    public String getPageName(int page) {
+        return this.pageNames[page - 1];
+    }
+
+}
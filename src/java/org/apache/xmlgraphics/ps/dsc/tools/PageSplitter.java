@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.ps.dsc.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+
+import org.apache.xmlgraphics.ps.dsc.DSCException;
+
+/**
+ * Splits a DSC-compliant PostScript file into many page ranges in one go. The file is parsed
+ * only once (to build a {@link PageIndex}) and each range is then written by copying the
+ * relevant sections of the file, with the %%Pages, %%Page and %%DocumentNeededResources
+ * comments adjusted for the range. Several ranges are written concurrently.
+ */
+public class PageSplitter {
+
+    private final File file;
+    private final PageIndex index;
+
+    /**
+     * Creates a new splitter for a PostScript file. The page index is loaded from or saved to
+     * its sidecar file (see {@link PageIndex#loadOrBuild(File)}).
+     * @param file the PostScript file
+     * @throws IOException In case of an I/O error
+     * @throws DSCException In case of a violation of the DSC spec
+     */
+    public PageSplitter(File file) throws IOException, DSCException {
+        this(file, PageIndex.loadOrBuild(file));
+    }
+
+    /**
+     * Creates a new splitter for a PostScript file using an existing page index.
+     * @param file the PostScript file
+     * @param index the page index for the file
+     */
+    public PageSplitter(File file, PageIndex index) {
+        this.file = file;
+        this.index = index;
+    }
+
+    /** @return the page index used by this splitter */
+    public PageIndex getPageIndex() {
+        return this.index;
+    }
+
+    /**
+     * Writes a list of page ranges, each to its own output.
+     * @param ranges the list of {@link PageRange} instances
+     * @param provider provides the OutputStream for each range
+     *          (the streams are closed by the splitter)
+     * @param threads the number of ranges to write concurrently
+     * @throws IOException In case of an I/O error
+     * @throws DSCException In case of a violation of the DSC spec
+     */
+    public void split(List ranges, final OutputProvider provider, int threads)
+                throws IOException, DSCException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            if (threads <= 1) {
+                Iterator iter = ranges.iterator();
+                while (iter.hasNext()) {
+                    writeRange(channel, (PageRange)iter.next(), provider);
+                }
+                return;
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List futures = new java.util.ArrayList(ranges.size());
+                Iterator iter = ranges.iterator();
+                while (iter.hasNext()) {
+                    final PageRange range = (PageRange)iter.next();
+                    futures.add(executor.submit(new Callable() {
+                        public Object call() throws Exception {
+                            writeRange(channel, range, provider);
+                            return null;
+                        }
+                    }));
+                }
+                iter = futures.iterator();
+                while (iter.hasNext()) {
+                    waitFor((Future)iter.next());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void writeRange(FileChannel channel, PageRange range, OutputProvider provider)
+                throws IOException, DSCException {
+        OutputStream out = provider.createOutput(range);
+        try {
+            PageExtractor.extractPages(channel, index, out, range.getFrom(), range.getTo());
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    private static void waitFor(Future future) throws IOException, DSCException {
+        try {
+            future.get();
+        } catch (InterruptedException ie) {
+            throw new IOException("Interrupted while splitting the file");
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof DSCException) {
+                throw (DSCException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else {
+                throw new RuntimeException(cause.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Provides the OutputStream for each page range.
+     */
+    public interface OutputProvider {
+
+        /**
+         * Creates the OutputStream to write a page range to.
+         * @param range the page range
+         * @return the OutputStream
+         * @throws IOException In case of an I/O error
+         */
+        OutputStream createOutput(PageRange range) throws IOException;
+
+    }
+
+    /**
+     * A range of pages.
+     */
+    public static class PageRange {
+
+        private final int from;
+        private final int to;
+
+        /**
+         * Creates a new page range.
+         * @param from the starting page (1-based)
+         * @param to the last page (inclusive, 1-based)
+         */
+        public PageRange(int from, int to) {
+            if (from <= 0) {
+                throw new IllegalArgumentException("'from' page number must be 1 or higher");
+            }
+            if (to < from) {
+                throw new IllegalArgumentException(
+                        "'to' page number must be equal or larger than the 'from' page number");
+            }
+            this.from = from;
+            this.to = to;
+        }
+
+        /** @return the starting page (1-based) */
+        public int getFrom() {
+            return this.from;
+        }
+
+        /** @return the last page (inclusive, 1-based) */
+        public int getTo() {
+            return this.to;
+        }
+
+        /** {@inheritDoc} */
+        public String toString() {
+            return "PageRange[" + from + "-" + to + "]";
+        }
+
+    }
+
+}
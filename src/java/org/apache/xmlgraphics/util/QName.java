@@ -52,7 +52,7 @@ public class QName implements Serializable {
         this.namespaceURI = namespaceURI;
         this.prefix = prefix;
         this.localName = localName;
-        this.hashCode = toHashString().hashCode();
+        this.hashCode = calcHashCode();
     }
 
     /**
@@ -76,7 +76,7 @@ public class QName implements Serializable {
             this.prefix = null;
             this.localName = qName;
         }
-        this.hashCode = toHashString().hashCode();
+        this.hashCode = calcHashCode();
     }
 
     /** @return the namespace URI */
@@ -129,6 +129,25 @@ public class QName implements Serializable {
                 : toHashString();
     }
 
+    /**
+     * Calculates the same hash code as toHashString().hashCode() without building the string.
+     * QNames are created very frequently (for example for each XMP property lookup).
+     */
+    private int calcHashCode() {
+        if (namespaceURI == null) {
+            return localName.hashCode();
+        }
+        int h = '{';
+        for (int i = 0, c = namespaceURI.length(); i < c; i++) {
+            h = 31 * h + namespaceURI.charAt(i);
+        }
+        h = 31 * h + '}';
+        for (int i = 0, c = localName.length(); i < c; i++) {
+            h = 31 * h + localName.charAt(i);
+        }
+        return h;
+    }
+
     private String toHashString() {
         return (namespaceURI != null
                 ? ("{" + namespaceURI + "}" + localName)
@@ -20,15 +20,21 @@
 package org.apache.xmlgraphics.util;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Method;
 import java.net.URL;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.io.IOUtils;
 
@@ -40,6 +46,12 @@ import org.apache.commons.io.IOUtils;
  * File Specification Under Service Provider</a>. Note that this
  * interface is very similar to the one they describe which seems to
  * be missing in the JDK.
+ * <p>
+ * Providers can be obtained as lazy handles ({@link #lazyProviders(Class)}) which only load
+ * and instantiate the provider class when it is first needed. To decide which providers are
+ * needed without instantiating them, a registry can use a provider index generated by the
+ * build (see {@link #getProviderIndex(Class)} and {@link #main(String[])}). Lookups don't
+ * lock once the providers for a class have been looked up.
  *
  * @version $Id$
  *
@@ -50,9 +62,16 @@ public final class Service {
     private Service() {
     }
 
+    /** Directory of the provider index resources */
+    private static final String INDEX_DIRECTORY = "META-INF/service-index/";
+
     // Remember providers we have looked up before.
-    static Map<String, List<String>> classMap = new java.util.HashMap<String, List<String>>();
-    static Map<String, List<Object>> instanceMap = new java.util.HashMap<String, List<Object>>();
+    static Map<String, List<String>> classMap = new ConcurrentHashMap<String, List<String>>();
+    static Map<String, List<Object>> instanceMap = new ConcurrentHashMap<String, List<Object>>();
+    static Map<String, List<Provider<?>>> handleMap
+            = new ConcurrentHashMap<String, List<Provider<?>>>();
+    static Map<String, Map<String, String[]>> indexMap
+            = new ConcurrentHashMap<String, Map<String, String[]>>();
 
     /**
      * Returns an iterator where each element should implement the
@@ -65,32 +84,114 @@ public final class Service {
      *
      * @param cls The class/interface to search for providers of.
      */
-    public static synchronized Iterator<Object> providers(Class<?> cls) {
+    public static Iterator<Object> providers(Class<?> cls) {
         String serviceFile = getServiceFilename(cls);
 
         List<Object> l = instanceMap.get(serviceFile);
         if (l != null) {
             return l.iterator();
         }
+        synchronized (Service.class) {
+            l = instanceMap.get(serviceFile);
+            if (l == null) {
+                l = new java.util.ArrayList<Object>();
+                for (Provider<?> provider : lazyProviders(cls)) {
+                    Object obj = provider.getInstance();
+                    if (obj != null) {
+                        l.add(obj);
+                    }
+                }
+                l = Collections.unmodifiableList(l);
+                instanceMap.put(serviceFile, l);
+            }
+        }
+        return l.iterator();
+    }
 
-        l = new java.util.ArrayList<Object>();
-        instanceMap.put(serviceFile, l);
+    /**
+     * Returns handles for the providers of the interface (or baseclass) described by cls. The
+     * providers are found like with {@link #providers(Class)}, but a provider class is only
+     * loaded and instantiated when {@link Provider#getInstance()} is called for the first
+     * time. The instances are shared with {@link #providers(Class)}.
+     *
+     * @param cls The class/interface to search for providers of.
+     * @param <T> the type of the providers
+     * @return the list of provider handles
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<Provider<T>> lazyProviders(Class<T> cls) {
+        String serviceFile = getServiceFilename(cls);
 
-        ClassLoader cl = getClassLoader(cls);
-        if (cl != null) {
-            List<String> names = getProviderNames(cls, cl);
-            for (String name : names) {
+        List<Provider<?>> l = handleMap.get(serviceFile);
+        if (l == null) {
+            synchronized (Service.class) {
+                l = handleMap.get(serviceFile);
+                if (l == null) {
+                    l = new java.util.ArrayList<Provider<?>>();
+                    ClassLoader cl = getClassLoader(cls);
+                    for (String name : getProviderNames(cls, cl)) {
+                        l.add(new Provider<T>(cls, name, cl));
+                    }
+                    l = Collections.unmodifiableList(l);
+                    handleMap.put(serviceFile, l);
+                }
+            }
+        }
+        return (List<Provider<T>>)(List<?>)l;
+    }
+
+    /**
+     * Returns the provider index for the interface (or baseclass) described by cls. The index
+     * is generated by the build (see {@link #main(String[])}) and maps the class names of
+     * providers to keys (for example, MIME types) so a registry can find out which provider
+     * to use without instantiating all providers. Providers missing from the index (for
+     * example from other libraries) have to be instantiated to find out their keys.
+     *
+     * @param cls The class/interface to get the index for.
+     * @return a map with provider class names as keys and the provider's keys as values
+     */
+    public static Map<String, String[]> getProviderIndex(Class<?> cls) {
+        String indexFile = INDEX_DIRECTORY + cls.getName();
+        Map<String, String[]> index = indexMap.get(indexFile);
+        if (index != null) {
+            return index;
+        }
+        index = loadProviderIndex(cls, getClassLoader(cls));
+        indexMap.put(indexFile, index);
+        return index;
+    }
+
+    /**
+     * Loads the provider index for the interface (or baseclass) described by cls from the
+     * given class loader without caching it.
+     * @param cls The class/interface to get the index for.
+     * @param cl the class loader to load the index resources from
+     * @return a map with provider class names as keys and the provider's keys as values
+     */
+    static Map<String, String[]> loadProviderIndex(Class<?> cls, ClassLoader cl) {
+        String indexFile = INDEX_DIRECTORY + cls.getName();
+        Map<String, String[]> index = new java.util.HashMap<String, String[]>();
+        try {
+            Enumeration<URL> e = cl.getResources(indexFile);
+            while (e.hasMoreElements()) {
+                Properties props = new Properties();
+                InputStream in = e.nextElement().openStream();
                 try {
-                    // Try and load the class
-                    Object obj = cl.loadClass(name).newInstance();
-                    // stick it into our vector...
-                    l.add(obj);
-                } catch (Exception ex) {
-                    // Just try the next name
+                    props.load(in);
+                } finally {
+                    IOUtils.closeQuietly(in);
+                }
+                for (Map.Entry<Object, Object> entry : props.entrySet()) {
+                    String value = entry.getValue().toString().trim();
+                    index.put(entry.getKey().toString(),
+                            value.length() > 0 ? value.split(",") : new String[0]);
                 }
             }
+        } catch (IOException ioe) {
+            //Without an index, all providers have to be instantiated
+            index.clear();
         }
-        return l.iterator();
+        return Collections.unmodifiableMap(index);
     }
 
     /**
@@ -104,17 +205,14 @@ public final class Service {
      *
      * @param cls The class/interface to search for providers of.
      */
-    public static synchronized Iterator<String> providerNames(Class<?> cls) {
+    public static Iterator<String> providerNames(Class<?> cls) {
         String serviceFile = getServiceFilename(cls);
 
         List<String> l = classMap.get(serviceFile);
-        if (l != null) {
-            return l.iterator();
+        if (l == null) {
+            l = Collections.unmodifiableList(getProviderNames(cls));
+            classMap.put(serviceFile, l);
         }
-
-        l = new java.util.ArrayList<String>();
-        classMap.put(serviceFile, l);
-        l.addAll(getProviderNames(cls));
         return l.iterator();
     }
 
@@ -210,4 +308,107 @@ public final class Service {
         return "META-INF/services/" + cls.getName();
     }
 
+    /**
+     * Generates provider indexes. Used by the build.
+     * @param args the target directory followed by entries of the form
+     *          "&lt;service class&gt;#&lt;method&gt;" where the method is a no-argument method
+     *          of the providers returning the provider's key (a String) or keys (a String
+     *          array)
+     * @throws Exception if an error occurs
+     */
+    public static void main(String[] args) throws Exception {
+        File targetDir = new File(args[0], INDEX_DIRECTORY);
+        targetDir.mkdirs();
+        for (int i = 1; i < args.length; i++) {
+            int pos = args[i].indexOf('#');
+            Class<?> cls = Class.forName(args[i].substring(0, pos));
+            Method method = cls.getMethod(args[i].substring(pos + 1));
+            //Sorted and without a timestamp so the generated file is reproducible
+            Map<String, String> index = new java.util.TreeMap<String, String>();
+            for (Provider<?> provider : lazyProviders(cls)) {
+                Object obj = provider.getInstance();
+                if (obj == null) {
+                    continue;
+                }
+                Object keys = method.invoke(obj);
+                StringBuffer sb = new StringBuffer();
+                if (keys instanceof String[]) {
+                    String[] arr = (String[])keys;
+                    for (int k = 0; k < arr.length; k++) {
+                        if (k > 0) {
+                            sb.append(',');
+                        }
+                        sb.append(arr[k]);
+                    }
+                } else {
+                    sb.append(keys);
+                }
+                index.put(provider.getClassName(), sb.toString());
+            }
+            Writer out = new java.io.OutputStreamWriter(
+                    new java.io.FileOutputStream(new File(targetDir, cls.getName())),
+                    "ISO-8859-1");
+            try {
+                out.write("# Provider index for " + cls.getName() + " (generated)\n");
+                for (Map.Entry<String, String> entry : index.entrySet()) {
+                    out.write(entry.getKey() + "=" + entry.getValue() + "\n");
+                }
+            } finally {
+                IOUtils.closeQuietly(out);
+            }
+        }
+    }
+
+    /**
+     * Handle for a service provider which is loaded and instantiated on first use.
+     * @param <T> the type of the provider
+     */
+    public static final class Provider<T> {
+
+        private static final Object FAILED = new Object();
+
+        private final Class<T> type;
+        private final String className;
+        private final ClassLoader classLoader;
+        private volatile Object instance;
+
+        private Provider(Class<T> type, String className, ClassLoader classLoader) {
+            this.type = type;
+            this.className = className;
+            this.classLoader = classLoader;
+        }
+
+        /** @return the class name of the provider */
+        public String getClassName() {
+            return this.className;
+        }
+
+        /**
+         * Returns the provider instance, loading and instantiating the class on first use.
+         * @return the provider or null if the provider could not be instantiated
+         */
+        public T getInstance() {
+            Object obj = this.instance;
+            if (obj == null) {
+                synchronized (this) {
+                    obj = this.instance;
+                    if (obj == null) {
+                        try {
+                            obj = type.cast(classLoader.loadClass(className).newInstance());
+                        } catch (Exception ex) {
+                            obj = FAILED;
+                        }
+                        this.instance = obj;
+                    }
+                }
+            }
+            return (obj != FAILED) ? type.cast(obj) : null;
+        }
+
+        /** {@inheritDoc} */
+        public String toString() {
+            return "Provider[" + className + "]";
+        }
+    }
+
 }
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.util.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.ThresholdingOutputStream;
+
+/**
+ * An OutputStream which keeps its data in memory until a given number of bytes is exceeded
+ * and then moves it to a temporary file. After the stream has been closed, the data can be
+ * read back using {@link #toInputStream()} without copying it again.
+ * <p>
+ * The temporary file is deleted when the InputStream returned by {@link #toInputStream()} is
+ * closed or when {@link #dispose()} is called, so one of them should always happen.
+ */
+public class SpillingOutputStream extends ThresholdingOutputStream {
+
+    private MemoryOutputStream memory = new MemoryOutputStream();
+    private OutputStream current = memory;
+    private File file;
+    private boolean closed;
+
+    /**
+     * Creates a new SpillingOutputStream.
+     * @param threshold the number of bytes to keep in memory before the data is moved to
+     *          a temporary file
+     */
+    public SpillingOutputStream(int threshold) {
+        super(threshold);
+    }
+
+    /** {@inheritDoc} */
+    protected OutputStream getStream() throws IOException {
+        return current;
+    }
+
+    /** {@inheritDoc} */
+    protected void thresholdReached() throws IOException {
+        File tempFile = File.createTempFile("xmlgraphics-", ".tmp");
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile));
+        try {
+            memory.writeTo(out);
+        } catch (IOException ioe) {
+            IOUtils.closeQuietly(out);
+            tempFile.delete();
+            throw ioe;
+        }
+        this.file = tempFile;
+        this.memory = null;
+        this.current = out;
+    }
+
+    /** {@inheritDoc} */
+    public void close() throws IOException {
+        super.close();
+        this.closed = true;
+    }
+
+    /**
+     * Indicates whether the data is still held in memory.
+     * @return true if the data is held in memory, false if it has been moved to a file
+     */
+    public boolean isInMemory() {
+        return this.memory != null;
+    }
+
+    /** @return the temporary file holding the data (or null if there is none) */
+    File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Returns an InputStream for the data written to this stream. The stream must have been
+     * closed before. If the data has been moved to a temporary file, the file is deleted when
+     * the returned InputStream is closed, so this method can only be called once in this case.
+     * @return the InputStream
+     * @throws IOException if an I/O error occurs
+     */
+    public InputStream toInputStream() throws IOException {
+        if (!closed) {
+            throw new IllegalStateException("The stream must be closed first");
+        }
+        if (memory != null) {
+            return memory.toInputStream();
+        }
+        if (file == null) {
+            throw new IllegalStateException("The data has already been read or disposed");
+        }
+        final File tempFile = this.file;
+        this.file = null;
+        return new FileInputStream(tempFile) {
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    tempFile.delete();
+                }
+            }
+        };
+    }
+
+    /**
+     * Closes the stream and releases the data, deleting the temporary file if there is one.
+     * This is only necessary if the data is not read through {@link #toInputStream()}.
+     */
+    public void dispose() {
+        IOUtils.closeQuietly(current);
+        this.closed = true;
+        this.memory = null;
+        if (file != null) {
+            file.delete();
+            file = null;
+        }
+    }
+
+    /** ByteArrayOutputStream which gives access to its buffer without copying it. */
+    private static class MemoryOutputStream extends ByteArrayOutputStream {
+
+        public synchronized InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+
+    }
+
+}
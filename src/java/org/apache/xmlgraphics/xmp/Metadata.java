@@ -47,7 +47,7 @@ public class Metadata implements XMLizable, PropertyAccess {
 
     /** {@inheritDoc} */
     public XMPProperty getProperty(String uri, String localName) {
-        return getProperty(new QName(uri, localName));
+        return getProperty(XMPSchemaRegistry.getInstance().getPropertyName(uri, localName));
     }
 
     /** {@inheritDoc} */
@@ -83,11 +83,18 @@ public class Metadata implements XMLizable, PropertyAccess {
      */
     public void mergeInto(Metadata target) {
         XMPSchemaRegistry registry = XMPSchemaRegistry.getInstance();
+        String lastNamespace = null;
+        MergeRuleSet rules = null;
         Iterator iter = properties.values().iterator();
         while (iter.hasNext()) {
             XMPProperty prop = (XMPProperty)iter.next();
-            XMPSchema schema = registry.getSchema(prop.getNamespace());
-            MergeRuleSet rules = schema.getDefaultMergeRuleSet();
+            String ns = prop.getNamespace();
+            if (rules == null || !ns.equals(lastNamespace)) {
+                XMPSchema schema = registry.getSchema(ns);
+                rules = (schema != null
+                        ? schema.getDefaultMergeRuleSet() : XMPSchema.getDefaultMergeRules());
+                lastNamespace = ns;
+            }
             PropertyMerger merger = rules.getPropertyMergerFor(prop);
             merger.merge(prop, target);
         }
@@ -35,7 +35,8 @@ public class XMPArray extends XMPComplexValue {
 
     private XMPArrayType type;
     private List values = new java.util.ArrayList();
-    private List xmllang = new java.util.ArrayList();
+    /** xml:lang values parallel to the values (only created once a language is set) */
+    private List xmllang;
 
     /**
      * Main constructor
@@ -80,6 +81,10 @@ public class XMPArray extends XMPComplexValue {
         }
     }
 
+    private String getLang(int idx) {
+        return (xmllang != null ? (String)xmllang.get(idx) : null);
+    }
+
     private String getParentLanguage(String lang) {
         if (lang == null) {
             return null;
@@ -101,7 +106,7 @@ public class XMPArray extends XMPComplexValue {
         String v = null;
         String valueForParentLanguage = null;
         for (int i = 0, c = values.size(); i < c; i++) {
-            String l = (String)xmllang.get(i);
+            String l = getLang(i);
             if ((l == null && lang == null) || (l != null && l.equals(lang))) {
                 v = values.get(i).toString();
                 break;
@@ -137,10 +142,12 @@ public class XMPArray extends XMPComplexValue {
             lang = XMPConstants.DEFAULT_LANGUAGE;
         }
         for (int i = 0, c = values.size(); i < c; i++) {
-            String l = (String)xmllang.get(i);
+            String l = getLang(i);
             if ((XMPConstants.DEFAULT_LANGUAGE.equals(lang) && l == null) || lang.equals(l)) {
                 String value = (String)values.remove(i);
-                xmllang.remove(i);
+                if (xmllang != null) {
+                    xmllang.remove(i);
+                }
                 return value;
             }
         }
@@ -153,7 +160,9 @@ public class XMPArray extends XMPComplexValue {
      */
     public void add(Object value) {
         values.add(value);
-        xmllang.add(null);
+        if (xmllang != null) {
+            xmllang.add(null);
+        }
     }
 
     /**
@@ -165,7 +174,9 @@ public class XMPArray extends XMPComplexValue {
         int idx = values.indexOf(value);
         if (idx >= 0) {
             values.remove(idx);
-            xmllang.remove(idx);
+            if (xmllang != null) {
+                xmllang.remove(idx);
+            }
             return true;
         }
         return false;
@@ -178,8 +189,16 @@ public class XMPArray extends XMPComplexValue {
      * @param lang the language ("x-default" for the default value)
      */
     public void add(String value, String lang) {
+        if (xmllang == null && lang != null) {
+            xmllang = new java.util.ArrayList(values.size() + 1);
+            for (int i = 0, c = values.size(); i < c; i++) {
+                xmllang.add(null);
+            }
+        }
         values.add(value);
-        xmllang.add(lang);
+        if (xmllang != null) {
+            xmllang.add(lang);
+        }
     }
 
     /**
@@ -216,7 +235,7 @@ public class XMPArray extends XMPComplexValue {
         handler.startElement(XMPConstants.RDF_NAMESPACE,
                 type.getName(), "rdf:" + type.getName(), atts);
         for (int i = 0, c = values.size(); i < c; i++) {
-            String lang = (String)xmllang.get(i);
+            String lang = getLang(i);
             atts.clear();
             Object v = values.get(i);
             if (lang != null) {
@@ -19,6 +19,8 @@
 
 package org.apache.xmlgraphics.xmp;
 
+import java.util.Map;
+
 import org.apache.xmlgraphics.util.QName;
 import org.apache.xmlgraphics.xmp.merge.MergeRuleSet;
 
@@ -32,6 +34,9 @@ public class XMPSchema {
     private String namespace;
     private String prefix;
 
+    /** Index of interned property names (local name to QName) */
+    private Map propertyNames = new java.util.concurrent.ConcurrentHashMap();
+
     /**
      * Constructs a new XMP schema object.
      * @param namespace the namespace URI for the schema
@@ -53,12 +58,35 @@ public class XMPSchema {
     }
 
     /**
-     * Returns the QName for a property of this schema.
+     * Returns the QName for a property of this schema. The QNames are interned per schema so
+     * repeated accesses to the same property don't create new objects.
      * @param propName the property name
      * @return the QName for the property
      */
     protected QName getQName(String propName) {
-        return new QName(getNamespace(), propName);
+        QName name = (QName)propertyNames.get(propName);
+        if (name == null) {
+            name = new QName(getNamespace(), getPreferredPrefix(), propName);
+            //Concurrent creation is harmless as QNames with the same name are equal
+            propertyNames.put(propName, name);
+        }
+        return name;
+    }
+
+    /**
+     * Returns the interned QName for a property of this schema if it has already been used.
+     * Unlike {@link #getQName(String)} this doesn't add new entries to the index, so it can
+     * safely be used with arbitrary names coming from parsed documents.
+     * @param propName the property name
+     * @return the QName or null if the property name hasn't been interned, yet
+     */
+    QName findQName(String propName) {
+        return (QName)propertyNames.get(propName);
+    }
+
+    /** @return the merge rule set used for properties of schemas without specific rules */
+    static MergeRuleSet getDefaultMergeRules() {
+        return defaultMergeRuleSet;
     }
 
     /** @return the default merge rule set for this XMP schema. */
@@ -61,7 +61,7 @@ public class XMPSchemaAdapter {
      * @return the resulting QName
      */
     protected QName getQName(String propName) {
-        return new QName(getSchema().getNamespace(), getSchema().getPreferredPrefix(), propName);
+        return getSchema().getQName(propName);
     }
 
     /**
@@ -21,6 +21,7 @@ package org.apache.xmlgraphics.xmp;
 
 import java.util.Map;
 
+import org.apache.xmlgraphics.util.QName;
 import org.apache.xmlgraphics.xmp.schemas.DublinCoreSchema;
 import org.apache.xmlgraphics.xmp.schemas.XMPBasicSchema;
 import org.apache.xmlgraphics.xmp.schemas.pdf.AdobePDFSchema;
@@ -71,4 +72,18 @@ public final class XMPSchemaRegistry {
         return (XMPSchema)schemas.get(namespace);
     }
 
+    /**
+     * Returns the QName for a property, reusing the interned instance of the property's schema
+     * if available. This avoids allocating a new QName for every lookup by namespace and
+     * local name.
+     * @param namespace the namespace URI
+     * @param localName the local name of the property
+     * @return the QName
+     */
+    QName getPropertyName(String namespace, String localName) {
+        XMPSchema schema = getSchema(namespace);
+        QName name = (schema != null ? schema.findQName(localName) : null);
+        return (name != null ? name : new QName(namespace, localName));
+    }
+
 }
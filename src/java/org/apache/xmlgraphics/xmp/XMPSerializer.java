@@ -27,8 +27,8 @@ import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.sax.SAXTransformerFactory;
 import javax.xml.transform.sax.TransformerHandler;
-import javax.xml.transform.stream.StreamResult;
 
+import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
 /**
@@ -41,6 +41,20 @@ public final class XMPSerializer {
 
     private static final String DEFAULT_ENCODING = "UTF-8";
 
+    private static final String XPACKET_BEGIN = "begin=\"\uFEFF\" id=\"W5M0MpCehiHzreSzNTczkc9d\"";
+
+    /** Padding for writable packets (40 * 101 characters is more or less the recommended 4KB) */
+    private static final char[] PADDING;
+
+    static {
+        PADDING = new char[40 * 101 + 1];
+        java.util.Arrays.fill(PADDING, ' ');
+        for (int i = 0; i < 40; i++) {
+            PADDING[i * 101] = '\n';
+        }
+        PADDING[PADDING.length - 1] = '\n';
+    }
+
     /**
      * Writes the in-memory representation of the XMP metadata to a JAXP Result.
      * @param meta the metadata
@@ -51,7 +65,19 @@ public final class XMPSerializer {
      */
     public static void writeXML(Metadata meta, Result res)
             throws TransformerConfigurationException, SAXException {
-        writeXML(meta, res, false, false);
+        SAXTransformerFactory tFactory = (SAXTransformerFactory)SAXTransformerFactory.newInstance();
+        TransformerHandler handler = tFactory.newTransformerHandler();
+        Transformer transformer = handler.getTransformer();
+        transformer.setOutputProperty(OutputKeys.ENCODING, DEFAULT_ENCODING);
+        try {
+            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        } catch (IllegalArgumentException iae) {
+            //INDENT key is not supported by implementation. That's not tragic, so just ignore.
+        }
+        handler.setResult(res);
+        handler.startDocument();
+        meta.toSAX(handler);
+        handler.endDocument();
     }
 
     /**
@@ -59,59 +85,29 @@ public final class XMPSerializer {
      * @param meta the metadata
      * @param out the stream to write to
      * @param readOnlyXMP true if the generated XMP packet should be read-only
-     * @throws TransformerConfigurationException if an error occurs setting up the XML
-     *              infrastructure.
+     * @throws TransformerConfigurationException not thrown anymore as the packet is written
+     *              without JAXP (kept for backwards compatibility)
      * @throws SAXException if a SAX-related problem occurs while writing the XML
      */
     public static void writeXMPPacket(Metadata meta, OutputStream out, boolean readOnlyXMP)
             throws TransformerConfigurationException, SAXException {
-        StreamResult res = new StreamResult(out);
-        writeXML(meta, res, true, readOnlyXMP);
-
+        //No JAXP needed here: XMPWriter serializes directly to UTF-8
+        XMPWriter writer = new XMPWriter(out);
+        writer.startDocument();
+        writePacket(meta, writer, readOnlyXMP);
+        writer.endDocument();
     }
 
-    private static void writeXML(Metadata meta, Result res,
-                    boolean asXMPPacket, boolean readOnlyXMP)
-                            throws TransformerConfigurationException, SAXException {
-        SAXTransformerFactory tFactory = (SAXTransformerFactory)SAXTransformerFactory.newInstance();
-        TransformerHandler handler = tFactory.newTransformerHandler();
-        Transformer transformer = handler.getTransformer();
-        if (asXMPPacket) {
-            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-        }
-        transformer.setOutputProperty(OutputKeys.ENCODING, DEFAULT_ENCODING);
-        try {
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        } catch (IllegalArgumentException iae) {
-            //INDENT key is not supported by implementation. That's not tragic, so just ignore.
-        }
-        handler.setResult(res);
-        handler.startDocument();
-        if (asXMPPacket) {
-            handler.processingInstruction("xpacket",
-                    "begin=\"\uFEFF\" id=\"W5M0MpCehiHzreSzNTczkc9d\"");
-        }
+    private static void writePacket(Metadata meta, ContentHandler handler, boolean readOnlyXMP)
+                throws SAXException {
+        handler.processingInstruction("xpacket", XPACKET_BEGIN);
         meta.toSAX(handler);
-        if (asXMPPacket) {
-            if (readOnlyXMP) {
-                handler.processingInstruction("xpacket", "end=\"r\"");
-            } else {
-                //Create padding string (40 * 101 characters is more or less the recommended 4KB)
-                StringBuffer sb = new StringBuffer(101);
-                sb.append('\n');
-                for (int i = 0; i < 100; i++) {
-                    sb.append(" ");
-                }
-                char[] padding = sb.toString().toCharArray();
-                for (int i = 0; i < 40; i++) {
-                    handler.characters(padding, 0, padding.length);
-                }
-                handler.characters(new char[] {'\n'}, 0, 1);
-                handler.processingInstruction("xpacket", "end=\"w\"");
-            }
-
+        if (readOnlyXMP) {
+            handler.processingInstruction("xpacket", "end=\"r\"");
+        } else {
+            handler.characters(PADDING, 0, PADDING.length);
+            handler.processingInstruction("xpacket", "end=\"w\"");
         }
-        handler.endDocument();
     }
 
 }
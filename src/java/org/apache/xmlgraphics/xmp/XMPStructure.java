@@ -53,7 +53,7 @@ public class XMPStructure extends XMPComplexValue implements PropertyAccess {
 
     /** {@inheritDoc} */
     public XMPProperty getProperty(String uri, String localName) {
-        return getProperty(new QName(uri, localName));
+        return getProperty(XMPSchemaRegistry.getInstance().getPropertyName(uri, localName));
     }
 
     /** {@inheritDoc} */
@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.xmp;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+/**
+ * Lightweight ContentHandler which writes the SAX events produced by
+ * {@link Metadata#toSAX(ContentHandler)} straight to an OutputStream as UTF-8 encoded XML.
+ * It avoids setting up a JAXP identity transformation for every XMP packet and only supports
+ * the subset of XML needed for XMP (no DTDs, no mixed content). Indentation follows what the
+ * JAXP serializer produces with indenting enabled.
+ */
+final class XMPWriter implements ContentHandler {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int INDENT = 4;
+
+    private final Writer writer;
+
+    private List pendingNamespaces = new java.util.ArrayList();
+    /** In-scope namespace declarations as prefix/URI pairs */
+    private List namespaces = new java.util.ArrayList();
+    /** Size of the in-scope namespace list before each open element */
+    private int[] namespaceMarks = new int[16];
+
+    private int depth;
+    private boolean startTagOpen;
+    private boolean hasText;
+    private boolean afterEndTag;
+
+    /**
+     * Creates a new writer.
+     * @param out the stream to write to (it is flushed but not closed at the end of the document)
+     */
+    public XMPWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8));
+    }
+
+    /** {@inheritDoc} */
+    public void setDocumentLocator(Locator locator) {
+        //nop
+    }
+
+    /** {@inheritDoc} */
+    public void startDocument() throws SAXException {
+        //nop
+    }
+
+    /** {@inheritDoc} */
+    public void endDocument() throws SAXException {
+        try {
+            writer.flush();
+        } catch (IOException ioe) {
+            throw new SAXException(ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        pendingNamespaces.add(prefix);
+        pendingNamespaces.add(uri);
+    }
+
+    /** {@inheritDoc} */
+    public void endPrefixMapping(String prefix) throws SAXException {
+        //nop
+    }
+
+    /** {@inheritDoc} */
+    public void startElement(String uri, String localName, String qName, Attributes atts)
+                throws SAXException {
+        try {
+            closeStartTag();
+            if (depth > 0 && !hasText) {
+                newLine(depth);
+            }
+            writer.write('<');
+            writer.write(qName);
+            if (depth == namespaceMarks.length) {
+                int[] marks = new int[depth * 2];
+                System.arraycopy(namespaceMarks, 0, marks, 0, depth);
+                namespaceMarks = marks;
+            }
+            namespaceMarks[depth] = namespaces.size();
+            //Like the JAXP serializer, declare prefixes which are used but not in scope
+            declareIfNecessary(qName, uri);
+            for (int i = 0, c = atts.getLength(); i < c; i++) {
+                declareIfNecessary(atts.getQName(i), atts.getURI(i));
+            }
+            for (int i = 0, c = pendingNamespaces.size(); i < c; i += 2) {
+                String prefix = (String)pendingNamespaces.get(i);
+                writer.write(" xmlns");
+                if (prefix.length() > 0) {
+                    writer.write(':');
+                    writer.write(prefix);
+                }
+                writer.write("=\"");
+                writeEscaped((String)pendingNamespaces.get(i + 1), true);
+                writer.write('"');
+                namespaces.add(prefix);
+                namespaces.add(pendingNamespaces.get(i + 1));
+            }
+            pendingNamespaces.clear();
+            for (int i = 0, c = atts.getLength(); i < c; i++) {
+                writer.write(' ');
+                writer.write(atts.getQName(i));
+                writer.write("=\"");
+                writeEscaped(atts.getValue(i), true);
+                writer.write('"');
+            }
+            startTagOpen = true;
+            hasText = false;
+            afterEndTag = false;
+            depth++;
+        } catch (IOException ioe) {
+            throw new SAXException(ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        try {
+            depth--;
+            int mark = namespaceMarks[depth];
+            for (int i = namespaces.size() - 1; i >= mark; i--) {
+                namespaces.remove(i);
+            }
+            if (startTagOpen) {
+                writer.write("/>");
+                startTagOpen = false;
+            } else {
+                if (!hasText) {
+                    newLine(depth);
+                }
+                writer.write("</");
+                writer.write(qName);
+                writer.write('>');
+            }
+            hasText = false;
+            afterEndTag = true;
+        } catch (IOException ioe) {
+            throw new SAXException(ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        if (length == 0) {
+            return;
+        }
+        try {
+            closeStartTag();
+            if (depth == 0) {
+                //Outside the document element (i.e. packet padding): whitespace only
+                writer.write(ch, start, length);
+            } else {
+                writeEscaped(ch, start, length, false);
+                hasText = true;
+            }
+            afterEndTag = false;
+        } catch (IOException ioe) {
+            throw new SAXException(ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        characters(ch, start, length);
+    }
+
+    /** {@inheritDoc} */
+    public void processingInstruction(String target, String data) throws SAXException {
+        try {
+            closeStartTag();
+            writer.write("<?");
+            writer.write(target);
+            if (data != null && data.length() > 0) {
+                writer.write(' ');
+                writer.write(data);
+            }
+            writer.write("?>");
+            if (depth == 0 && afterEndTag) {
+                //The JAXP serializer ends the line after a PI directly following the document
+                writer.write('\n');
+            }
+            afterEndTag = false;
+        } catch (IOException ioe) {
+            throw new SAXException(ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void skippedEntity(String name) throws SAXException {
+        //nop
+    }
+
+    private void closeStartTag() throws IOException {
+        if (startTagOpen) {
+            writer.write('>');
+            startTagOpen = false;
+        }
+    }
+
+    private void declareIfNecessary(String qName, String uri) {
+        int pos = qName.indexOf(':');
+        if (pos < 0 || uri == null || uri.length() == 0) {
+            return;
+        }
+        String prefix = qName.substring(0, pos);
+        if ("xml".equals(prefix) || uri.equals(lookupNamespace(prefix, pendingNamespaces))
+                || uri.equals(lookupNamespace(prefix, namespaces))) {
+            return;
+        }
+        pendingNamespaces.add(prefix);
+        pendingNamespaces.add(uri);
+    }
+
+    private static String lookupNamespace(String prefix, List declarations) {
+        for (int i = declarations.size() - 2; i >= 0; i -= 2) {
+            if (prefix.equals(declarations.get(i))) {
+                return (String)declarations.get(i + 1);
+            }
+        }
+        return null;
+    }
+
+    private void newLine(int level) throws IOException {
+        writer.write('\n');
+        for (int i = 0, c = level * INDENT; i < c; i++) {
+            writer.write(' ');
+        }
+    }
+
+    private void writeEscaped(String s, boolean attribute) throws IOException {
+        writeEscaped(s.toCharArray(), 0, s.length(), attribute);
+    }
+
+    private void writeEscaped(char[] ch, int start, int length, boolean attribute)
+                throws IOException {
+        int last = start;
+        for (int i = start, end = start + length; i < end; i++) {
+            String replacement;
+            switch (ch[i]) {
+            case '&':
+                replacement = "&amp;";
+                break;
+            case '<':
+                replacement = "&lt;";
+                break;
+            case '>':
+                replacement = "&gt;";
+                break;
+            case '"':
+                replacement = (attribute ? "&quot;" : null);
+                break;
+            case '\t':
+                replacement = (attribute ? "&#9;" : null);
+                break;
+            case '\n':
+                replacement = (attribute ? "&#10;" : null);
+                break;
+            case '\r':
+                replacement = "&#13;";
+                break;
+            default:
+                replacement = null;
+            }
+            if (replacement != null) {
+                writer.write(ch, last, i - last);
+                writer.write(replacement);
+                last = i + 1;
+            }
+        }
+        writer.write(ch, last, start + length - last);
+    }
+
+}
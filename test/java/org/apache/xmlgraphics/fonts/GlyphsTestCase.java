@@ -19,8 +19,13 @@
 
 package org.apache.xmlgraphics.fonts;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
@@ -95,4 +100,42 @@ public class GlyphsTestCase {
         alts = Glyphs.getCharNameAlternativesFor("A");
         assertNull(alts);
     }
+
+    @Test
+    public void testCharNameLookup() throws Exception {
+        assertEquals("backslash", Glyphs.charToGlyphName('\\'));
+        assertEquals("A", Glyphs.charToGlyphName('A'));
+        //0x2126 is listed as "Ohm" and "Omega": the first entry wins
+        assertEquals("Ohm", Glyphs.charToGlyphName('\u2126'));
+        //ZapfDingbats
+        assertEquals("a1", Glyphs.charToGlyphName('\u2701'));
+        assertEquals("", Glyphs.charToGlyphName('\uE000'));
+
+        assertEquals("backslash", Glyphs.stringToGlyph("\\"));
+        assertEquals("rehyehaleflamarabic", Glyphs.stringToGlyph("\u0631\uFEF3\uFE8E\u0644"));
+        assertEquals("", Glyphs.stringToGlyph("AB"));
+
+        assertEquals("\\", Glyphs.glyphToString("backslash"));
+        //glyphToString() only covers the Adobe Glyph List
+        assertEquals("", Glyphs.glyphToString("a1"));
+        assertEquals("", Glyphs.glyphToString("blah"));
+    }
+
+    @Test
+    public void testBinaryGlyphList() throws Exception {
+        InputStream in = GlyphList.class.getResourceAsStream("glyphlist.txt");
+        String[] glyphs;
+        try {
+            glyphs = GlyphList.parseText(in);
+        } finally {
+            in.close();
+        }
+        assertEquals("A", glyphs[1]);
+        assertEquals("A", glyphs[0]);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GlyphList.writeBinary(glyphs, out);
+        String[] loaded = GlyphList.readBinary(new ByteArrayInputStream(out.toByteArray()));
+        assertArrayEquals(glyphs, loaded);
+    }
 }
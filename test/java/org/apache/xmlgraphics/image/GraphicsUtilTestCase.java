@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the alpha handling in {@link GraphicsUtil}.
+ */
+public class GraphicsUtilTestCase {
+
+    private static WritableRaster fill(WritableRaster raster) {
+        //All combinations of alpha and color values
+        int width = raster.getWidth();
+        for (int i = 0; i < 256 * 256; i++) {
+            int x = i % width;
+            int y = i / width;
+            raster.setPixel(x, y, new int[] {i & 0xFF, 255 - (i & 0xFF), (i * 7) & 0xFF, i >> 8});
+        }
+        return raster;
+    }
+
+    private static int[] getPixels(Raster raster) {
+        return raster.getPixels(raster.getMinX(), raster.getMinY(),
+                raster.getWidth(), raster.getHeight(), (int[])null);
+    }
+
+    @Test
+    public void testMultiplyAlpha() throws Exception {
+        WritableRaster raster = fill(new BufferedImage(256, 256,
+                BufferedImage.TYPE_INT_ARGB).getRaster());
+        int[] pixels = getPixels(raster);
+        GraphicsUtil.multiplyAlpha(raster);
+        int[] result = getPixels(raster);
+        for (int i = 0; i < pixels.length; i += 4) {
+            int a = pixels[i + 3];
+            for (int b = 0; b < 3; b++) {
+                int expected = (a == 255 ? pixels[i + b] : (pixels[i + b] * a) >> 8);
+                assertEquals(expected, result[i + b]);
+            }
+            assertEquals(a, result[i + 3]);
+        }
+    }
+
+    @Test
+    public void testDivideAlpha() throws Exception {
+        WritableRaster raster = fill(new BufferedImage(256, 256,
+                BufferedImage.TYPE_INT_ARGB).getRaster());
+        int[] pixels = getPixels(raster);
+        GraphicsUtil.divideAlpha(raster);
+        int[] result = getPixels(raster);
+        for (int i = 0; i < pixels.length; i += 4) {
+            int a = pixels[i + 3];
+            for (int b = 0; b < 3; b++) {
+                int expected;
+                if (a == 0) {
+                    expected = 255;
+                } else if (a == 255) {
+                    expected = pixels[i + b];
+                } else {
+                    expected = ((pixels[i + b] * (0xFF0000 / a)) >>> 16) & 0xFF;
+                }
+                assertEquals(expected, result[i + b]);
+            }
+            assertEquals(a, result[i + 3]);
+        }
+    }
+
+    @Test
+    public void testByteLayouts() throws Exception {
+        //INT packed, interleaved RGBA, interleaved ABGR and banded data must give the same results
+        WritableRaster[] rasters = new WritableRaster[] {
+            new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB).getRaster(),
+            Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, 256, 256, 4, null),
+            new BufferedImage(256, 256, BufferedImage.TYPE_4BYTE_ABGR).getRaster(),
+            Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, 300, 300, 4, null)
+                    .createWritableChild(20, 30, 256, 256, 0, 0, null)
+        };
+        for (int i = 0; i < rasters.length; i++) {
+            fill(rasters[i]);
+            GraphicsUtil.multiplyAlpha(rasters[i]);
+            assertArrayEquals(getPixels(rasters[0]), getPixels(rasters[i]));
+        }
+        for (int i = 0; i < rasters.length; i++) {
+            fill(rasters[i]);
+            GraphicsUtil.divideAlpha(rasters[i]);
+            assertArrayEquals(getPixels(rasters[0]), getPixels(rasters[i]));
+        }
+    }
+
+}
@@ -20,16 +20,23 @@ package org.apache.xmlgraphics.image.codec.tiff;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 
 import org.junit.Test;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 import org.apache.commons.io.IOUtils;
 
+import org.apache.xmlgraphics.image.codec.util.MemoryCacheSeekableStream;
+import org.apache.xmlgraphics.image.codec.util.SeekableStream;
+
 public class TIFFImageEncoderTestCase {
 
     @Test
@@ -50,8 +57,76 @@ public class TIFFImageEncoderTestCase {
         assertArrayEquals(byteStream.toByteArray(), actualArray);
     }
 
+    @Test
+    public void testMultiplePages() throws IOException {
+        testMultiplePages(CompressionValue.NONE);
+        testMultiplePages(CompressionValue.PACKBITS);
+        testMultiplePages(CompressionValue.DEFLATE);
+    }
+
+    private void testMultiplePages(CompressionValue compression) throws IOException {
+        TIFFEncodeParam param = new TIFFEncodeParam();
+        param.setCompression(compression);
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        TIFFImageEncoder encoder = new TIFFImageEncoder(byteStream, param);
+        //Page sizes are odd so the IFDs of the following pages need alignment
+        RenderedImage[] pages = {getImage(BufferedImage.TYPE_BYTE_GRAY, 101, 33),
+                getImage(BufferedImage.TYPE_BYTE_BINARY, 77, 51),
+                getImage(BufferedImage.TYPE_3BYTE_BGR, 35, 99)};
+        Object context = null;
+        for (int i = 0; i < pages.length; i++) {
+            context = encoder.encodeMultiple(context, pages[i]);
+        }
+        encoder.finishMultiple(context);
+
+        SeekableStream in = new MemoryCacheSeekableStream(
+                new ByteArrayInputStream(byteStream.toByteArray()));
+        assertEquals(pages.length, TIFFDirectory.getNumDirectories(in));
+        for (int i = 0; i < pages.length; i++) {
+            Raster expected = pages[i].getData();
+            Raster actual = new TIFFImage(in, null, i).getData();
+            int w = expected.getWidth();
+            int h = expected.getHeight();
+            assertEquals(w, actual.getWidth());
+            assertEquals(h, actual.getHeight());
+            assertArrayEquals(expected.getPixels(0, 0, w, h, (int[])null),
+                    actual.getPixels(0, 0, w, h, (int[])null));
+        }
+    }
+
+    @Test
+    public void testManyCompressedPages() throws IOException {
+        File tempDir = new File(System.getProperty("java.io.tmpdir"));
+        int tempFiles = tempDir.list().length;
+        TIFFEncodeParam param = new TIFFEncodeParam();
+        param.setCompression(CompressionValue.DEFLATE);
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        TIFFImageEncoder encoder = new TIFFImageEncoder(byteStream, param);
+        RenderedImage page = getImage(BufferedImage.TYPE_BYTE_GRAY, 61, 43);
+        int pageCount = 300;
+        Object context = null;
+        for (int i = 0; i < pageCount; i++) {
+            context = encoder.encodeMultiple(context, page);
+        }
+        encoder.finishMultiple(context);
+        //The temporary files used for the pages are deleted right away
+        assertEquals(tempFiles, tempDir.list().length);
+
+        SeekableStream in = new MemoryCacheSeekableStream(
+                new ByteArrayInputStream(byteStream.toByteArray()));
+        assertEquals(pageCount, TIFFDirectory.getNumDirectories(in));
+        Raster expected = page.getData();
+        Raster actual = new TIFFImage(in, null, pageCount - 1).getData();
+        assertArrayEquals(expected.getPixels(0, 0, 61, 43, (int[])null),
+                actual.getPixels(0, 0, 61, 43, (int[])null));
+    }
+
     private RenderedImage getImage(int imageType) {
-        BufferedImage img = new BufferedImage(400, 400, imageType);
+        return getImage(imageType, 400, 400);
+    }
+
+    private RenderedImage getImage(int imageType, int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, imageType);
         img.getSampleModel();
         Graphics gfx = img.getGraphics();
         gfx.setColor(Color.RED);
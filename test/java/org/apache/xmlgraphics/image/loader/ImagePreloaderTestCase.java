@@ -22,6 +22,13 @@ package org.apache.xmlgraphics.image.loader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.transform.Source;
 import javax.xml.transform.TransformerException;
@@ -32,9 +39,17 @@ import org.junit.Test;
 import org.xml.sax.InputSource;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import org.apache.xmlgraphics.image.loader.impl.PreloaderGIF;
+import org.apache.xmlgraphics.image.loader.impl.PreloaderJPEG;
+import org.apache.xmlgraphics.image.loader.impl.PreloaderTIFF;
+import org.apache.xmlgraphics.image.loader.impl.imageio.PreloaderImageIO;
+import org.apache.xmlgraphics.image.loader.spi.ImageImplRegistry;
 import org.apache.xmlgraphics.image.loader.spi.ImageLoaderFactory;
 import org.apache.xmlgraphics.util.MimeConstants;
 
@@ -54,6 +69,89 @@ public class ImagePreloaderTestCase {
         assertNotNull(ilf);
     }
 
+    @Test
+    public void testSignatureDispatch() throws Exception {
+        ImageImplRegistry registry = new ImageImplRegistry(false);
+        registry.registerPreloader(new PreloaderTIFF());
+        registry.registerPreloader(new PreloaderImageIO());
+        registry.registerPreloader(new PreloaderGIF());
+        registry.registerPreloader(new PreloaderJPEG());
+        assertEquals(6, registry.getSignatureLength());
+
+        byte[] header = "GIF89a\0\0".getBytes("US-ASCII");
+        Iterator iter = registry.getPreloaderIterator(header, header.length);
+        assertTrue(iter.next() instanceof PreloaderGIF);
+        assertTrue(iter.next() instanceof PreloaderImageIO);
+        assertFalse(iter.hasNext());
+
+        //Too short for any signature: only preloaders without signatures remain
+        iter = registry.getPreloaderIterator(header, 2);
+        assertTrue(iter.next() instanceof PreloaderImageIO);
+        assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void testBatchPreload() throws Exception {
+        ImageManager manager = new ImageManager(imageContext);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        manager.setPreloadExecutor(executor);
+        manager.setMaxPreloadsPerSource(2);
+        try {
+            Map<String, Future<ImageInfo>> infos = manager.getImageInfos(Arrays.asList(
+                    "asf-logo.png", "tiff_group4.tif", "bgimg72dpi.gif", "bgimg300dpi.jpg",
+                    "asf-logo.png", "doesnotexistanywhere.png"),
+                    imageContext.newSessionContext());
+            assertEquals(5, infos.size());
+            assertEquals(MimeConstants.MIME_PNG, infos.get("asf-logo.png").get().getMimeType());
+            assertEquals(MimeConstants.MIME_TIFF,
+                    infos.get("tiff_group4.tif").get().getMimeType());
+            assertEquals(MimeConstants.MIME_GIF, infos.get("bgimg72dpi.gif").get().getMimeType());
+            assertEquals(MimeConstants.MIME_JPEG,
+                    infos.get("bgimg300dpi.jpg").get().getMimeType());
+            try {
+                infos.get("doesnotexistanywhere.png").get();
+                fail("Expected a FileNotFoundException!");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof FileNotFoundException);
+            }
+
+            //Preloaded images are in the cache
+            assertTrue(manager.getImageInfoAsync("asf-logo.png", imageContext.newSessionContext())
+                    .get() == infos.get("asf-logo.png").get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testBatchPreloadWithSessionInUse() throws Exception {
+        ImageManager manager = new ImageManager(imageContext);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        manager.setPreloadExecutor(executor);
+        ImageSessionContext session = imageContext.newSessionContext();
+        String[] batch = new String[] {"tiff_group4.tif", "bgimg72dpi.gif", "bgimg300dpi.jpg",
+                "bgimg300dpi.bmp", "no-resolution.tif", "cmyk.jpg"};
+        try {
+            Map<String, Future<ImageInfo>> infos = manager.getImageInfos(
+                    Arrays.asList(batch), session);
+
+            //Keep using the session on this thread while the batch is running
+            for (String uri : new String[] {"asf-logo.png", "no-resolution.png"}) {
+                ImageInfo info = manager.getImageInfo(uri, session);
+                Image img = manager.getImage(info, ImageFlavor.RENDERED_IMAGE, session);
+                assertNotNull(img);
+            }
+
+            for (String uri : batch) {
+                assertNotNull(infos.get(uri).get());
+                //The preloads don't return their sources to the session
+                assertNull(session.getSource(uri));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void testFileNotFound() throws Exception {
         String uri = "doesnotexistanywhere.png";
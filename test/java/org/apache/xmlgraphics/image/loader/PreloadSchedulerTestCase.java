@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.image.loader;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link PreloadScheduler}.
+ */
+public class PreloadSchedulerTestCase {
+
+    @Test
+    public void testSourceKey() {
+        assertEquals("http://example.com:8080",
+                PreloadScheduler.getSourceKey("http://example.com:8080/images/logo.png"));
+        assertEquals("file:/tmp/images", PreloadScheduler.getSourceKey("file:/tmp/images/a.png"));
+        assertEquals("images", PreloadScheduler.getSourceKey("images/a b.png"));
+        assertEquals("", PreloadScheduler.getSourceKey("a.png"));
+    }
+
+    @Test
+    public void testMaxPreloadsPerSource() throws Exception {
+        final Map<String, int[]> counters = new java.util.HashMap<String, int[]>();
+        ImageManager manager = new ImageManager(MockImageContext.getInstance()) {
+            public ImageInfo getImageInfo(String uri, ImageSessionContext session) {
+                String key = PreloadScheduler.getSourceKey(uri);
+                synchronized (counters) {
+                    int[] counter = counters.get(key);
+                    if (counter == null) {
+                        counter = new int[2];
+                        counters.put(key, counter);
+                    }
+                    counter[0]++;
+                    counter[1] = Math.max(counter[0], counter[1]);
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ie) {
+                    //ignore
+                }
+                synchronized (counters) {
+                    counters.get(key)[0]--;
+                }
+                return new ImageInfo(uri, "image/x-test");
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        manager.setPreloadExecutor(executor);
+        manager.setMaxPreloadsPerSource(1);
+        try {
+            Map<String, Future<ImageInfo>> infos = manager.getImageInfos(Arrays.asList(
+                    "http://a/1.png", "http://a/2.png", "http://a/3.png",
+                    "http://b/1.png", "http://b/2.png"), null);
+            for (Map.Entry<String, Future<ImageInfo>> entry : infos.entrySet()) {
+                assertEquals(entry.getKey(), entry.getValue().get().getOriginalURI());
+            }
+            assertEquals(1, counters.get("http://a")[1]);
+            assertEquals(1, counters.get("http://b")[1]);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.image.loader.cache;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link RasterCache}.
+ */
+public class RasterCacheTestCase {
+
+    private static final int BITMAP_SIZE = 64 * 64 * 4;
+
+    private static BufferedImage createBitmap() {
+        return new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    @Test
+    public void testKey() throws Exception {
+        RasterCache cache = new RasterCache();
+        BufferedImage bi = createBitmap();
+        cache.putBitmap("logo.svg", 300, 24, true, bi);
+        assertSame(bi, cache.getBitmap("logo.svg", 300, 24, true));
+        assertNull(cache.getBitmap("other.svg", 300, 24, true));
+        assertNull(cache.getBitmap("logo.svg", 600, 24, true));
+        assertNull(cache.getBitmap("logo.svg", 300, 8, true));
+        assertNull(cache.getBitmap("logo.svg", 300, 24, false));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void testLRUEviction() throws Exception {
+        RasterCache cache = new RasterCache(3 * BITMAP_SIZE);
+        BufferedImage b0 = createBitmap();
+        cache.putBitmap("0.svg", 300, 24, true, b0);
+        cache.putBitmap("1.svg", 300, 24, true, createBitmap());
+        cache.putBitmap("2.svg", 300, 24, true, createBitmap());
+        assertEquals(3 * BITMAP_SIZE, cache.getMemoryUsage());
+
+        //Access bitmap 0 so bitmap 1 becomes the least recently used one
+        assertSame(b0, cache.getBitmap("0.svg", 300, 24, true));
+        cache.putBitmap("3.svg", 300, 24, true, createBitmap());
+        assertEquals(3, cache.getBitmapCount());
+        assertSame(b0, cache.getBitmap("0.svg", 300, 24, true));
+        assertNull(cache.getBitmap("1.svg", 300, 24, true));
+
+        //Replacing a bitmap doesn't count twice
+        cache.putBitmap("3.svg", 300, 24, true, createBitmap());
+        assertEquals(3 * BITMAP_SIZE, cache.getMemoryUsage());
+
+        cache.setMaxMemory(BITMAP_SIZE);
+        assertEquals(1, cache.getBitmapCount());
+        assertEquals(BITMAP_SIZE, cache.getMemoryUsage());
+
+        //Bitmaps larger than the cache are ignored
+        cache.putBitmap("4.svg", 300, 24, true,
+                new BufferedImage(128, 128, BufferedImage.TYPE_INT_ARGB));
+        assertNull(cache.getBitmap("4.svg", 300, 24, true));
+
+        cache.clear();
+        assertEquals(0, cache.getBitmapCount());
+        assertEquals(0, cache.getMemoryUsage());
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.image.loader.impl;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+import org.apache.xmlgraphics.image.loader.ImageProcessingHints;
+import org.apache.xmlgraphics.image.loader.ImageSize;
+import org.apache.xmlgraphics.image.loader.cache.RasterCache;
+import org.apache.xmlgraphics.image.rendered.CachableRed;
+import org.apache.xmlgraphics.java2d.Graphics2DImagePainter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ImageConverterG2D2BitmapTestCase {
+
+    private ImageConverterG2D2Bitmap converter = new ImageConverterG2D2Bitmap();
+
+    private int paintCount;
+
+    private Set paintThreads = java.util.Collections.synchronizedSet(new java.util.HashSet());
+
+    private ImageGraphics2D createG2DImage() {
+        return createG2DImage(null);
+    }
+
+    private ImageGraphics2D createG2DImage(String uri) {
+        Graphics2DImagePainter painter = new Graphics2DImagePainter() {
+            public Dimension getImageSize() {
+                return new Dimension(100000, 80000);
+            }
+
+            public void paint(Graphics2D g2d, Rectangle2D area) {
+                paintCount++;
+                paintThreads.add(Thread.currentThread());
+                g2d.setColor(Color.RED);
+                g2d.fill(new Rectangle2D.Double(5000, 5000, 40000, 30000));
+                g2d.setColor(new Color(0, 0, 255, 128));
+                g2d.fillOval(20000, 10000, 60000, 60000);
+                g2d.setColor(Color.GREEN);
+                g2d.setStroke(new BasicStroke(1500));
+                g2d.drawLine(0, 80000, 100000, 0);
+            }
+        };
+        Dimension dim = painter.getImageSize();
+        ImageSize size = new ImageSize();
+        size.setSizeInMillipoints(dim.width, dim.height);
+        size.setResolution(72);
+        size.calcPixelsFromSize();
+
+        ImageInfo info = new ImageInfo(uri, null);
+        info.setSize(size);
+        return new ImageGraphics2D(info, painter);
+    }
+
+    private BufferedImage convert(Object bitmapType, boolean withAlpha, Object bandHeight) {
+        return convert(bitmapType, withAlpha, bandHeight, null);
+    }
+
+    private BufferedImage convert(Object bitmapType, boolean withAlpha, Object bandHeight,
+            ExecutorService executor) {
+        Map hints = new java.util.HashMap();
+        hints.put(ImageProcessingHints.TARGET_RESOLUTION, new Integer(300));
+        if (bitmapType != null) {
+            hints.put(ImageProcessingHints.BITMAP_TYPE_INTENT, bitmapType);
+        }
+        if (!withAlpha) {
+            hints.put(ImageProcessingHints.TRANSPARENCY_INTENT,
+                    ImageProcessingHints.TRANSPARENCY_INTENT_IGNORE);
+        }
+        if (bandHeight != null) {
+            hints.put(ImageProcessingHints.BITMAP_BAND_HEIGHT, bandHeight);
+        }
+        if (executor != null) {
+            hints.put(ImageProcessingHints.BITMAP_BAND_EXECUTOR, executor);
+        }
+        return ((ImageBuffered)converter.convert(createG2DImage(), hints)).getBufferedImage();
+    }
+
+    private void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getColorModel(), actual.getColorModel());
+        assertSameData(expected.getRaster(), actual.getRaster());
+    }
+
+    private void assertSameData(Raster expected, Raster actual) {
+        int w = expected.getWidth();
+        int h = expected.getHeight();
+        int bands = expected.getNumBands();
+        assertEquals(bands, actual.getNumBands());
+        assertEquals(w, actual.getWidth());
+        assertEquals(h, actual.getHeight());
+        assertArrayEquals(
+                expected.getPixels(expected.getMinX(), expected.getMinY(), w, h,
+                        new int[w * h * bands]),
+                actual.getPixels(actual.getMinX(), actual.getMinY(), w, h,
+                        new int[w * h * bands]));
+    }
+
+    private void testBanded(Object bitmapType, boolean withAlpha) {
+        BufferedImage expected = convert(bitmapType, withAlpha, null);
+        assertSameImage(expected, convert(bitmapType, withAlpha, new Integer(37)));
+        assertSameImage(expected, convert(bitmapType, withAlpha, new Integer(1000)));
+    }
+
+    @Test
+    public void testBandedRGB() {
+        testBanded(null, true);
+        testBanded(null, false);
+    }
+
+    @Test
+    public void testBandedGray() {
+        testBanded(ImageProcessingHints.BITMAP_TYPE_INTENT_GRAY, true);
+        testBanded(ImageProcessingHints.BITMAP_TYPE_INTENT_GRAY, false);
+    }
+
+    @Test
+    public void testBandedMono() {
+        testBanded(ImageProcessingHints.BITMAP_TYPE_INTENT_MONO, false);
+    }
+
+    @Test
+    public void testBandsPaintedSequentiallyByDefault() {
+        BufferedImage bi = convert(null, true, new Integer(100));
+        assertEquals((bi.getHeight() + 99) / 100, paintCount);
+        assertEquals(1, paintThreads.size());
+        assertTrue(paintThreads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void testBandExecutor() {
+        BufferedImage expected = convert(null, true, null);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            paintThreads.clear();
+            assertSameImage(expected, convert(null, true, new Integer(37), executor));
+            assertFalse(paintThreads.contains(Thread.currentThread()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRasterCache() {
+        RasterCache cache = new RasterCache();
+        Map hints = new java.util.HashMap();
+        hints.put(ImageProcessingHints.TARGET_RESOLUTION, new Integer(300));
+        hints.put(ImageProcessingHints.RASTER_CACHE, cache);
+        BufferedImage bi = ((ImageBuffered)converter.convert(
+                createG2DImage("logo.svg"), hints)).getBufferedImage();
+        assertEquals(1, paintCount);
+        assertSame(bi, ((ImageBuffered)converter.convert(
+                createG2DImage("logo.svg"), hints)).getBufferedImage());
+        assertEquals(1, paintCount);
+
+        //Different resolution or bitmap type
+        hints.put(ImageProcessingHints.TARGET_RESOLUTION, new Integer(150));
+        assertNotSame(bi, ((ImageBuffered)converter.convert(
+                createG2DImage("logo.svg"), hints)).getBufferedImage());
+        assertEquals(2, paintCount);
+        hints.put(ImageProcessingHints.BITMAP_TYPE_INTENT,
+                ImageProcessingHints.BITMAP_TYPE_INTENT_GRAY);
+        converter.convert(createG2DImage("logo.svg"), hints);
+        assertEquals(3, paintCount);
+        assertEquals(3, cache.getBitmapCount());
+
+        //Images without URI are not cached
+        converter.convert(createG2DImage(), hints);
+        converter.convert(createG2DImage(), hints);
+        assertEquals(5, paintCount);
+    }
+
+    @Test
+    public void testPaintToRenderedImage() {
+        BufferedImage expected = convert(null, true, null);
+        CachableRed red = converter.paintToRenderedImage(createG2DImage(), 24, true, 300, 50);
+        assertEquals(expected.getWidth(), red.getWidth());
+        assertEquals(expected.getHeight(), red.getHeight());
+        assertEquals(expected.getWidth(), red.getTileWidth());
+        assertEquals(50, red.getTileHeight());
+        assertEquals((expected.getHeight() + 49) / 50, red.getNumYTiles());
+
+        //Bands can be requested individually and in any order
+        for (int y = red.getNumYTiles() - 1; y >= 0; y--) {
+            Raster tile = red.getTile(0, y);
+            assertEquals(y * 50, tile.getMinY());
+            assertSameData(expected.getData(tile.getBounds()), tile);
+        }
+        assertSameData(expected.getRaster(), red.getData());
+    }
+
+}
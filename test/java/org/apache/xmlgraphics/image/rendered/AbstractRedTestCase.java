@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.image.rendered;
+
+import java.awt.Rectangle;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link AbstractRed}.
+ */
+public class AbstractRedTestCase {
+
+    private static BufferedImage createGrayImage(int width, int height) {
+        ColorModel cm = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_GRAY),
+                false, false, ColorModel.OPAQUE, DataBuffer.TYPE_BYTE);
+        WritableRaster raster = cm.createCompatibleWritableRaster(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.setSample(x, y, 0, (x * 7 + y * 3) & 0xFF);
+            }
+        }
+        return new BufferedImage(cm, raster, false, null);
+    }
+
+    private static int[] getPixels(Raster raster) {
+        return raster.getPixels(raster.getMinX(), raster.getMinY(),
+                raster.getWidth(), raster.getHeight(), (int[])null);
+    }
+
+    @Test
+    public void testParallelGetData() throws Exception {
+        BufferedImage image = createGrayImage(301, 517);
+        Any2sRGBRed serial = new Any2sRGBRed(new BufferedImageCachableRed(image));
+        Any2sRGBRed parallel = new Any2sRGBRed(new BufferedImageCachableRed(image));
+        parallel.setExecutor(AbstractRed.getDefaultExecutor());
+
+        Raster expected = serial.getData();
+        Raster actual = parallel.getData();
+        assertEquals(expected.getBounds(), actual.getBounds());
+        assertArrayEquals(getPixels(expected), getPixels(actual));
+
+        Rectangle rect = new Rectangle(10, 33, 200, 400);
+        assertArrayEquals(getPixels(serial.getData(rect)), getPixels(parallel.getData(rect)));
+    }
+
+    @Test
+    public void testParallelTiledSource() throws Exception {
+        BufferedImage image = createGrayImage(200, 300);
+        //FormatRed over a format-converting source, with parallel execution on both levels
+        Any2sRGBRed rgb = new Any2sRGBRed(new BufferedImageCachableRed(image));
+        rgb.setExecutor(AbstractRed.getDefaultExecutor());
+        FormatRed serial = new FormatRed(rgb, rgb.getSampleModel());
+        FormatRed parallel = new FormatRed(rgb, rgb.getSampleModel());
+        parallel.setExecutor(AbstractRed.getDefaultExecutor());
+        assertArrayEquals(getPixels(serial.getData()), getPixels(parallel.getData()));
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.image.rendered;
+
+import java.awt.Rectangle;
+import java.awt.color.ColorSpace;
+import java.awt.image.BandCombineOp;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+import org.junit.Test;
+
+import org.apache.xmlgraphics.image.GraphicsUtil;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the format conversions in {@link Any2sRGBRed}.
+ */
+public class Any2sRGBRedTestCase {
+
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 23;
+
+    private static BufferedImage createImage(ColorSpace cs, boolean alpha,
+            boolean premultiplied) {
+        ColorModel cm = new ComponentColorModel(cs, alpha, premultiplied,
+                alpha ? ColorModel.TRANSLUCENT : ColorModel.OPAQUE, DataBuffer.TYPE_BYTE);
+        WritableRaster raster = cm.createCompatibleWritableRaster(WIDTH, HEIGHT);
+        int bands = raster.getNumBands();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int a = (alpha ? (x * 11 + y * 5) & 0xFF : 255);
+                for (int b = 0; b < bands; b++) {
+                    int v = (x * 7 + y * 13 + b * 50) & 0xFF;
+                    if (alpha && b == bands - 1) {
+                        v = a;
+                    } else if (premultiplied) {
+                        v = v * a / 255;
+                    }
+                    raster.setSample(x, y, b, v);
+                }
+            }
+        }
+        return new BufferedImage(cm, raster, premultiplied, null);
+    }
+
+    private static BufferedImage fill(BufferedImage image) {
+        BufferedImage source = createImage(image.getColorModel().getColorSpace(),
+                image.getColorModel().hasAlpha(), image.isAlphaPremultiplied());
+        image.setData(source.getRaster());
+        return image;
+    }
+
+    private static int toSRGB(int linear) {
+        double value = linear / 255.0;
+        if (value <= 0.0031308) {
+            value *= 12.92;
+        } else {
+            value = 1.055 * Math.pow(value, 1 / 2.4) - 0.055;
+        }
+        return (int)Math.round(value * 255);
+    }
+
+    private static void checkConversion(BufferedImage image, boolean linear) {
+        WritableRaster expected = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE,
+                WIDTH, HEIGHT, image.getRaster().getNumBands(), null);
+        expected.setRect(image.getRaster());
+        if (image.isAlphaPremultiplied()) {
+            GraphicsUtil.divideAlpha(expected);
+        }
+        boolean gray = (image.getColorModel().getNumColorComponents() == 1);
+        boolean alpha = image.getColorModel().hasAlpha();
+
+        Any2sRGBRed red = new Any2sRGBRed(new BufferedImageCachableRed(image));
+        Rectangle rect = new Rectangle(3, 5, WIDTH - 10, HEIGHT - 7);
+        Raster actual = red.getData(rect);
+        assertEquals(rect, actual.getBounds());
+        assertEquals(alpha ? 4 : 3, actual.getNumBands());
+        for (int y = rect.y; y < rect.y + rect.height; y++) {
+            for (int x = rect.x; x < rect.x + rect.width; x++) {
+                for (int b = 0; b < 3; b++) {
+                    int v = expected.getSample(x, y, gray ? 0 : b);
+                    if (linear) {
+                        v = toSRGB(v);
+                    }
+                    assertEquals("(" + x + "," + y + ") band " + b,
+                            v, actual.getSample(x, y, b));
+                }
+                if (alpha) {
+                    assertEquals(expected.getSample(x, y, gray ? 1 : 3),
+                            actual.getSample(x, y, 3));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGray() throws Exception {
+        ColorSpace gray = ColorSpace.getInstance(ColorSpace.CS_GRAY);
+        checkConversion(createImage(gray, false, false), false);
+        checkConversion(createImage(gray, true, false), false);
+        checkConversion(createImage(gray, true, true), false);
+        checkConversion(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY), false);
+    }
+
+    @Test
+    public void testSRGB() throws Exception {
+        ColorSpace srgb = ColorSpace.getInstance(ColorSpace.CS_sRGB);
+        checkConversion(createImage(srgb, false, false), false);
+        checkConversion(createImage(srgb, true, false), false);
+        checkConversion(createImage(srgb, true, true), false);
+        checkConversion(fill(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR)),
+                false);
+        checkConversion(fill(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_4BYTE_ABGR)),
+                false);
+        checkConversion(fill(new BufferedImage(WIDTH, HEIGHT,
+                BufferedImage.TYPE_4BYTE_ABGR_PRE)), false);
+    }
+
+    @Test
+    public void testLinearRGB() throws Exception {
+        ColorSpace linear = ColorSpace.getInstance(ColorSpace.CS_LINEAR_RGB);
+        checkConversion(createImage(linear, false, false), true);
+        checkConversion(createImage(linear, true, false), true);
+        checkConversion(createImage(linear, true, true), true);
+    }
+
+    private static void checkSameAsGeneric(BufferedImage image, boolean gray) {
+        CachableRed src = new BufferedImageCachableRed(image);
+        Any2sRGBRed red = new Any2sRGBRed(src);
+        WritableRaster actual = Raster.createWritableRaster(
+                red.getSampleModel().createCompatibleSampleModel(WIDTH, HEIGHT), null);
+        WritableRaster expected = actual.createCompatibleWritableRaster();
+        red.copyData(actual);
+        if (gray) {
+            float[][] matrix = new float[][] {{1}, {1}, {1}};
+            new BandCombineOp(matrix, null).filter(src.getData(), expected);
+        } else {
+            GraphicsUtil.copyData(src.getData(), expected);
+        }
+        int bands = actual.getNumBands();
+        assertArrayEquals(expected.getPixels(0, 0, WIDTH, HEIGHT, new int[WIDTH * HEIGHT * bands]),
+                actual.getPixels(0, 0, WIDTH, HEIGHT, new int[WIDTH * HEIGHT * bands]));
+    }
+
+    @Test
+    public void testSameAsGenericConversion() throws Exception {
+        //The 8 bit fast paths must produce the same data as the conversions they replace
+        checkSameAsGeneric(fill(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY)),
+                true);
+        checkSameAsGeneric(fill(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR)),
+                false);
+        checkSameAsGeneric(fill(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_4BYTE_ABGR)),
+                false);
+    }
+
+}
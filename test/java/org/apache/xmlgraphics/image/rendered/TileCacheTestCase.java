@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.image.rendered;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link TileCache}.
+ */
+public class TileCacheTestCase {
+
+    private static final int TILE_SIZE = 64 * 64 * 4;
+
+    private static CachableRed createImage() {
+        return new BufferedImageCachableRed(
+                new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB));
+    }
+
+    private static Raster createTile() {
+        return new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB).getRaster();
+    }
+
+    @Test
+    public void testLRUEviction() throws Exception {
+        TileCache cache = new TileCache(3 * TILE_SIZE);
+        CachableRed owner = createImage();
+        Raster t0 = createTile();
+        cache.putTile(owner, 0, 0, t0);
+        cache.putTile(owner, 1, 0, createTile());
+        cache.putTile(owner, 2, 0, createTile());
+        assertEquals(3 * TILE_SIZE, cache.getMemoryUsage());
+
+        //Access tile 0 so tile 1 becomes the least recently used one
+        assertSame(t0, cache.getTile(owner, 0, 0));
+        cache.putTile(owner, 3, 0, createTile());
+        assertEquals(3, cache.getTileCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.getTile(owner, 1, 0));
+        assertSame(t0, cache.getTile(owner, 0, 0));
+
+        //Tiles are distinguished by owner
+        assertNull(cache.getTile(createImage(), 0, 0));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        cache.removeTiles(owner);
+        assertEquals(0, cache.getTileCount());
+        assertEquals(0, cache.getMemoryUsage());
+    }
+
+    @Test
+    public void testGarbageCollectedOwner() throws Exception {
+        TileCache cache = new TileCache(16 * TILE_SIZE);
+        CachableRed owner = createImage();
+        cache.putTile(owner, 0, 0, createTile());
+        cache.putTile(createImage(), 0, 0, createTile());
+        cache.putTile(createImage(), 1, 0, createTile());
+        //The cache doesn't keep the owners alive
+        for (int i = 0; i < 50 && cache.getTileCount() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, cache.getTileCount());
+        assertEquals(TILE_SIZE, cache.getMemoryUsage());
+        assertNotNull(cache.getTile(owner, 0, 0));
+    }
+
+    @Test
+    public void testAbstractRedTileCache() throws Exception {
+        TileCache cache = new TileCache(16 * TILE_SIZE);
+        Any2sRGBRed red = new Any2sRGBRed(createImage());
+        Raster tile = red.getTile(0, 0);
+        assertNotSame(tile, red.getTile(0, 0));
+
+        red.setTileCache(cache);
+        tile = red.getTile(0, 0);
+        assertSame(tile, red.getTile(0, 0));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        red.setTileCache(null);
+        assertEquals(0, cache.getTileCount());
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.image.writer.imageio;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.apache.xmlgraphics.image.writer.ImageWriter;
+import org.apache.xmlgraphics.image.writer.ImageWriterParams;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ImageIOImageWriter}.
+ */
+public class ImageIOImageWriterTestCase {
+
+    private static final int[] TYPES = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_BYTE_GRAY,
+            BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_BYTE_BINARY};
+
+    private static BufferedImage createImage(int type) {
+        BufferedImage bi = new BufferedImage(37, 23, type);
+        Random rand = new Random(type);
+        for (int y = 0; y < bi.getHeight(); y++) {
+            for (int x = 0; x < bi.getWidth(); x++) {
+                bi.setRGB(x, y, rand.nextInt());
+            }
+        }
+        return bi;
+    }
+
+    private static byte[] write(ImageWriter writer, BufferedImage bi, ImageWriterParams params)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeImage(bi, out, params);
+        return out.toByteArray();
+    }
+
+    private void testReuse(Class<? extends ImageWriter> writerClass) throws Exception {
+        ImageWriter writer = writerClass.newInstance();
+        assertTrue(writer.isFunctional());
+        ImageWriterParams params = new ImageWriterParams();
+        params.setResolution(300);
+        //Alternate between image types and parameters so a reused Image I/O writer would
+        //show any state left from a previous image
+        for (int i = 0; i < 3; i++) {
+            for (int t = 0; t < TYPES.length; t++) {
+                BufferedImage bi = createImage(TYPES[t]);
+                ImageWriterParams p = (t % 2 == 0) ? params : null;
+                assertArrayEquals(write(writerClass.newInstance(), bi, p), write(writer, bi, p));
+            }
+        }
+    }
+
+    @Test
+    public void testPNGWriterReuse() throws Exception {
+        testReuse(ImageIOPNGImageWriter.class);
+    }
+
+    @Test
+    public void testJPEGWriterReuse() throws Exception {
+        testReuse(ImageIOJPEGImageWriter.class);
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.java2d;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link GlyphOutlineCache}.
+ */
+public class GlyphOutlineCacheTestCase {
+
+    @Test
+    public void testOutlineMatchesGlyphVector() {
+        GlyphOutlineCache cache = new GlyphOutlineCache(1000);
+        Font[] fonts = new Font[] {
+                new Font("Serif", Font.PLAIN, 12),
+                new Font("SansSerif", Font.BOLD, 10).deriveFont(
+                        AffineTransform.getShearInstance(0.2, 0))};
+        FontRenderContext[] frcs = new FontRenderContext[] {
+                new FontRenderContext(null, true, true),
+                new FontRenderContext(AffineTransform.getScaleInstance(2, 2), false, false)};
+        for (int i = 0; i < fonts.length; i++) {
+            for (int j = 0; j < frcs.length; j++) {
+                GlyphVector gv = fonts[i].createGlyphVector(frcs[j], "Hello World");
+                //twice: once to fill the cache, once using the cached outlines
+                assertSamePath(gv.getOutline(10.5f, 20f), cache.getOutline(gv, 10.5f, 20f));
+                assertSamePath(gv.getOutline(10.5f, 20f), cache.getOutline(gv, 10.5f, 20f));
+            }
+        }
+        assertTrue(cache.getGlyphCount() > 0);
+        cache.clear();
+        assertEquals(0, cache.getGlyphCount());
+    }
+
+    @Test
+    public void testMaxGlyphs() {
+        GlyphOutlineCache cache = new GlyphOutlineCache(5);
+        Font font = new Font("Serif", Font.PLAIN, 12);
+        FontRenderContext frc = new FontRenderContext(null, true, true);
+        cache.getOutline(font.createGlyphVector(frc, "abcdefghij"), 0, 0);
+        assertTrue(cache.getGlyphCount() <= 5);
+    }
+
+    @Test
+    public void testDerivedFonts() {
+        GlyphOutlineCache cache = new GlyphOutlineCache(1000);
+        FontRenderContext frc = new FontRenderContext(null, true, true);
+        Font font = new Font("Serif", Font.PLAIN, 12);
+        cache.getOutline(font.createGlyphVector(frc, "ab"), 0, 0);
+        assertEquals(2, cache.getGlyphCount());
+        //A new but equal font instance, as created for every text run, hits the cache
+        Font derived = font.deriveFont(12f);
+        assertNotSame(font, derived);
+        GlyphVector gv = derived.createGlyphVector(frc, "ba");
+        assertSamePath(gv.getOutline(0, 0), cache.getOutline(gv, 0, 0));
+        assertEquals(2, cache.getGlyphCount());
+        //A different size needs its own outlines
+        cache.getOutline(font.deriveFont(14f).createGlyphVector(frc, "ab"), 0, 0);
+        assertEquals(4, cache.getGlyphCount());
+    }
+
+    private void assertSamePath(Shape expected, Shape actual) {
+        PathIterator iter1 = expected.getPathIterator(null);
+        PathIterator iter2 = actual.getPathIterator(null);
+        assertEquals(iter1.getWindingRule(), iter2.getWindingRule());
+        float[] coords1 = new float[6];
+        float[] coords2 = new float[6];
+        while (!iter1.isDone()) {
+            assertTrue(!iter2.isDone());
+            assertEquals(iter1.currentSegment(coords1), iter2.currentSegment(coords2));
+            assertArrayEquals(coords1, coords2, 0);
+            iter1.next();
+            iter2.next();
+        }
+        assertTrue(iter2.isDone());
+        assertEquals(expected.getBounds(), actual.getBounds());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.java2d;
+
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link GraphicContext}.
+ */
+public class GraphicContextTestCase {
+
+    @Test
+    public void testCopiesAreIndependent() {
+        GraphicContext parent = new GraphicContext(AffineTransform.getScaleInstance(2, 2));
+        parent.translate(10, 20);
+        parent.clip(new Rectangle(0, 0, 100, 100));
+        parent.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+
+        GraphicContext child = (GraphicContext)parent.clone();
+        assertEquals(parent.getTransform(), child.getTransform());
+        assertEquals(parent.getTransformStack().length, child.getTransformStack().length);
+        assertEquals(parent.getClip().getBounds(), child.getClip().getBounds());
+
+        //Changes to the child don't affect the parent
+        child.rotate(Math.PI / 2);
+        child.clip(new Rectangle(0, 0, 10, 10));
+        child.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_OFF);
+        AffineTransform expected = AffineTransform.getScaleInstance(2, 2);
+        expected.translate(10, 20);
+        assertEquals(expected, parent.getTransform());
+        assertEquals(2, parent.getTransformStack().length);
+        assertEquals(3, child.getTransformStack().length);
+        assertEquals(new Rectangle(0, 0, 100, 100), parent.getClip().getBounds());
+        assertEquals(RenderingHints.VALUE_ANTIALIAS_ON,
+                parent.getRenderingHint(RenderingHints.KEY_ANTIALIASING));
+
+        //Changes to the parent don't affect the child
+        GraphicContext child2 = (GraphicContext)parent.clone();
+        parent.scale(3, 3);
+        parent.getRenderingHints().put(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_OFF);
+        assertTrue(parent.getTransformStack()[1].concatenate(
+                TransformStackElement.createTranslateElement(5, 5)));
+        parent.setClip(null);
+        assertEquals(expected, child2.getTransform());
+        assertEquals(2, child2.getTransformStack().length);
+        assertEquals(10, child2.getTransformStack()[1].getTransformParameters()[0], 0);
+        assertEquals(RenderingHints.VALUE_ANTIALIAS_ON,
+                child2.getRenderingHint(RenderingHints.KEY_ANTIALIASING));
+        assertEquals(new Rectangle(0, 0, 100, 100), child2.getClip().getBounds());
+        assertNull(parent.getClip());
+
+        //setTransform() on a copy
+        child2.setTransform(new AffineTransform());
+        assertEquals(0, child2.getTransformStack().length);
+        assertEquals(3, parent.getTransformStack().length);
+    }
+}
@@ -25,7 +25,9 @@ import java.awt.color.ColorSpace;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 public class ColorConverterTestCase {
 
@@ -48,4 +50,28 @@ public class ColorConverterTestCase {
         assertEquals(0xFFB9B9B9, gray.getRGB());
     }
 
+    @Test
+    public void testCachingColorConverter() throws Exception {
+        final int[] count = new int[1];
+        ColorConverter counting = new ColorConverter() {
+            public Color convert(Color color) {
+                count[0]++;
+                return GrayScaleColorConverter.getInstance().convert(color);
+            }
+        };
+        ColorConverter converter = new CachingColorConverter(counting);
+        Color gray = converter.convert(new Color(255, 184, 0));
+        assertEquals(0xFFB9B9B9, gray.getRGB());
+        assertSame(gray, converter.convert(new Color(255, 184, 0)));
+        assertEquals(1, count[0]);
+
+        //Same sRGB value, but with an alternative color
+        Color cmyk = ColorUtil.toCMYKGrayColor(0.5f);
+        Color withAlternative = new ColorWithAlternatives(255, 184, 0, new Color[] {cmyk});
+        assertNotSame(gray, converter.convert(withAlternative));
+        assertEquals(2, count[0]);
+        converter.convert(new ColorWithAlternatives(255, 184, 0, new Color[] {cmyk}));
+        assertEquals(2, count[0]);
+    }
+
 }
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.java2d.color;
+
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_ColorSpace;
+import java.awt.color.ICC_Profile;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RasterColorConverterTestCase {
+
+    private static final ColorSpace SRGB = ColorSpace.getInstance(ColorSpace.CS_sRGB);
+    private static final ColorSpace LINEAR_RGB = ColorSpace.getInstance(ColorSpace.CS_LINEAR_RGB);
+
+    private static WritableRaster createRaster(int bands) {
+        WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE,
+                211, 157, bands, null);
+        new Random(42).nextBytes(((DataBufferByte)raster.getDataBuffer()).getData());
+        return raster;
+    }
+
+    private static byte[] getData(Raster raster) {
+        return ((DataBufferByte)raster.getDataBuffer()).getData();
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        RasterColorConverter converter = RasterColorConverter.getInstance(LINEAR_RGB, SRGB);
+        assertSame(converter, RasterColorConverter.getInstance(LINEAR_RGB, SRGB));
+        //Different instances of the same profile share the converter
+        ColorSpace copy = new ICC_ColorSpace(ICC_Profile.getInstance(
+                ((ICC_ColorSpace)LINEAR_RGB).getProfile().getData()));
+        assertSame(converter, RasterColorConverter.getInstance(copy, SRGB));
+        assertNotSame(converter, RasterColorConverter.getInstance(SRGB, LINEAR_RGB));
+        assertNotSame(converter, RasterColorConverter.getInstance(LINEAR_RGB, SRGB,
+                RenderingIntent.RELATIVE_COLORIMETRIC));
+    }
+
+    @Test
+    public void testExactConversion() throws Exception {
+        WritableRaster src = createRaster(3);
+        WritableRaster expected = createRaster(3);
+        new ColorConvertOp(LINEAR_RGB, SRGB, null).filter(src, expected);
+
+        RasterColorConverter converter = RasterColorConverter.getInstance(LINEAR_RGB, SRGB);
+        WritableRaster dst = createRaster(3);
+        converter.convert(src, dst);
+        assertArrayEquals(getData(expected), getData(dst));
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            dst = createRaster(3);
+            converter.convert(src, dst, false, executor);
+            assertArrayEquals(getData(expected), getData(dst));
+        } finally {
+            executor.shutdown();
+        }
+
+        //Color bands of a raster with alpha
+        int w = src.getWidth();
+        int h = src.getHeight();
+        WritableRaster srcWithAlpha = createRaster(4);
+        for (int b = 0; b < 3; b++) {
+            srcWithAlpha.setSamples(0, 0, w, h, b, src.getSamples(0, 0, w, h, b, (int[])null));
+        }
+        dst = createRaster(3);
+        converter.convert(srcWithAlpha.createChild(0, 0, w, h, 0, 0, new int[] {0, 1, 2}), dst);
+        assertArrayEquals(getData(expected), getData(dst));
+    }
+
+    @Test
+    public void testInterpolatedConversion() throws Exception {
+        WritableRaster src = createRaster(3);
+        WritableRaster expected = createRaster(3);
+        RasterColorConverter converter = RasterColorConverter.getInstance(LINEAR_RGB, SRGB);
+        converter.convert(src, expected);
+
+        WritableRaster dst = createRaster(3);
+        assertTrue(converter.isInterpolationSupported(src, dst));
+        converter.convert(src, dst, true, null);
+        byte[] exact = getData(expected);
+        byte[] interpolated = getData(dst);
+        long sum = 0;
+        for (int i = 0; i < exact.length; i++) {
+            int diff = Math.abs((exact[i] & 0xFF) - (interpolated[i] & 0xFF));
+            assertTrue("Difference too large: " + diff, diff <= 8);
+            sum += diff;
+        }
+        assertTrue(sum < exact.length / 4);
+    }
+
+}
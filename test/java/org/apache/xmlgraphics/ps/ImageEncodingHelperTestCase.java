@@ -21,18 +21,23 @@ package org.apache.xmlgraphics.ps;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.color.ColorSpace;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
 import java.awt.image.DataBuffer;
 import java.awt.image.DirectColorModel;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyObject;
@@ -150,4 +155,41 @@ public class ImageEncodingHelperTestCase {
         Arrays.fill(expectedByteArray, (byte) expectedValue);
         assertTrue(Arrays.equals(expectedByteArray, optimized.toByteArray()));
     }
+
+    /**
+     * Tests that images in other ICC color spaces are converted exactly like
+     * {@link ColorModel#getRGB(Object)} does.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Test
+    public void testEncodeICCImageAsRGB() throws IOException {
+        ColorSpace cs = ColorSpace.getInstance(ColorSpace.CS_PYCC);
+        ColorModel cm = new ComponentColorModel(cs, true, false, ColorModel.TRANSLUCENT,
+                DataBuffer.TYPE_BYTE);
+        WritableRaster raster = cm.createCompatibleWritableRaster(97, 131);
+        Random random = new Random(7);
+        for (int y = 0; y < raster.getHeight(); y++) {
+            for (int x = 0; x < raster.getWidth(); x++) {
+                for (int b = 0; b < raster.getNumBands(); b++) {
+                    raster.setSample(x, y, b, random.nextInt(256));
+                }
+            }
+        }
+        BufferedImage image = new BufferedImage(cm, raster, false, null);
+
+        byte[] expected = new byte[raster.getWidth() * raster.getHeight() * 3];
+        int idx = 0;
+        for (int y = 0; y < raster.getHeight(); y++) {
+            for (int x = 0; x < raster.getWidth(); x++) {
+                int rgb = cm.getRGB(raster.getDataElements(x, y, null));
+                expected[idx++] = (byte)(rgb >> 16);
+                expected[idx++] = (byte)(rgb >> 8);
+                expected[idx++] = (byte)rgb;
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageEncodingHelper.encodeRenderedImageAsRGB(image, out);
+        assertArrayEquals(expected, out.toByteArray());
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.ps;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link PSFontUtils}.
+ */
+public class PSFontUtilsTestCase {
+
+    private static final byte[] BINARY = new byte[] {(byte)0xD9, (byte)0xD6, 0x6F, 0x63};
+
+    private static byte[] createPFB() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeSegment(out, 1, "%!FontType1-1.0: Test\r/FontName /Test def\r\ncurrentfile eexec\r"
+                .getBytes("US-ASCII"));
+        writeSegment(out, 2, BINARY);
+        writeSegment(out, 1, "0000\ncleartomark".getBytes("US-ASCII"));
+        out.write(128);
+        out.write(3);
+        return out.toByteArray();
+    }
+
+    private static void writeSegment(ByteArrayOutputStream out, int type, byte[] data) {
+        out.write(128);
+        out.write(type);
+        out.write(data.length & 0xFF);
+        out.write((data.length >> 8) & 0xFF);
+        out.write((data.length >> 16) & 0xFF);
+        out.write((data.length >> 24) & 0xFF);
+        out.write(data, 0, data.length);
+    }
+
+    @Test
+    public void testEmbedType1Font() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PSGenerator gen = new PSGenerator(out);
+        PSFontUtils.embedType1Font(gen, new ByteArrayInputStream(createPFB()));
+        assertEquals("%!FontType1-1.0: Test\n/FontName /Test def\ncurrentfile eexec\n"
+                + "D9D66F63\n0000\ncleartomark\n", out.toString("US-ASCII"));
+
+        byte[] encoded = PSFontUtils.encodeType1Font(new ByteArrayInputStream(createPFB()), false);
+        assertArrayEquals(out.toByteArray(), encoded);
+    }
+
+    @Test
+    public void testEmbedType1FontBinary() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PSGenerator gen = new PSGenerator(out);
+        PSFontUtils.embedType1Font(gen, new ByteArrayInputStream(createPFB()), true);
+        byte[] data = out.toByteArray();
+        String prefix = "%!FontType1-1.0: Test\n/FontName /Test def\ncurrentfile eexec\n";
+        assertEquals(prefix.length() + BINARY.length + 1 + "0000\ncleartomark\n".length(),
+                data.length);
+        for (int i = 0; i < BINARY.length; i++) {
+            assertEquals(BINARY[i], data[prefix.length() + i]);
+        }
+
+        //Level 1: always hex-encoded
+        out.reset();
+        gen = new PSGenerator(out);
+        gen.setPSLevel(1);
+        PSFontUtils.embedType1Font(gen, new ByteArrayInputStream(createPFB()), true);
+        assertEquals(prefix + "D9D66F63\n0000\ncleartomark\n", out.toString("US-ASCII"));
+    }
+
+    @Test
+    public void testDefineWinAnsiEncoding() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            PSGenerator gen = new PSGenerator(out);
+            PSFontUtils.defineWinAnsiEncoding(gen);
+            String s = out.toString("US-ASCII");
+            assertTrue(s.startsWith("%%BeginResource: encoding WinAnsiEncoding\n"
+                    + "/WinAnsiEncoding [\n/.notdef /.notdef"));
+            assertTrue(s.indexOf("\n/A /B /C /D /E\n") > 0);
+            assertTrue(s.endsWith("\n] def\n%%EndResource\n"));
+            assertTrue(gen.getResourceTracker().isResourceSupplied(
+                    PSFontUtils.WINANSI_ENCODING_RESOURCE));
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.ps.dsc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.xmlgraphics.ps.PSGenerator;
+import org.apache.xmlgraphics.ps.dsc.events.DSCEvent;
+import org.apache.xmlgraphics.ps.dsc.events.UnparsedDSCComment;
+
+/**
+ * Tests the byte-level line handling of {@link DSCParser}.
+ */
+public class DSCParserTestCase {
+
+    private static final String HEADER = "%!PS-Adobe-3.0\n";
+
+    private DSCParser createParser(byte[] data) throws Exception {
+        return new DSCParser(new ByteArrayInputStream(data));
+    }
+
+    @Test
+    public void testLineTerminators() throws Exception {
+        byte[] data = (HEADER + "%%Title: unix\nline1\rline2\r\nline3\n\n%%EOF").getBytes("US-ASCII");
+        DSCParser parser = createParser(data);
+        assertTrue(parser.nextEvent().isHeaderComment());
+        assertTrue(parser.nextEvent().isDSCComment());
+        assertEquals("line1", parser.nextEvent().asLine().getLine());
+        assertEquals("line2", parser.nextEvent().asLine().getLine());
+        assertEquals("line3", parser.nextEvent().asLine().getLine());
+        assertEquals("", parser.nextEvent().asLine().getLine());
+        assertEquals(DSCEvent.EOF, parser.nextEvent().getEventType());
+        assertFalse(parser.hasNext());
+    }
+
+    @Test
+    public void testContinuationLines() throws Exception {
+        byte[] data = (HEADER + "%%DocumentNeededResources: font Helvetica\r\n"
+                + "%%+ font Times-Roman\r\n%%+ font Courier\r\n%%Foo: bar\r\n%%+baz\r\n"
+                + "showpage\r\n%%EOF\r\n").getBytes("US-ASCII");
+        DSCParser parser = createParser(data);
+        parser.nextEvent();
+        DSCEvent event = parser.nextEvent();
+        assertEquals("DocumentNeededResources", event.asDSCComment().getName());
+        event = parser.nextEvent();
+        assertTrue(event instanceof UnparsedDSCComment);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        event.generate(new PSGenerator(out));
+        assertEquals("%%Foo: barbaz\n", out.toString("US-ASCII"));
+        assertEquals("showpage", parser.nextEvent().asLine().getLine());
+        assertEquals(DSCEvent.EOF, parser.nextEvent().getEventType());
+    }
+
+    @Test
+    public void testBinaryPassThrough() throws Exception {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(HEADER.getBytes("US-ASCII"));
+        //8-bit data must be passed through unchanged
+        byte[] binary = new byte[] {(byte)0x80, (byte)0xFF, 0x00, 'a', (byte)0xC3, (byte)0xA4};
+        expected.write(binary);
+        expected.write('\n');
+        //a line much longer than the internal buffer
+        byte[] longLine = new byte[200000];
+        for (int i = 0; i < longLine.length; i++) {
+            longLine[i] = (byte)('0' + (i % 10));
+        }
+        expected.write(longLine);
+        expected.write('\n');
+        expected.write("%%EOF\n".getBytes("US-ASCII"));
+        byte[] data = expected.toByteArray();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PSGenerator gen = new PSGenerator(out);
+        DSCParser parser = new DSCParser(Channels.newChannel(new ByteArrayInputStream(data)));
+        while (parser.hasNext()) {
+            parser.nextEvent().generate(gen);
+        }
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+}
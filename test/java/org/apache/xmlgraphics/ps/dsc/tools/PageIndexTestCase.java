@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.ps.dsc.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link PageIndex} and the index-based page extraction.
+ */
+public class PageIndexTestCase {
+
+    private File file;
+    private byte[] data;
+
+    @Before
+    public void setUp() throws Exception {
+        StringBuffer sb = new StringBuffer();
+        sb.append("%!PS-Adobe-3.0\n");
+        sb.append("%%Pages: 5\n");
+        sb.append("%%DocumentNeededResources: font Helvetica\n");
+        sb.append("%%EndComments\n");
+        sb.append("%%BeginProlog\n/F { findfont } bind def\n%%EndProlog\n");
+        sb.append("%%BeginSetup\n/Helvetica F 10 scalefont setfont\n%%EndSetup\n");
+        for (int i = 1; i <= 5; i++) {
+            sb.append("%%Page: (p" + i + ") " + i + "\n");
+            sb.append("%%BeginPageSetup\n%%EndPageSetup\n");
+            if (i == 2) {
+                sb.append("%%BeginDocument: nested.eps\n%!PS-Adobe-3.0 EPSF-3.0\n");
+                sb.append("%%Page: 1 1\nnested\n%%EOF\n%%EndDocument\n");
+            }
+            sb.append("100 100 moveto (Page " + i + ") show\nshowpage\n");
+        }
+        sb.append("%%Trailer\n%%EOF\n");
+        data = sb.toString().getBytes("US-ASCII");
+
+        file = File.createTempFile("pageindex", ".ps");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        new File(file.getPath() + PageIndex.SIDECAR_EXTENSION).delete();
+        file.delete();
+    }
+
+    @Test
+    public void testBuild() throws Exception {
+        PageIndex index = buildIndex();
+        assertEquals(5, index.getPageCount());
+        assertEquals(data.length, index.getLength());
+        String s = new String(data, "US-ASCII");
+        assertEquals(s.indexOf("%%BeginProlog"), index.getPrologOffset());
+        assertEquals(s.indexOf("%%BeginSetup"), index.getSetupOffset());
+        assertEquals(s.indexOf("%%Page: (p3) 3"), index.getPageOffset(3));
+        assertEquals(s.indexOf("%%BeginPageSetup", (int)index.getPageOffset(3)),
+                index.getPageContentOffset(3));
+        assertEquals(s.indexOf("%%Trailer"), index.getTrailerOffset());
+        assertEquals("p2", index.getPageName(2));
+    }
+
+    @Test
+    public void testExtractPages() throws Exception {
+        PageIndex index = buildIndex();
+        //(the stream-based extractor also writes nested documents of skipped pages,
+        //so only compare ranges including page 2)
+        checkExtraction(index, 1, 2);
+        checkExtraction(index, 2, 4);
+        checkExtraction(index, 1, 5);
+        checkExtraction(index, 2, 10);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            PageExtractor.extractPages(raf.getChannel(), index, out, 5, 5);
+        } finally {
+            raf.close();
+        }
+        String s = out.toString("US-ASCII");
+        assertTrue(s.startsWith("%!PS-Adobe-3.0\n%%Pages: 1\n"));
+        assertTrue(s.indexOf("%%Page: p5 1\n%%BeginPageSetup") > 0);
+        assertTrue(s.indexOf("(Page 4)") < 0);
+        assertTrue(s.indexOf("nested") < 0);
+        assertTrue(s.endsWith("showpage\n%%Trailer\n%%EOF\n"));
+    }
+
+    private void checkExtraction(PageIndex index, int from, int to) throws Exception {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        PageExtractor.extractPages(new ByteArrayInputStream(data), expected, from, to);
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            PageExtractor.extractPages(raf.getChannel(), index, actual, from, to);
+        } finally {
+            raf.close();
+        }
+        assertEquals(expected.toString("US-ASCII"), actual.toString("US-ASCII"));
+    }
+
+    @Test
+    public void testSidecar() throws Exception {
+        File sidecar = new File(file.getPath() + PageIndex.SIDECAR_EXTENSION);
+        assertTrue(!sidecar.exists());
+        PageIndex index = PageIndex.loadOrBuild(file);
+        assertTrue(sidecar.exists());
+        PageIndex loaded = PageIndex.loadOrBuild(file);
+        assertEquals(index.getPageCount(), loaded.getPageCount());
+        for (int i = 1; i <= index.getPageCount(); i++) {
+            assertEquals(index.getPageOffset(i), loaded.getPageOffset(i));
+            assertEquals(index.getPageContentOffset(i), loaded.getPageContentOffset(i));
+            assertEquals(index.getPageName(i), loaded.getPageName(i));
+        }
+        assertEquals(index.getTrailerOffset(), loaded.getTrailerOffset());
+        assertTrue(loaded.isValidFor(file));
+    }
+
+    private PageIndex buildIndex() throws Exception {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return PageIndex.build(raf.getChannel());
+        } finally {
+            raf.close();
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.ps.dsc.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.xmlgraphics.ps.dsc.tools.PageSplitter.PageRange;
+
+/**
+ * Tests {@link PageSplitter}.
+ */
+public class PageSplitterTestCase {
+
+    private static final String[] FONTS = {"Courier", "Helvetica", "Symbol", "Times-Roman"};
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        StringBuffer sb = new StringBuffer();
+        sb.append("%!PS-Adobe-3.0\n");
+        sb.append("%%Pages: (atend)\n");
+        sb.append("%%DocumentNeededResources: (atend)\n");
+        sb.append("%%EndComments\n");
+        sb.append("%%BeginSetup\n%%IncludeResource: font Times-Roman\n%%EndSetup\n");
+        for (int i = 1; i <= 3; i++) {
+            sb.append("%%Page: " + i + " " + i + "\n");
+            sb.append("%%PageResources: font " + FONTS[i - 1] + "\n");
+            sb.append("/" + FONTS[i - 1] + " findfont setfont (Page " + i + ") show\n");
+            sb.append("showpage\n");
+        }
+        sb.append("%%Trailer\n%%Pages: 3\n");
+        sb.append("%%DocumentNeededResources: font Courier\n");
+        sb.append("%%+ font Helvetica\n%%+ font Symbol\n%%+ font Times-Roman\n");
+        sb.append("%%EOF\n");
+
+        file = File.createTempFile("pagesplitter", ".ps");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(sb.toString().getBytes("US-ASCII"));
+        } finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        new File(file.getPath() + PageIndex.SIDECAR_EXTENSION).delete();
+        file.delete();
+    }
+
+    @Test
+    public void testSplit() throws Exception {
+        PageSplitter splitter = new PageSplitter(file);
+        assertTrue(splitter.getPageIndex().hasPageResources());
+
+        List ranges = new java.util.ArrayList();
+        for (int i = 0; i < 50; i++) {
+            ranges.add(new PageRange(1 + (i % 3), 1 + (i % 3)));
+        }
+        ranges.add(new PageRange(2, 3));
+        final Map outputs = java.util.Collections.synchronizedMap(new java.util.HashMap());
+        splitter.split(ranges, new PageSplitter.OutputProvider() {
+            public OutputStream createOutput(PageRange range) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                outputs.put(range, out);
+                return out;
+            }
+        }, 4);
+        assertEquals(ranges.size(), outputs.size());
+
+        for (int i = 0; i < 50; i++) {
+            PageRange range = (PageRange)ranges.get(i);
+            String s = ((ByteArrayOutputStream)outputs.get(range)).toString("US-ASCII");
+            int page = range.getFrom();
+            assertTrue(s.startsWith("%!PS-Adobe-3.0\n%%Pages: 1\n"
+                    + "%%DocumentNeededResources: (atend)\n"));
+            assertTrue(s.indexOf("%%Page: " + page + " 1\n") > 0);
+            assertEquals(1, count(s, "showpage"));
+            String expected = "%%Trailer\n%%DocumentNeededResources: font " + FONTS[page - 1]
+                    + "\n%%+ font Times-Roman\n%%EOF\n";
+            assertTrue(s, s.endsWith(expected));
+        }
+
+        String s = ((ByteArrayOutputStream)outputs.get(ranges.get(50))).toString("US-ASCII");
+        assertTrue(s.indexOf("%%Pages: 2\n") > 0);
+        assertTrue(s.indexOf("%%Page: 3 2\n") > 0);
+        assertTrue(s.endsWith("%%Trailer\n%%DocumentNeededResources: font Helvetica\n"
+                + "%%+ font Symbol\n%%+ font Times-Roman\n%%EOF\n"));
+    }
+
+    private static int count(String s, String part) {
+        int count = 0;
+        int pos = s.indexOf(part);
+        while (pos >= 0) {
+            count++;
+            pos = s.indexOf(part, pos + 1);
+        }
+        return count;
+    }
+
+}
@@ -19,10 +19,19 @@
 
 package org.apache.xmlgraphics.util;
 
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 
+import org.apache.commons.io.FileUtils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -109,4 +118,71 @@ public class ServiceTestCase {
             assertTrue("Returned object must be a class name", obj instanceof String);
         }
     }
+
+    /**
+     * Tests the lazy provider handles.
+     * @throws Exception in case of an error
+     */
+    @Test
+    public void testLazyProviders() throws Exception {
+        List<Service.Provider<ImageWriter>> providers = Service.lazyProviders(ImageWriter.class);
+        assertTrue(providers == Service.lazyProviders(ImageWriter.class));
+
+        Iterator names = Service.providerNames(ImageWriter.class);
+        for (Service.Provider<ImageWriter> provider : providers) {
+            assertEquals(names.next(), provider.getClassName());
+        }
+        assertTrue(!names.hasNext());
+
+        //The handles share their instances with providers()
+        Iterator iter = Service.providers(ImageWriter.class);
+        while (iter.hasNext()) {
+            Object writer = iter.next();
+            boolean found = false;
+            for (Service.Provider<ImageWriter> provider : providers) {
+                if (provider.getInstance() == writer) {
+                    found = true;
+                }
+            }
+            assertTrue("No handle for " + writer, found);
+        }
+    }
+
+    /**
+     * Tests generating and loading a provider index.
+     * @throws Exception in case of an error
+     */
+    @Test
+    public void testProviderIndex() throws Exception {
+        File dir = File.createTempFile("service-index", "");
+        dir.delete();
+        try {
+            String[] args = new String[] {dir.getPath(),
+                    ImageWriter.class.getName() + "#getMIMEType"};
+            Service.main(args);
+            File indexFile = new File(dir, "META-INF/service-index/" + ImageWriter.class.getName());
+            String content = FileUtils.readFileToString(indexFile, "ISO-8859-1");
+
+            //The index is reproducible: no timestamp and sorted entries
+            Service.main(args);
+            assertEquals(content, FileUtils.readFileToString(indexFile, "ISO-8859-1"));
+            String[] lines = content.split("\n");
+            assertTrue(lines[0].startsWith("#"));
+            for (int i = 2; i < lines.length; i++) {
+                assertTrue(lines[i - 1].compareTo(lines[i]) < 0);
+            }
+
+            //Only the generated index is visible through this class loader
+            ClassLoader cl = new URLClassLoader(new URL[] {dir.toURI().toURL()}, null);
+            Map<String, String[]> index = Service.loadProviderIndex(ImageWriter.class, cl);
+            assertEquals(lines.length - 1, index.size());
+            assertArrayEquals(new String[] {"image/png"}, index.get(
+                    "org.apache.xmlgraphics.image.writer.imageio.ImageIOPNGImageWriter"));
+            assertArrayEquals(new String[] {"image/tiff"}, index.get(
+                    "org.apache.xmlgraphics.image.writer.imageio.ImageIOTIFFImageWriter"));
+            assertTrue(Service.loadProviderIndex(Object.class, cl).isEmpty());
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
 }
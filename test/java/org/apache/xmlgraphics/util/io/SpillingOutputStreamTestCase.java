@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.util.io;
+
+import java.io.File;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+import org.apache.commons.io.IOUtils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test case for SpillingOutputStream.
+ */
+public class SpillingOutputStreamTestCase {
+
+    private static byte[] createData(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte)(i * 31);
+        }
+        return data;
+    }
+
+    private static byte[] readAll(InputStream in) throws Exception {
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testInMemory() throws Exception {
+        byte[] data = createData(1000);
+        SpillingOutputStream out = new SpillingOutputStream(1000);
+        out.write(data, 0, 500);
+        out.write(data, 500, 500);
+        try {
+            out.toInputStream();
+            fail("The stream must be closed before reading");
+        } catch (IllegalStateException ise) {
+            //expected
+        }
+        out.close();
+        assertTrue(out.isInMemory());
+        assertNull(out.getFile());
+        assertArrayEquals(data, readAll(out.toInputStream()));
+        //Data in memory can be read more than once
+        assertArrayEquals(data, readAll(out.toInputStream()));
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        byte[] data = createData(10000);
+        SpillingOutputStream out = new SpillingOutputStream(1000);
+        out.write(data, 0, 600);
+        assertTrue(out.isInMemory());
+        out.write(data, 600, 600);
+        out.write(data[1200]);
+        out.write(data, 1201, data.length - 1201);
+        out.close();
+        assertFalse(out.isInMemory());
+        File file = out.getFile();
+        assertTrue(file.exists());
+        assertArrayEquals(data, readAll(out.toInputStream()));
+        assertFalse(file.exists());
+        try {
+            out.toInputStream();
+            fail("The data of a temporary file can only be read once");
+        } catch (IllegalStateException ise) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testDispose() throws Exception {
+        SpillingOutputStream out = new SpillingOutputStream(10);
+        out.write(createData(100));
+        File file = out.getFile();
+        assertTrue(file.exists());
+        out.dispose();
+        assertFalse(file.exists());
+    }
+
+}
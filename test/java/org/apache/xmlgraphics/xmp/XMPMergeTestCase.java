@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.xmp;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.xmlgraphics.util.QName;
+import org.apache.xmlgraphics.xmp.merge.ArrayAddPropertyMerger;
+import org.apache.xmlgraphics.xmp.merge.MergeRuleSet;
+import org.apache.xmlgraphics.xmp.merge.NoReplacePropertyMerger;
+import org.apache.xmlgraphics.xmp.schemas.DublinCoreAdapter;
+import org.apache.xmlgraphics.xmp.schemas.DublinCoreSchema;
+
+/**
+ * Tests merging of XMP metadata and the property name index.
+ */
+public class XMPMergeTestCase {
+
+    @Test
+    public void testPropertyNameIndex() throws Exception {
+        Metadata xmp = new Metadata();
+        DublinCoreAdapter dc = DublinCoreSchema.getAdapter(xmp);
+        dc.setTitle("Title");
+        XMPProperty prop = xmp.getProperty(DublinCoreSchema.NAMESPACE, "title");
+        assertNotNull(prop);
+        assertSame(prop.getName(),
+                XMPSchemaRegistry.getInstance().getPropertyName(DublinCoreSchema.NAMESPACE, "title"));
+
+        QName name = new QName(DublinCoreSchema.NAMESPACE, "dc:title");
+        assertEquals(name, prop.getName());
+        assertEquals(name.hashCode(), prop.getName().hashCode());
+        assertEquals(("{" + DublinCoreSchema.NAMESPACE + "}title").hashCode(), name.hashCode());
+        assertEquals("title".hashCode(), new QName(null, "title").hashCode());
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        Metadata source = new Metadata();
+        DublinCoreAdapter dc = DublinCoreSchema.getAdapter(source);
+        dc.setTitle("Source title");
+        dc.addDate(new Date(0));
+        source.setProperty(new XMPProperty(new QName("http://example.com/unknown/", "ex:foo"),
+                "bar"));
+
+        Metadata target = new Metadata();
+        DublinCoreAdapter targetDC = DublinCoreSchema.getAdapter(target);
+        targetDC.setTitle("Target title");
+        targetDC.addDate(new Date(1000000));
+
+        source.mergeInto(target);
+        assertEquals("Source title", targetDC.getTitle());
+        //dc:date values are added, not replaced
+        assertEquals(2, targetDC.getDates().length);
+        //properties of schemas unknown to the registry are replaced
+        assertEquals("bar",
+                target.getProperty("http://example.com/unknown/", "foo").getValue());
+    }
+
+    private static final String RULES_NAMESPACE = "http://xmlgraphics.apache.org/test/rules/";
+
+    private static class RulesSchema extends XMPSchema {
+
+        private MergeRuleSet rules = new MergeRuleSet();
+
+        RulesSchema(int propertyCount) {
+            super(RULES_NAMESPACE, "rt");
+            for (int i = 0; i < propertyCount; i++) {
+                rules.addRule(getQName("prop" + i), (i % 2 == 0
+                        ? new ArrayAddPropertyMerger() : new NoReplacePropertyMerger()));
+            }
+        }
+
+        public MergeRuleSet getDefaultMergeRuleSet() {
+            return rules;
+        }
+    }
+
+    @Test
+    public void testMergeWithSchemaRules() throws Exception {
+        int count = 100;
+        RulesSchema schema = new RulesSchema(count);
+        XMPSchemaRegistry.getInstance().addSchema(schema);
+
+        //Properties of several namespaces so the rule set changes during the merge
+        Metadata source = new Metadata();
+        Metadata target = new Metadata();
+        for (int i = 0; i < count; i++) {
+            source.setProperty(new XMPProperty(schema.getQName("prop" + i), "source" + i));
+            target.setProperty(new XMPProperty(schema.getQName("prop" + i), "target" + i));
+        }
+        DublinCoreSchema.getAdapter(source).setTitle("Source title");
+        DublinCoreSchema.getAdapter(target).setTitle("Target title");
+        source.setProperty(new XMPProperty(new QName("http://example.com/unknown/", "ex:foo"),
+                "bar"));
+
+        source.mergeInto(target);
+        for (int i = 0; i < count; i++) {
+            XMPProperty prop = target.getProperty(RULES_NAMESPACE, "prop" + i);
+            if (i % 2 == 0) {
+                XMPArray array = prop.getArrayValue();
+                assertNotNull(array);
+                assertEquals(2, array.getSize());
+                assertEquals("target" + i, array.getValue(0));
+                assertEquals("source" + i, array.getValue(1));
+            } else {
+                assertNull(prop.getArrayValue());
+                assertEquals("target" + i, prop.getValue());
+            }
+        }
+        assertEquals("Source title", DublinCoreSchema.getAdapter(target).getTitle());
+        assertEquals("bar",
+                target.getProperty("http://example.com/unknown/", "foo").getValue());
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.xmlgraphics.xmp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.xmlgraphics.xmp.schemas.DublinCoreAdapter;
+import org.apache.xmlgraphics.xmp.schemas.DublinCoreSchema;
+
+/**
+ * Tests for the XMP serializer.
+ */
+public class XMPSerializerTestCase {
+
+    private Metadata createMetadata() {
+        Metadata xmp = new Metadata();
+        DublinCoreAdapter dc = DublinCoreSchema.getAdapter(xmp);
+        dc.setTitle("Title with <markup> & \"quotes\" \u00E4\u20AC");
+        dc.addCreator("John Doe");
+        dc.addCreator("Jane Doe");
+        return xmp;
+    }
+
+    @Test
+    public void testWritablePacket() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMPSerializer.writeXMPPacket(createMetadata(), out, false);
+        byte[] data = out.toByteArray();
+        String packet = new String(data, "UTF-8");
+
+        assertTrue(packet.startsWith(
+                "<?xpacket begin=\"\uFEFF\" id=\"W5M0MpCehiHzreSzNTczkc9d\"?>"));
+        //UTF-8 encoded byte order mark
+        assertEquals((byte)0xEF, data[17]);
+        assertEquals((byte)0xBB, data[18]);
+        assertEquals((byte)0xBF, data[19]);
+        assertTrue(packet.endsWith("\n<?xpacket end=\"w\"?>"));
+        assertTrue(packet.length() > 4096);
+
+        Metadata meta = XMPPacketParser.parse(new ByteArrayInputStream(data));
+        DublinCoreAdapter dc = DublinCoreSchema.getAdapter(meta);
+        assertEquals("Title with <markup> & \"quotes\" \u00E4\u20AC", dc.getTitle());
+        assertEquals(2, dc.getCreators().length);
+        assertEquals("John Doe", dc.getCreators()[0]);
+    }
+
+    @Test
+    public void testReadOnlyPacket() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMPSerializer.writeXMPPacket(createMetadata(), out, true);
+        String packet = new String(out.toByteArray(), "UTF-8");
+
+        assertTrue(packet.endsWith("</x:xmpmeta><?xpacket end=\"r\"?>\n"));
+        assertTrue(packet.indexOf("<x:xmpmeta xmlns:x=\"adobe:ns:meta/\">") > 0);
+        assertTrue(packet.length() < 4096);
+
+        Metadata meta = XMPPacketParser.parse(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals("Jane Doe", DublinCoreSchema.getAdapter(meta).getCreators()[1]);
+    }
+
+}